@@ -0,0 +1,149 @@
+package benchmark;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import db.DB;
+import db.SchemaMigrator;
+import model.dao.DaoFactory;
+import model.dao.DepartmentDao;
+import model.dao.SellerDao;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Banco H2 em memoria (modo MySQL) populado com sellers e departamentos
+ * sinteticos, compartilhado por todas as threads de um benchmark.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkDatabase {
+
+	public static final String URL = "jdbc:h2:mem:bench;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+	private static final String REPLICA_URL = "jdbc:h2:mem:bench-replica;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+	@Param({ "10000" })
+	public int sellers;
+
+	@Param({ "50" })
+	public int departments;
+
+	/**
+	 * 1 cria uma copia do banco em um segundo H2 e roteia as leituras para
+	 * ela. Nao ha replicacao: depois da primeira escrita a replica fica
+	 * atrasada e as leituras voltam ao principal.
+	 */
+	@Param({ "0" })
+	public int replicas;
+
+	public SellerDao sellerDao;
+	public DepartmentDao departmentDao;
+	public List<Department> departmentList;
+	public int maxSellerId;
+
+	private final AtomicInteger nextSeller = new AtomicInteger();
+
+	@Setup(Level.Trial)
+	public void setUp() throws SQLException {
+		Properties props = new Properties();
+		props.setProperty("dburl", URL);
+		props.setProperty("user", "sa");
+		props.setProperty("password", "");
+		props.setProperty("pool.minSize", "1");
+		props.setProperty("pool.maxSize", "16");
+		DB.configure(props);
+
+		SchemaMigrator.migrate(DB.getDataSource());
+		populate();
+
+		if (replicas > 0) {
+			copyToReplica();
+			props.setProperty("replica.urls", REPLICA_URL);
+			DB.configure(props);
+		}
+
+		departmentDao = DaoFactory.createDepartmentDao();
+		sellerDao = DaoFactory.createSellerDao();
+		departmentList = departmentDao.findAll();
+		maxSellerId = sellers;
+		nextSeller.set(sellers);
+	}
+
+	private void populate() {
+		departmentDao = DaoFactory.createDepartmentDao();
+		sellerDao = DaoFactory.createSellerDao();
+
+		List<Department> deps = new ArrayList<>();
+		for (int i = 0; i < departments; i++) {
+			deps.add(new Department(null, "Department " + i));
+		}
+		departmentDao.insertAll(deps);
+		departmentList = departmentDao.findAll();
+
+		Random random = new Random(42);
+		List<Seller> list = new ArrayList<>();
+		for (int i = 0; i < sellers; i++) {
+			list.add(newSeller(random, i));
+			if (list.size() == 5000) {
+				sellerDao.insertAll(list);
+				list.clear();
+			}
+		}
+		sellerDao.insertAll(list);
+	}
+
+	private void copyToReplica() throws SQLException {
+		String script = new File(System.getProperty("java.io.tmpdir"), "bench-replica.sql").getAbsolutePath();
+		try (Connection con = DB.getConnection(); Statement st = con.createStatement()) {
+			st.execute("SCRIPT TO '" + script + "'");
+		}
+		try (Connection con = DriverManager.getConnection(REPLICA_URL, "sa", "");
+				Statement st = con.createStatement()) {
+			st.execute("RUNSCRIPT FROM '" + script + "'");
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws SQLException {
+		try (Connection con = DB.getConnection(); Statement st = con.createStatement()) {
+			st.execute("DROP ALL OBJECTS");
+		}
+		if (replicas > 0) {
+			try (Connection con = DriverManager.getConnection(REPLICA_URL, "sa", "");
+					Statement st = con.createStatement()) {
+				st.execute("DROP ALL OBJECTS");
+			}
+		}
+		DB.closeConnection();
+	}
+
+	/**
+	 * Numero para um novo seller, unico entre as threads (o email tem indice
+	 * unico).
+	 */
+	public int nextSellerNumber() {
+		return nextSeller.getAndIncrement();
+	}
+
+	public Seller newSeller(Random random, int n) {
+		Department dep = departmentList.get(random.nextInt(departmentList.size()));
+		return new Seller(null, "Seller " + n, "seller" + n + "@mail.com",
+				new Date(315532800000L + random.nextInt(1_000_000_000)), 1000.0 + random.nextInt(9000), dep);
+	}
+}
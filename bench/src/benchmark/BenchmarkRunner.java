@@ -0,0 +1,30 @@
+package benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Executa todos os benchmarks com o GCProfiler (taxa de alocacao).
+ * Aceita os argumentos normais do JMH, ex.: "SellerDaoBenchmark.findById
+ * -p sellers=100000 -p departments=200".
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions cmd = new CommandLineOptions(args);
+		OptionsBuilder builder = new OptionsBuilder();
+		builder.parent(cmd);
+		if (cmd.getIncludes().isEmpty()) {
+			builder.include(".*Benchmark\\..*");
+		}
+		Options options = builder
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
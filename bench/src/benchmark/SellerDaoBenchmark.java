@@ -0,0 +1,82 @@
+package benchmark;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import model.entities.Seller;
+
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SellerDaoBenchmark {
+
+	@State(Scope.Thread)
+	public static class ThreadState {
+		public final Random random = new Random();
+	}
+
+	@Benchmark
+	public Seller findById(BenchmarkDatabase db, ThreadState state) {
+		return db.sellerDao.findById(1 + state.random.nextInt(db.maxSellerId));
+	}
+
+	@Benchmark
+	public List<Seller> findAll(BenchmarkDatabase db) {
+		return db.sellerDao.findAll();
+	}
+
+	@Benchmark
+	public List<Seller> findByDepartment(BenchmarkDatabase db, ThreadState state) {
+		return db.sellerDao.findByDepartment(db.departmentList.get(state.random.nextInt(db.departmentList.size())));
+	}
+
+	@Benchmark
+	public List<Seller> findFirstPage(BenchmarkDatabase db) {
+		return db.sellerDao.findPage(null, 200);
+	}
+
+	@Benchmark
+	public void forEachStreaming(BenchmarkDatabase db, Blackhole bh) {
+		db.sellerDao.forEach(bh::consume);
+	}
+
+	@Benchmark
+	public Seller insert(BenchmarkDatabase db, ThreadState state) {
+		Seller seller = db.newSeller(state.random, db.nextSellerNumber());
+		db.sellerDao.insert(seller);
+		return seller;
+	}
+
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(3)
+	public Seller mixedRead(BenchmarkDatabase db, ThreadState state) {
+		return db.sellerDao.findById(1 + state.random.nextInt(db.maxSellerId));
+	}
+
+	@Benchmark
+	@Group("mixed")
+	@GroupThreads(1)
+	public Seller mixedWrite(BenchmarkDatabase db, ThreadState state) {
+		Seller seller = db.sellerDao.findById(1 + state.random.nextInt(db.maxSellerId));
+		seller.setBaseSalary(seller.getBaseSalary() + 1.0);
+		db.sellerDao.update(seller);
+		return seller;
+	}
+}
@@ -0,0 +1,100 @@
+package model.dao.impl;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import benchmark.BenchmarkDatabase;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Custo do mapeamento linha -> entidade do {@link SellerDaoJDBC}, sem a
+ * consulta: o resultado do findAll e lido uma vez em um ResultSet rolavel do
+ * H2 e percorrido de novo a cada chamada. Fica no pacote do DAO para chamar
+ * os mesmos metodos de mapeamento usados pelas consultas.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MappingBenchmark {
+
+	private Connection con;
+	private Statement st;
+	private ResultSet rs;
+	private SellerDaoJDBC dao;
+	private DepartmentCache cache;
+	private int[] departmentIds;
+
+	@Setup(Level.Trial)
+	public void setUp(BenchmarkDatabase db) throws SQLException {
+		cache = new DepartmentCache(Long.MAX_VALUE, db.departments * 2);
+		dao = new SellerDaoJDBC(null, cache);
+		// conexao direta: mede o mapeamento sem os proxies do pool
+		con = DriverManager.getConnection(BenchmarkDatabase.URL, "sa", "");
+		st = con.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+		rs = st.executeQuery(SellerDaoJDBC.QUERY_FIND_ALL);
+
+		List<Integer> ids = new ArrayList<>();
+		while (rs.next()) {
+			ids.add(rs.getInt("DepartmentId"));
+		}
+		departmentIds = new int[ids.size()];
+		for (int i = 0; i < departmentIds.length; i++) {
+			departmentIds[i] = ids.get(i);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws SQLException {
+		rs.close();
+		st.close();
+		con.close();
+	}
+
+	@Benchmark
+	public List<Seller> instantiateSellers() throws SQLException {
+		rs.beforeFirst();
+		return dao.instantiateSellers(rs);
+	}
+
+	@Benchmark
+	public void departmentDeduplication(Blackhole bh) throws SQLException {
+		rs.beforeFirst();
+		Map<Integer, Department> map = new HashMap<>();
+		while (rs.next()) {
+			bh.consume(dao.department(rs, map));
+		}
+	}
+
+	@Benchmark
+	public void cacheCanonicalization(Blackhole bh) {
+		for (int id : departmentIds) {
+			bh.consume(cache.canonicalize(id, "Department " + id, 0));
+		}
+	}
+}
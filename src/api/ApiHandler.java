@@ -0,0 +1,290 @@
+package api;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import db.DBException;
+import db.DbConflictException;
+import db.DbIntegrityException;
+import model.service.QueryResultCache;
+import model.util.Json;
+
+/**
+ * Base dos handlers da API: separa o caminho em segmentos, converte
+ * excecoes em status HTTP (400 entrada invalida, 404, 409 conflito de versao
+ * ou restricao do banco, 503 banco fora do ar) e escreve as respostas JSON.
+ * <p>
+ * Os GETs respondem com ETag tirado das versoes do
+ * {@link QueryResultCache}: um If-None-Match igual devolve 304 sem consultar
+ * as tabelas.
+ */
+abstract class ApiHandler implements HttpHandler {
+
+	private static final Logger LOG = Logger.getLogger(ApiHandler.class.getName());
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final int maxBodyBytes;
+
+	ApiHandler(int maxBodyBytes) {
+		this.maxBodyBytes = maxBodyBytes;
+	}
+
+	/**
+	 * @param path segmentos do caminho depois do contexto do handler
+	 */
+	protected abstract void handle(HttpExchange exchange, List<String> path) throws IOException;
+
+	@Override
+	public final void handle(HttpExchange exchange) throws IOException {
+		long start = System.nanoTime();
+		try {
+			handle(exchange, segments(exchange));
+		} catch (ApiException e) {
+			sendError(exchange, e.getStatus(), e.getMessage());
+		} catch (IllegalArgumentException e) {
+			sendError(exchange, 400, e.getMessage());
+		} catch (DbConflictException | DbIntegrityException e) {
+			sendError(exchange, 409, e.getMessage());
+		} catch (DBException e) {
+			int status = statusOf(e);
+			if (status == 500) {
+				LOG.log(Level.WARNING, exchange.getRequestMethod() + " " + exchange.getRequestURI() + ": "
+						+ e.getMessage(), e);
+			}
+			sendError(exchange, status, e.getMessage());
+		} catch (IOException | RuntimeException e) {
+			LOG.log(Level.WARNING, exchange.getRequestMethod() + " " + exchange.getRequestURI() + ": "
+					+ e.getMessage(), e);
+			sendError(exchange, 500, "Erro interno");
+		} finally {
+			exchange.close();
+			if (LOG.isLoggable(Level.FINE)) {
+				LOG.fine(String.format("%s %s -> %d (%.1f ms)", exchange.getRequestMethod(),
+						exchange.getRequestURI(), exchange.getResponseCode(), (System.nanoTime() - start) / 1e6));
+			}
+		}
+	}
+
+	private static int statusOf(DBException e) {
+		for (Throwable t = e.getCause(); t != null; t = t.getCause()) {
+			if (t instanceof SQLException) {
+				String state = ((SQLException) t).getSQLState();
+				if (state != null && state.startsWith("08")) {
+					return 503;
+				}
+				if (state != null && state.startsWith("23")) {
+					return 409;
+				}
+			}
+		}
+		return 500;
+	}
+
+	private List<String> segments(HttpExchange exchange) {
+		String path = exchange.getRequestURI().getPath();
+		String context = exchange.getHttpContext().getPath();
+		List<String> list = new ArrayList<>();
+		for (String segment : path.substring(Math.min(context.length(), path.length())).split("/")) {
+			if (!segment.isEmpty()) {
+				list.add(segment);
+			}
+		}
+		return list;
+	}
+
+	protected static Map<String, String> query(HttpExchange exchange) {
+		Map<String, String> params = new HashMap<>();
+		String raw = exchange.getRequestURI().getRawQuery();
+		if (raw == null) {
+			return params;
+		}
+		try {
+			for (String pair : raw.split("&")) {
+				int eq = pair.indexOf('=');
+				if (eq > 0) {
+					params.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"),
+							URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+				} else if (!pair.isEmpty()) {
+					params.put(URLDecoder.decode(pair, "UTF-8"), "");
+				}
+			}
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+		return params;
+	}
+
+	protected static Integer intParam(Map<String, String> params, String name) {
+		String value = params.get(name);
+		if (value == null || value.isEmpty()) {
+			return null;
+		}
+		try {
+			return Integer.valueOf(value);
+		} catch (NumberFormatException e) {
+			throw new ApiException(400, "Valor invalido para " + name + ": " + value);
+		}
+	}
+
+	protected static Integer id(String segment) {
+		try {
+			return Integer.valueOf(segment);
+		} catch (NumberFormatException e) {
+			throw new ApiException(404, "Recurso nao encontrado: " + segment);
+		}
+	}
+
+	protected static void allow(HttpExchange exchange, String... methods) {
+		for (String method : methods) {
+			if (method.equals(exchange.getRequestMethod())) {
+				return;
+			}
+		}
+		exchange.getResponseHeaders().set("Allow", String.join(", ", methods));
+		throw new ApiException(405, "Metodo nao suportado: " + exchange.getRequestMethod());
+	}
+
+	protected Object readJson(HttpExchange exchange) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		try (InputStream in = exchange.getRequestBody()) {
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				if (body.size() + n > maxBodyBytes) {
+					throw new ApiException(413, "Corpo da requisicao maior que " + maxBodyBytes + " bytes");
+				}
+				body.write(buffer, 0, n);
+			}
+		}
+		return Json.parse(new String(body.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * ETag das tabelas; lido antes da consulta, para que uma escrita
+	 * concorrente nunca associe a versao nova a dados antigos.
+	 */
+	protected static String etag(String... tables) {
+		return "W/\"" + QueryResultCache.getShared().versionTag(tables) + "\"";
+	}
+
+	/**
+	 * Coloca o ETag na resposta e, se o cliente ja tem essa versao, responde
+	 * 304. Recursos por id devem ser resolvidos antes (404 se nao existe).
+	 *
+	 * @return true se a resposta 304 ja foi enviada
+	 */
+	protected static boolean notModified(HttpExchange exchange, String etag) throws IOException {
+		exchange.getResponseHeaders().set("ETag", etag);
+		String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		for (String candidate : ifNoneMatch.split(",")) {
+			String tag = candidate.trim();
+			if (tag.equals("*") || tag.equals(etag) || ("W/" + tag).equals(etag)) {
+				exchange.sendResponseHeaders(304, -1);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	protected interface JsonWriter<T> {
+		void write(Appendable out, T obj) throws IOException;
+	}
+
+	protected static <T> String array(Collection<T> list, JsonWriter<T> writer) throws IOException {
+		StringBuilder sb = new StringBuilder(list.size() * 128 + 2).append('[');
+		for (T obj : list) {
+			if (sb.length() > 1) {
+				sb.append(',');
+			}
+			writer.write(sb, obj);
+		}
+		return sb.append(']').toString();
+	}
+
+	protected static <T> String object(T obj, JsonWriter<T> writer) throws IOException {
+		StringBuilder sb = new StringBuilder(256);
+		writer.write(sb, obj);
+		return sb.toString();
+	}
+
+	protected static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+		byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	protected static void sendNoContent(HttpExchange exchange) throws IOException {
+		exchange.sendResponseHeaders(204, -1);
+	}
+
+	/**
+	 * Resposta em chunks: escreve um array JSON com os itens entregues por
+	 * {@code source} conforme sao lidos, sem montar a lista.
+	 */
+	protected static <T> long streamJson(HttpExchange exchange, Consumer<Consumer<T>> source, JsonWriter<T> writer)
+			throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+		exchange.sendResponseHeaders(200, 0);
+		long[] rows = new long[1];
+		try (Writer out = new BufferedWriter(
+				new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+			out.write('[');
+			try {
+				source.accept(obj -> {
+					try {
+						out.write(rows[0]++ == 0 ? "\n" : ",\n");
+						writer.write(out, obj);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			} catch (UncheckedIOException e) {
+				// cliente desconectou: o cursor ja foi fechado pelo DAO
+				throw e.getCause();
+			}
+			out.write(rows[0] == 0 ? "]\n" : "\n]\n");
+		}
+		return rows[0];
+	}
+
+	private static void sendError(HttpExchange exchange, int status, String message) {
+		if (exchange.getResponseCode() != -1) {
+			// cabecalhos ja enviados (ex.: erro no meio de um stream)
+			return;
+		}
+		exchange.getResponseHeaders().remove("ETag");
+		try {
+			sendJson(exchange, status, "{\"error\":" + Json.quote(message) + "}");
+		} catch (IOException e) {
+			LOG.fine("Falha ao enviar erro " + status + ": " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package api;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpServer;
+
+import db.DB;
+import model.service.DepartmentService;
+import model.service.SellerService;
+import model.service.ServiceExecutor;
+
+/**
+ * API HTTP/JSON sobre os services, no servidor HTTP embutido do JDK. Cada
+ * requisicao roda em uma virtual thread (Java 21+) ou, em JVMs mais antigas,
+ * em um pool de server.threads threads. Cada uma ocupa no maximo uma conexao
+ * do pool do banco; as requisicoes acima de pool.maxSize esperam por conexao.
+ */
+public class ApiServer {
+
+	private static final Logger LOG = Logger.getLogger(ApiServer.class.getName());
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	public ApiServer(int port) throws IOException {
+		int maxBodyBytes = DB.getIntProperty("server.maxBodyBytes", 8 * 1024 * 1024);
+		SellerService sellerService = new SellerService();
+		DepartmentService departmentService = new DepartmentService();
+
+		server = HttpServer.create(new InetSocketAddress(port), DB.getIntProperty("server.backlog", 0));
+		server.createContext("/api/sellers", new SellerHandler(sellerService, departmentService,
+				DB.getIntProperty("server.pageSize", 100), DB.getIntProperty("server.maxPageSize", 1000),
+				maxBodyBytes));
+		server.createContext("/api/departments", new DepartmentHandler(departmentService, sellerService,
+				maxBodyBytes));
+
+		executor = ServiceExecutor.newExecutor("api", DB.getIntProperty("server.threads", 32));
+		server.setExecutor(executor);
+	}
+
+	public void start() {
+		server.start();
+		LOG.info("API HTTP ouvindo na porta " + getPort());
+	}
+
+	/**
+	 * Para de aceitar conexoes e espera ate {@code delaySeconds} pelas
+	 * requisicoes em andamento.
+	 */
+	public void stop(int delaySeconds) {
+		server.stop(delaySeconds);
+		executor.shutdown();
+		try {
+			executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+}
@@ -0,0 +1,123 @@
+package api;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import model.entities.Department;
+import model.service.DepartmentService;
+import model.service.SalaryReportService;
+import model.service.SellerService;
+import model.util.EntityJson;
+
+/**
+ * /api/departments
+ * <ul>
+ * <li>GET|POST /api/departments</li>
+ * <li>GET|PUT|DELETE /api/departments/{id}; DELETE com ?reassignTo={id}
+ * move os sellers antes de remover</li>
+ * <li>GET /api/departments/{id}/sellers</li>
+ * <li>GET /api/departments/salary : estatisticas de salario por
+ * departamento</li>
+ * </ul>
+ */
+class DepartmentHandler extends ApiHandler {
+
+	private static final String[] TABLES = { "department" };
+	private static final String[] SELLER_TABLES = { "seller", "department" };
+
+	private final DepartmentService departmentService;
+	private final SellerService sellerService;
+
+	DepartmentHandler(DepartmentService departmentService, SellerService sellerService, int maxBodyBytes) {
+		super(maxBodyBytes);
+		this.departmentService = departmentService;
+		this.sellerService = sellerService;
+	}
+
+	@Override
+	protected void handle(HttpExchange exchange, List<String> path) throws IOException {
+		if (path.isEmpty()) {
+			allow(exchange, "GET", "POST");
+			if ("POST".equals(exchange.getRequestMethod())) {
+				create(exchange);
+			} else if (!notModified(exchange, etag(TABLES))) {
+				sendJson(exchange, 200, array(departmentService.findAll(), EntityJson::writeDepartment));
+			}
+		} else if (path.size() == 1 && "salary".equals(path.get(0))) {
+			allow(exchange, "GET");
+			if (!notModified(exchange, etag(SELLER_TABLES))) {
+				sendJson(exchange, 200, array(new SalaryReportService().load(), EntityJson::writeSalaryStats));
+			}
+		} else if (path.size() == 1) {
+			allow(exchange, "GET", "PUT", "DELETE");
+			Integer id = id(path.get(0));
+			switch (exchange.getRequestMethod()) {
+			case "GET":
+				String etag = etag(TABLES);
+				Department obj = find(id);
+				if (!notModified(exchange, etag)) {
+					sendJson(exchange, 200, object(obj, EntityJson::writeDepartment));
+				}
+				break;
+			case "PUT":
+				update(exchange, id);
+				break;
+			default:
+				remove(exchange, find(id));
+			}
+		} else if (path.size() == 2 && "sellers".equals(path.get(1))) {
+			allow(exchange, "GET");
+			String etag = etag(SELLER_TABLES);
+			Department dep = find(id(path.get(0)));
+			if (!notModified(exchange, etag)) {
+				sendJson(exchange, 200, array(sellerService.findByDepartment(dep), EntityJson::writeSeller));
+			}
+		} else {
+			throw new ApiException(404, "Recurso nao encontrado: " + exchange.getRequestURI().getPath());
+		}
+	}
+
+	private void create(HttpExchange exchange) throws IOException {
+		Department obj = EntityJson.toDepartment(readJson(exchange));
+		obj.setId(null);
+		departmentService.saveOrUpdate(obj);
+		exchange.getResponseHeaders().set("Location", "/api/departments/" + obj.getId());
+		sendJson(exchange, 201, object(obj, EntityJson::writeDepartment));
+	}
+
+	private void update(HttpExchange exchange, Integer id) throws IOException {
+		Department obj = EntityJson.toDepartment(readJson(exchange));
+		if (obj.getVersion() == null) {
+			throw new ApiException(400, "Campo obrigatorio: version");
+		}
+		find(id);
+		obj.setId(id);
+		departmentService.saveOrUpdate(obj);
+		sendJson(exchange, 200, object(obj, EntityJson::writeDepartment));
+	}
+
+	private void remove(HttpExchange exchange, Department obj) throws IOException {
+		Integer targetId = intParam(query(exchange), "reassignTo");
+		if (targetId == null) {
+			departmentService.remove(obj);
+			sendNoContent(exchange);
+			return;
+		}
+		Department target = departmentService.findById(targetId);
+		if (target == null || target.equals(obj)) {
+			throw new ApiException(400, "Departamento de destino invalido: " + targetId);
+		}
+		int moved = departmentService.removeAndReassign(obj, target);
+		sendJson(exchange, 200, "{\"moved\":" + moved + "}");
+	}
+
+	private Department find(Integer id) {
+		Department obj = departmentService.findById(id);
+		if (obj == null) {
+			throw new ApiException(404, "Departamento nao encontrado: " + id);
+		}
+		return obj;
+	}
+}
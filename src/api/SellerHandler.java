@@ -0,0 +1,228 @@
+package api;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import model.dao.BatchResult;
+import model.entities.Department;
+import model.entities.Seller;
+import model.service.DepartmentService;
+import model.service.SellerService;
+import model.util.EntityJson;
+import model.util.Json;
+
+/**
+ * /api/sellers
+ * <ul>
+ * <li>GET /api/sellers?limit=&amp;after= : pagina ordenada por nome; o campo
+ * "next" da resposta e o cursor da proxima pagina (null na ultima)</li>
+ * <li>GET /api/sellers?departmentId= : sellers do departamento</li>
+ * <li>GET /api/sellers/stream : todos os sellers, lidos por cursor e
+ * escritos conforme chegam</li>
+ * <li>GET|PUT|DELETE /api/sellers/{id}, POST /api/sellers</li>
+ * <li>POST /api/sellers/bulk : array de sellers, inseridos em lote; itens
+ * invalidos sao devolvidos em "failures" pelo indice</li>
+ * </ul>
+ */
+class SellerHandler extends ApiHandler {
+
+	private static final String[] TABLES = { "seller", "department" };
+
+	private final SellerService sellerService;
+	private final DepartmentService departmentService;
+	private final int pageSize;
+	private final int maxPageSize;
+
+	SellerHandler(SellerService sellerService, DepartmentService departmentService, int pageSize, int maxPageSize,
+			int maxBodyBytes) {
+		super(maxBodyBytes);
+		this.sellerService = sellerService;
+		this.departmentService = departmentService;
+		this.pageSize = pageSize;
+		this.maxPageSize = maxPageSize;
+	}
+
+	@Override
+	protected void handle(HttpExchange exchange, List<String> path) throws IOException {
+		if (path.isEmpty()) {
+			allow(exchange, "GET", "POST");
+			if ("GET".equals(exchange.getRequestMethod())) {
+				list(exchange);
+			} else {
+				create(exchange);
+			}
+		} else if (path.size() == 1 && "stream".equals(path.get(0))) {
+			allow(exchange, "GET");
+			if (!notModified(exchange, etag(TABLES))) {
+				streamJson(exchange, sellerService::forEach, EntityJson::writeSeller);
+			}
+		} else if (path.size() == 1 && "bulk".equals(path.get(0))) {
+			allow(exchange, "POST");
+			bulkInsert(exchange);
+		} else if (path.size() == 1) {
+			allow(exchange, "GET", "PUT", "DELETE");
+			Integer id = id(path.get(0));
+			switch (exchange.getRequestMethod()) {
+			case "GET":
+				String etag = etag(TABLES);
+				Seller obj = find(id);
+				if (!notModified(exchange, etag)) {
+					sendJson(exchange, 200, object(obj, EntityJson::writeSeller));
+				}
+				break;
+			case "PUT":
+				update(exchange, id);
+				break;
+			default:
+				sellerService.remove(find(id));
+				sendNoContent(exchange);
+			}
+		} else {
+			throw new ApiException(404, "Recurso nao encontrado: " + exchange.getRequestURI().getPath());
+		}
+	}
+
+	private void list(HttpExchange exchange) throws IOException {
+		Map<String, String> params = query(exchange);
+		Integer departmentId = intParam(params, "departmentId");
+		Integer limit = intParam(params, "limit");
+		int size = limit == null ? pageSize : Math.max(1, Math.min(limit, maxPageSize));
+		Seller after = decodeCursor(params.get("after"));
+		if (notModified(exchange, etag(TABLES))) {
+			return;
+		}
+
+		List<Seller> items;
+		String next = null;
+		if (departmentId != null) {
+			items = sellerService.findByDepartment(new Department(departmentId, null));
+		} else {
+			items = sellerService.findPage(after, size);
+			if (items.size() == size) {
+				next = encodeCursor(items.get(items.size() - 1));
+			}
+		}
+		sendJson(exchange, 200, "{\"items\":" + array(items, EntityJson::writeSeller) + ",\"next\":"
+				+ Json.quote(next) + "}");
+	}
+
+	private void create(HttpExchange exchange) throws IOException {
+		Seller obj = EntityJson.toSeller(readJson(exchange));
+		obj.setId(null);
+		obj.setDepartment(department(obj.getDepartment().getId()));
+		sellerService.saveOrUpdate(obj);
+		exchange.getResponseHeaders().set("Location", "/api/sellers/" + obj.getId());
+		sendJson(exchange, 201, object(obj, EntityJson::writeSeller));
+	}
+
+	private void update(HttpExchange exchange, Integer id) throws IOException {
+		Seller obj = EntityJson.toSeller(readJson(exchange));
+		if (obj.getVersion() == null) {
+			throw new ApiException(400, "Campo obrigatorio: version");
+		}
+		find(id);
+		obj.setId(id);
+		obj.setDepartment(department(obj.getDepartment().getId()));
+		sellerService.saveOrUpdate(obj);
+		sendJson(exchange, 200, object(obj, EntityJson::writeSeller));
+	}
+
+	private void bulkInsert(HttpExchange exchange) throws IOException {
+		Object json = readJson(exchange);
+		if (!(json instanceof List)) {
+			throw new ApiException(400, "Array JSON esperado");
+		}
+		Map<Integer, Department> departments = new HashMap<>();
+		for (Department dep : departmentService.findAll()) {
+			departments.put(dep.getId(), dep);
+		}
+
+		List<Seller> valid = new ArrayList<>();
+		List<Integer> validIndexes = new ArrayList<>();
+		StringBuilder failures = new StringBuilder();
+		List<?> items = (List<?>) json;
+		for (int i = 0; i < items.size(); i++) {
+			try {
+				Seller obj = EntityJson.toSeller(items.get(i));
+				obj.setId(null);
+				Department dep = departments.get(obj.getDepartment().getId());
+				if (dep == null) {
+					throw new IllegalArgumentException("Departamento nao encontrado: " + obj.getDepartment().getId());
+				}
+				obj.setDepartment(dep);
+				valid.add(obj);
+				validIndexes.add(i);
+			} catch (IllegalArgumentException e) {
+				appendFailure(failures, i, e.getMessage());
+			}
+		}
+
+		BatchResult<Seller> result = valid.isEmpty() ? new BatchResult<>() : sellerService.insertAll(valid);
+		for (BatchResult.Failure<Seller> failure : result.getFailures()) {
+			appendFailure(failures, validIndexes.get(failure.getIndex()), failure.getMessage());
+		}
+		StringBuilder ids = new StringBuilder();
+		for (Seller obj : valid) {
+			if (obj.getId() != null) {
+				ids.append(ids.length() == 0 ? "" : ",").append(obj.getId());
+			}
+		}
+		sendJson(exchange, 200, "{\"inserted\":" + result.getSucceeded() + ",\"ids\":[" + ids + "],\"failures\":["
+				+ failures + "]}");
+	}
+
+	private static void appendFailure(StringBuilder failures, int index, String message) {
+		if (failures.length() > 0) {
+			failures.append(',');
+		}
+		failures.append("{\"index\":").append(index).append(",\"message\":").append(Json.quote(message)).append('}');
+	}
+
+	private Seller find(Integer id) {
+		Seller obj = sellerService.findById(id);
+		if (obj == null) {
+			throw new ApiException(404, "Seller nao encontrado: " + id);
+		}
+		return obj;
+	}
+
+	private Department department(Integer id) {
+		Department dep = departmentService.findById(id);
+		if (dep == null) {
+			throw new ApiException(400, "Departamento nao encontrado: " + id);
+		}
+		return dep;
+	}
+
+	/*
+	 * O cursor de paginacao e a chave (Name, Id) do ultimo seller da pagina,
+	 * assim continua valido se esse seller for removido.
+	 */
+	private static String encodeCursor(Seller last) {
+		String key = last.getId() + ":" + last.getName();
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static Seller decodeCursor(String cursor) {
+		if (cursor == null || cursor.isEmpty()) {
+			return null;
+		}
+		try {
+			String key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			int sep = key.indexOf(':');
+			Seller after = new Seller();
+			after.setId(Integer.valueOf(key.substring(0, sep)));
+			after.setName(key.substring(sep + 1));
+			return after;
+		} catch (IllegalArgumentException | StringIndexOutOfBoundsException e) {
+			throw new ApiException(400, "Cursor invalido: " + cursor);
+		}
+	}
+}
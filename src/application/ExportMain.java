@@ -0,0 +1,40 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import db.DB;
+import db.DBException;
+import model.service.SellerExportService;
+import model.service.SellerExportService.Format;
+
+/**
+ * Exportacao de sellers sem interface grafica.
+ * <p>
+ * Uso: ExportMain &lt;arquivo&gt; [csv|json]
+ */
+public class ExportMain {
+
+	public static void main(String[] args) {
+		if (args.length < 1 || args.length > 2) {
+			System.err.println("Uso: ExportMain <arquivo> [csv|json]");
+			System.exit(2);
+		}
+		Path file = Paths.get(args[0]);
+		Format format = args.length > 1 ? Format.valueOf(args[1].toUpperCase()) : Format.forFile(file);
+
+		int status = 0;
+		try {
+			long rows = new SellerExportService().export(file, format, (count, rate, done) -> System.out
+					.printf("%s%d linhas (%.0f linhas/s)%n", done ? "Concluido: " : "", count, rate));
+			System.out.println("Arquivo gerado: " + file.toAbsolutePath() + " (" + rows + " linhas)");
+		} catch (IOException | DBException e) {
+			System.err.println("Erro na exportacao: " + e.getMessage());
+			status = 1;
+		} finally {
+			DB.closeConnection();
+		}
+		System.exit(status);
+	}
+}
@@ -0,0 +1,44 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import db.DB;
+import db.DBException;
+import model.service.ImportResult;
+import model.service.SellerImportService;
+
+/**
+ * Importacao de sellers sem interface grafica.
+ * <p>
+ * Uso: ImportMain &lt;arquivo.csv&gt; [relatorio-rejeitados.csv]
+ */
+public class ImportMain {
+
+	public static void main(String[] args) {
+		if (args.length < 1 || args.length > 2) {
+			System.err.println("Uso: ImportMain <arquivo.csv> [relatorio-rejeitados.csv]");
+			System.exit(2);
+		}
+		Path file = Paths.get(args[0]);
+		Path report = args.length > 1 ? Paths.get(args[1]) : Paths.get(args[0] + ".rejected.csv");
+
+		int status = 0;
+		try {
+			ImportResult result = new SellerImportService().importFile(file, report, (count, rate, done) -> System.out
+					.printf("%s%d linhas (%.0f linhas/s)%n", done ? "Concluido: " : "", count, rate));
+			System.out.println("Importadas: " + result.getImported() + ", rejeitadas: " + result.getRejected());
+			if (result.getRejectedReport() != null) {
+				System.out.println("Linhas rejeitadas em: " + result.getRejectedReport().toAbsolutePath());
+				status = 3;
+			}
+		} catch (IOException | DBException e) {
+			System.err.println("Erro na importacao: " + e.getMessage());
+			status = 1;
+		} finally {
+			DB.closeConnection();
+		}
+		System.exit(status);
+	}
+}
@@ -1,32 +1,104 @@
 package application;
 	
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+
+import db.DB;
+import db.SchemaMigrator;
+import gui.listeners.ChangeFeedBridge;
+import gui.util.Alerts;
+import gui.util.AsyncTasks;
+import gui.util.ViewLoader;
 import javafx.application.Application;
-import javafx.fxml.FXMLLoader;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.ScrollPane;
+import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import javafx.stage.StageStyle;
+import model.service.ServiceExecutor;
+import model.service.SyncService;
 
 
 public class Main extends Application {
 	
+	private static final Logger LOG = Logger.getLogger(Main.class.getName());
+	
+	private static final String[] PREWARMED_VIEWS = { "/gui/SellerList.fxml", "/gui/SellerForm.fxml",
+			"/gui/DepartmentList.fxml", "/gui/DepartmentForm.fxml", "/gui/SalaryReport.fxml" };
+	
 	private static Scene mainScene;
 	
 	@Override
 	public void start(Stage primaryStage) {
-		try {
-			FXMLLoader loader = new FXMLLoader(getClass().getResource("/gui/MainView.fxml"));
-			ScrollPane scrollPane = loader.load();
-			
-			scrollPane.setFitToHeight(true);
-			scrollPane.setFitToWidth(true);
-			
-			mainScene = new Scene(scrollPane);
-			primaryStage.setScene(mainScene);
-			primaryStage.setTitle("Sample JavaFx Application");
-			primaryStage.show();
-		} catch(Exception e) {
-			e.printStackTrace();
+		StartupTimings.mark("fx-start");
+		Stage splash = showSplash();
+		
+		// pool e migracoes em paralelo com a montagem da janela principal
+		CompletableFuture<Void> database = ServiceExecutor.run(() -> {
+			if (DB.isOfflineEnabled()) {
+				// o banco central e sincronizado depois, em segundo plano
+				SyncService.openReplica();
+			} else {
+				SchemaMigrator.migrate(DB.getDataSource());
+			}
+			StartupTimings.mark("database");
+		});
+		
+		Platform.runLater(() -> {
+			try {
+				ScrollPane scrollPane = ViewLoader.load("/gui/MainView.fxml").getRoot();
+				scrollPane.setFitToHeight(true);
+				scrollPane.setFitToWidth(true);
+				mainScene = new Scene(scrollPane);
+				StartupTimings.mark("main-view");
+			} catch(IOException e) {
+				splash.close();
+				Alerts.showAlert("IOException", "Error loading main view", e.getMessage(), AlertType.ERROR);
+				return;
+			}
+			AsyncTasks.whenDone(database, x -> showMainStage(primaryStage, splash, null),
+					e -> showMainStage(primaryStage, splash, e));
+		});
+	}
+	
+	private Stage showSplash() {
+		VBox box = new VBox(10, new ProgressIndicator(), new Label("Connecting to database..."));
+		box.setAlignment(Pos.CENTER);
+		box.setPadding(new Insets(20));
+		Stage splash = new Stage(StageStyle.UNDECORATED);
+		splash.setScene(new Scene(box, 260, 140));
+		splash.show();
+		StartupTimings.mark("splash");
+		return splash;
+	}
+	
+	private void showMainStage(Stage primaryStage, Stage splash, Throwable databaseError) {
+		primaryStage.setScene(mainScene);
+		primaryStage.setTitle("Sample JavaFx Application");
+		primaryStage.show();
+		splash.close();
+		StartupTimings.mark("first-frame");
+		LOG.info("Inicializacao: " + StartupTimings.report());
+		
+		if(databaseError != null) {
+			Alerts.showAlert("Database error", "Schema migration failed", databaseError.getMessage(), AlertType.ERROR);
+			return;
 		}
+		ChangeFeedBridge.start();
+		Platform.runLater(() -> ViewLoader.prewarm(PREWARMED_VIEWS));
+	}
+	
+	@Override
+	public void stop() {
+		ChangeFeedBridge.stop();
+		DB.closeConnection();
 	}
 	
 	public static Scene getMainScene() {
@@ -34,6 +106,7 @@ public class Main extends Application {
 	}
 	
 	public static void main(String[] args) {
+		StartupTimings.mark("main");
 		launch(args);
 	}
 }
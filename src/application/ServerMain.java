@@ -0,0 +1,65 @@
+package application;
+
+import java.io.IOException;
+
+import api.ApiServer;
+import db.DB;
+import db.DBException;
+import db.SchemaMigrator;
+import model.service.ChangeFeedService;
+import model.service.SyncService;
+
+/**
+ * API HTTP/JSON sem interface grafica, usando o mesmo pool e os mesmos
+ * services da aplicacao JavaFX.
+ * <p>
+ * Uso: ServerMain [porta] (padrao: server.port do db.properties)
+ */
+public class ServerMain {
+
+	public static void main(String[] args) {
+		if (args.length > 1) {
+			System.err.println("Uso: ServerMain [porta]");
+			System.exit(2);
+		}
+		try {
+			int port = args.length == 1 ? Integer.parseInt(args[0]) : DB.getIntProperty("server.port", 8080);
+
+			SyncService sync = null;
+			ChangeFeedService feed = null;
+			if (DB.isOfflineEnabled()) {
+				SyncService.openReplica();
+				sync = new SyncService();
+				sync.start();
+			} else {
+				SchemaMigrator.migrate(DB.getDataSource());
+				// mantem o cache de departamentos em dia com outros clientes
+				feed = new ChangeFeedService();
+				feed.start();
+			}
+
+			ApiServer server = new ApiServer(port);
+			server.start();
+			SyncService startedSync = sync;
+			ChangeFeedService startedFeed = feed;
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				server.stop(5);
+				if (startedSync != null) {
+					startedSync.stop();
+				}
+				if (startedFeed != null) {
+					startedFeed.stop();
+				}
+				DB.closeConnection();
+			}, "api-shutdown"));
+			System.out.println("API em http://localhost:" + server.getPort() + "/api/");
+		} catch (NumberFormatException e) {
+			System.err.println("Porta invalida: " + args[0]);
+			System.exit(2);
+		} catch (IOException | DBException e) {
+			System.err.println("Erro ao iniciar o servidor: " + e.getMessage());
+			DB.closeConnection();
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package application;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Marca o tempo (em ms desde o inicio da JVM) em que cada fase da
+ * inicializacao terminou.
+ */
+public class StartupTimings {
+
+	private static final long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+	private static final Map<String, Long> phases = new LinkedHashMap<>();
+
+	public static synchronized void mark(String phase) {
+		phases.putIfAbsent(phase, System.currentTimeMillis() - jvmStart);
+	}
+
+	public static synchronized Map<String, Long> getPhases() {
+		return new LinkedHashMap<>(phases);
+	}
+
+	public static synchronized String report() {
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, Long> entry : phases.entrySet()) {
+			if (sb.length() > 0) {
+				sb.append(", ");
+			}
+			sb.append(entry.getKey()).append(' ').append(entry.getValue()).append(" ms");
+		}
+		return sb.toString();
+	}
+}
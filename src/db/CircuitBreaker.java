@@ -0,0 +1,156 @@
+package db;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Circuit breaker das conexoes de um {@link ConnectionPool}. Depois de
+ * breaker.failureThreshold falhas de conexao seguidas o circuito abre e os
+ * pedidos de conexao falham na hora com {@link CircuitOpenException}, sem
+ * esperar timeouts de rede. Passado breaker.openMs um unico pedido de teste
+ * e liberado (meio aberto): se conectar o circuito fecha, senao abre de
+ * novo.
+ */
+public class CircuitBreaker {
+
+	private static final Logger LOG = Logger.getLogger(CircuitBreaker.class.getName());
+
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	public interface Listener {
+		void onStateChange(State from, State to);
+	}
+
+	private final String name;
+	private final int failureThreshold;
+	private final long openNanos;
+	private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+	private volatile State state = State.CLOSED;
+	private volatile int failures;
+	private long openedAt;
+	private boolean probing;
+
+	private long rejected;
+	private final Map<String, Long> transitions = new TreeMap<>();
+
+	public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+		this.name = name;
+		this.failureThreshold = Math.max(1, failureThreshold);
+		this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+	}
+
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Libera um pedido de conexao ou lanca {@link CircuitOpenException}. Todo
+	 * pedido liberado deve terminar em {@link #onSuccess()},
+	 * {@link #onFailure()} ou {@link #release()}.
+	 */
+	public void acquire() throws CircuitOpenException {
+		if (state == State.CLOSED) {
+			return;
+		}
+		State from;
+		synchronized (this) {
+			if (state == State.CLOSED) {
+				return;
+			}
+			if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+				from = moveTo(State.HALF_OPEN);
+				probing = true;
+			} else if (state == State.HALF_OPEN && !probing) {
+				probing = true;
+				return;
+			} else {
+				rejected++;
+				long remaining = Math.max(0, openNanos - (System.nanoTime() - openedAt));
+				throw new CircuitOpenException("Banco de dados indisponivel (" + name + "), nova tentativa em "
+						+ TimeUnit.NANOSECONDS.toSeconds(remaining + TimeUnit.SECONDS.toNanos(1) - 1) + " s");
+			}
+		}
+		notifyListeners(from, State.HALF_OPEN);
+	}
+
+	public void onSuccess() {
+		if (state == State.CLOSED && failures == 0) {
+			return;
+		}
+		State from;
+		synchronized (this) {
+			failures = 0;
+			probing = false;
+			if (state == State.CLOSED) {
+				return;
+			}
+			from = moveTo(State.CLOSED);
+		}
+		notifyListeners(from, State.CLOSED);
+	}
+
+	public void onFailure() {
+		State from;
+		synchronized (this) {
+			failures++;
+			probing = false;
+			if (state == State.OPEN || (state == State.CLOSED && failures < failureThreshold)) {
+				return;
+			}
+			from = moveTo(State.OPEN);
+			openedAt = System.nanoTime();
+		}
+		notifyListeners(from, State.OPEN);
+	}
+
+	/**
+	 * Termina um pedido que nao mostrou se o banco esta no ar (ex.: timeout
+	 * esperando conexao livre no pool).
+	 */
+	public synchronized void release() {
+		probing = false;
+	}
+
+	private State moveTo(State to) {
+		State from = state;
+		state = to;
+		transitions.merge(from + "->" + to, 1L, Long::sum);
+		return from;
+	}
+
+	private void notifyListeners(State from, State to) {
+		if (to == State.OPEN) {
+			LOG.warning("Circuito " + name + " aberto apos " + failureThreshold + " falhas de conexao");
+		} else {
+			LOG.info("Circuito " + name + ": " + from + " -> " + to);
+		}
+		for (Listener listener : listeners) {
+			listener.onStateChange(from, to);
+		}
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	/**
+	 * @return pedidos recusados com o circuito aberto
+	 */
+	public synchronized long getRejected() {
+		return rejected;
+	}
+
+	/**
+	 * @return quantas vezes cada transicao ("CLOSED->OPEN", ...) aconteceu
+	 */
+	public synchronized Map<String, Long> getTransitions() {
+		return new TreeMap<>(transitions);
+	}
+}
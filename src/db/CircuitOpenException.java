@@ -0,0 +1,15 @@
+package db;
+
+import java.sql.SQLNonTransientConnectionException;
+
+/**
+ * Pedido de conexao recusado porque o {@link CircuitBreaker} esta aberto.
+ */
+public class CircuitOpenException extends SQLNonTransientConnectionException {
+
+	private static final long serialVersionUID = 1L;
+
+	public CircuitOpenException(String reason) {
+		super(reason, "08001");
+	}
+}
@@ -0,0 +1,432 @@
+package db;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * Pool de conexoes limitado. Configurado pelas chaves "pool.*" do
+ * db.properties:
+ * <ul>
+ * <li>pool.minSize - conexoes mantidas abertas (padrao 1)</li>
+ * <li>pool.maxSize - limite de conexoes abertas (padrao 10)</li>
+ * <li>pool.acquireTimeoutMs - espera maxima por uma conexao livre (padrao 5000)</li>
+ * <li>pool.idleTimeoutMs - tempo ocioso ate a conexao ser fechada (padrao 600000)</li>
+ * <li>pool.validateOnBorrow - valida a conexao antes de entregar (padrao true)</li>
+ * <li>pool.validationTimeoutSec - timeout da validacao (padrao 2)</li>
+ * <li>pool.statementCacheSize - PreparedStatements cacheados por conexao, 0
+ * desativa (padrao 50)</li>
+ * <li>query.timeoutSec - timeout padrao dos statements, 0 desativa (padrao
+ * 30)</li>
+ * <li>breaker.failureThreshold / breaker.openMs - falhas de conexao seguidas
+ * que abrem o {@link CircuitBreaker} e quanto tempo ele fica aberto (padrao
+ * 5 e 10000)</li>
+ * </ul>
+ * Com mais de uma URL as conexoes novas usam a URL atual e, se ela falhar,
+ * as seguintes em ordem (failover). A URL que conectou passa a ser a atual.
+ */
+public class ConnectionPool implements DataSource {
+
+	private static final Logger LOG = Logger.getLogger(ConnectionPool.class.getName());
+
+	private final List<String> urls;
+	private final Properties driverProperties;
+	private final int minSize;
+	private final int maxSize;
+	private final long acquireTimeoutNanos;
+	private final long idleTimeoutMillis;
+	private final boolean validateOnBorrow;
+	private final int validationTimeoutSeconds;
+	private final int statementCacheSize;
+	private final int queryTimeoutSeconds;
+	private final CircuitBreaker breaker;
+	private volatile int activeUrl;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition available = lock.newCondition();
+	private final Deque<PooledConnection> idle = new ArrayDeque<>();
+	private int total;
+	private int waiting;
+	private boolean closed;
+
+	private final LatencyHistogram waitTime = new LatencyHistogram();
+	private final AtomicLong created = new AtomicLong();
+	private final AtomicLong destroyed = new AtomicLong();
+	private final AtomicLong timeouts = new AtomicLong();
+	private final AtomicLong validationFailures = new AtomicLong();
+	private final AtomicLong statementHits = new AtomicLong();
+	private final AtomicLong statementMisses = new AtomicLong();
+	private final AtomicLong statementEvictions = new AtomicLong();
+	private final AtomicLong failovers = new AtomicLong();
+
+	private final ScheduledExecutorService housekeeper;
+
+	public ConnectionPool(String url, Properties driverProperties, Properties poolProperties) {
+		this(Collections.singletonList(url), driverProperties, poolProperties);
+	}
+
+	public ConnectionPool(List<String> urls, Properties driverProperties, Properties poolProperties) {
+		this.urls = new ArrayList<>(urls);
+		this.driverProperties = driverProperties;
+		this.minSize = intProperty(poolProperties, "pool.minSize", 1);
+		this.maxSize = Math.max(1, intProperty(poolProperties, "pool.maxSize", 10));
+		this.acquireTimeoutNanos = TimeUnit.MILLISECONDS
+				.toNanos(intProperty(poolProperties, "pool.acquireTimeoutMs", 5000));
+		this.idleTimeoutMillis = intProperty(poolProperties, "pool.idleTimeoutMs", 600000);
+		this.validateOnBorrow = Boolean
+				.parseBoolean(poolProperties.getProperty("pool.validateOnBorrow", "true"));
+		this.validationTimeoutSeconds = intProperty(poolProperties, "pool.validationTimeoutSec", 2);
+		this.statementCacheSize = intProperty(poolProperties, "pool.statementCacheSize", 50);
+		this.queryTimeoutSeconds = intProperty(poolProperties, "query.timeoutSec", 30);
+		this.breaker = new CircuitBreaker(this.urls.get(0), intProperty(poolProperties, "breaker.failureThreshold", 5),
+				intProperty(poolProperties, "breaker.openMs", 10000));
+
+		housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "db-pool-housekeeper");
+			t.setDaemon(true);
+			return t;
+		});
+		long period = Math.max(1000, idleTimeoutMillis / 2);
+		housekeeper.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+		housekeeper.execute(this::fillToMinimum);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		breaker.acquire();
+		boolean acquired = false;
+		try {
+			Connection con = borrow();
+			acquired = true;
+			return con;
+		} finally {
+			if (acquired) {
+				breaker.onSuccess();
+			} else {
+				breaker.release();
+			}
+		}
+	}
+
+	private Connection borrow() throws SQLException {
+		long start = System.nanoTime();
+		long deadline = start + acquireTimeoutNanos;
+
+		while (true) {
+			PooledConnection pc = null;
+
+			lock.lock();
+			try {
+				while (!closed && idle.isEmpty() && total >= maxSize) {
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						timeouts.incrementAndGet();
+						throw new SQLTimeoutException("Timeout aguardando conexao livre no pool (maxSize=" + maxSize + ")");
+					}
+					waiting++;
+					try {
+						available.awaitNanos(remaining);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new SQLException("Interrompido aguardando conexao", e);
+					} finally {
+						waiting--;
+					}
+				}
+				if (closed) {
+					throw new SQLException("Pool de conexoes fechado");
+				}
+				pc = idle.pollFirst();
+				if (pc == null) {
+					total++;
+				}
+			} finally {
+				lock.unlock();
+			}
+
+			if (pc == null) {
+				pc = createConnection();
+			} else if (validateOnBorrow && !pc.isValid(validationTimeoutSeconds)) {
+				validationFailures.incrementAndGet();
+				destroy(pc);
+				continue;
+			}
+
+			long waited = System.nanoTime() - start;
+			waitTime.record(waited);
+			QueryMetrics.connectionAcquired(waited);
+			return pc.newHandle();
+		}
+	}
+
+	private PooledConnection createConnection() throws SQLException {
+		try {
+			Connection physical = connect();
+			created.incrementAndGet();
+			breaker.onSuccess();
+			return new PooledConnection(this, physical);
+		} catch (SQLException | RuntimeException e) {
+			if (e instanceof SQLException) {
+				breaker.onFailure();
+			}
+			lock.lock();
+			try {
+				total--;
+				available.signal();
+			} finally {
+				lock.unlock();
+			}
+			throw e;
+		}
+	}
+
+	private Connection connect() throws SQLException {
+		int first = activeUrl;
+		SQLException failure = null;
+		for (int i = 0; i < urls.size(); i++) {
+			int index = (first + i) % urls.size();
+			try {
+				Connection physical = DriverManager.getConnection(urls.get(index), driverProperties);
+				if (index != activeUrl) {
+					LOG.warning("Failover do banco de dados: " + urls.get(activeUrl) + " -> " + urls.get(index));
+					failovers.incrementAndGet();
+					activeUrl = index;
+				}
+				return physical;
+			} catch (SQLException e) {
+				if (failure == null) {
+					failure = e;
+				} else {
+					failure.setNextException(e);
+				}
+			}
+		}
+		throw failure;
+	}
+
+	/**
+	 * Erro de conexao durante o uso (SQLState 08...), contado pelo circuit
+	 * breaker.
+	 */
+	void connectionError() {
+		breaker.onFailure();
+	}
+
+	int getQueryTimeoutSeconds() {
+		return queryTimeoutSeconds;
+	}
+
+	public CircuitBreaker getCircuitBreaker() {
+		return breaker;
+	}
+
+	void release(PooledConnection pc) {
+		boolean reusable = !pc.isBroken();
+		if (reusable) {
+			try {
+				Connection physical = pc.getPhysical();
+				if (physical.isClosed()) {
+					reusable = false;
+				} else if (!physical.getAutoCommit()) {
+					physical.rollback();
+					physical.setAutoCommit(true);
+				}
+			} catch (SQLException e) {
+				reusable = false;
+			}
+		}
+
+		if (!reusable) {
+			destroy(pc);
+			return;
+		}
+
+		pc.touch();
+		lock.lock();
+		try {
+			if (!closed) {
+				idle.addFirst(pc);
+				available.signal();
+				return;
+			}
+		} finally {
+			lock.unlock();
+		}
+		destroy(pc);
+	}
+
+	private void destroy(PooledConnection pc) {
+		pc.closePhysical();
+		destroyed.incrementAndGet();
+		lock.lock();
+		try {
+			total--;
+			available.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void evictIdle() {
+		List<PooledConnection> expired = new ArrayList<>();
+		long limit = System.currentTimeMillis() - idleTimeoutMillis;
+
+		lock.lock();
+		try {
+			Iterator<PooledConnection> it = idle.descendingIterator();
+			while (it.hasNext() && total - expired.size() > minSize) {
+				PooledConnection pc = it.next();
+				if (pc.getLastUsed() < limit) {
+					it.remove();
+					expired.add(pc);
+				}
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		for (PooledConnection pc : expired) {
+			destroy(pc);
+		}
+		fillToMinimum();
+	}
+
+	private void fillToMinimum() {
+		while (true) {
+			lock.lock();
+			try {
+				if (closed || total >= minSize) {
+					return;
+				}
+				total++;
+			} finally {
+				lock.unlock();
+			}
+			try {
+				release(createConnection());
+			} catch (SQLException | RuntimeException e) {
+				// banco indisponivel: a proxima requisicao tenta novamente
+				return;
+			}
+		}
+	}
+
+	int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	void statementHit() {
+		statementHits.incrementAndGet();
+	}
+
+	void statementMiss() {
+		statementMisses.incrementAndGet();
+	}
+
+	void statementEvicted() {
+		statementEvictions.incrementAndGet();
+	}
+
+	public PoolMetrics getMetrics() {
+		lock.lock();
+		try {
+			return new PoolMetrics(total - idle.size(), idle.size(), waiting, maxSize, created.get(),
+					destroyed.get(), timeouts.get(), validationFailures.get(), waitTime, statementHits.get(),
+					statementMisses.get(), statementEvictions.get(), urls.get(activeUrl), failovers.get(),
+					breaker.getState(), breaker.getRejected(), breaker.getTransitions());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public void close() {
+		List<PooledConnection> toClose;
+		lock.lock();
+		try {
+			closed = true;
+			toClose = new ArrayList<>(idle);
+			idle.clear();
+			available.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		housekeeper.shutdownNow();
+		for (PooledConnection pc : toClose) {
+			destroy(pc);
+		}
+	}
+
+	private static int intProperty(Properties props, String key, int defaultValue) {
+		String value = props.getProperty(key);
+		if (value == null || value.trim().isEmpty()) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			throw new DBException("Valor invalido para " + key + ": " + value);
+		}
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		throw new SQLFeatureNotSupportedException("Use getConnection()");
+	}
+
+	@Override
+	public PrintWriter getLogWriter() throws SQLException {
+		return DriverManager.getLogWriter();
+	}
+
+	@Override
+	public void setLogWriter(PrintWriter out) throws SQLException {
+		DriverManager.setLogWriter(out);
+	}
+
+	@Override
+	public void setLoginTimeout(int seconds) throws SQLException {
+		DriverManager.setLoginTimeout(seconds);
+	}
+
+	@Override
+	public int getLoginTimeout() throws SQLException {
+		return DriverManager.getLoginTimeout();
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		throw new SQLFeatureNotSupportedException();
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		throw new SQLException("Nao e um wrapper para " + iface.getName());
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return iface.isInstance(this);
+	}
+}
@@ -3,39 +3,263 @@ package db;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.sql.DataSource;
 
 public class DB {
 
-	private static Connection con = null;
+	private static ConnectionPool pool = null;
 
-	public static Connection getConnection() {
-		if (con == null) {
-			try {
-				Properties pro = loadProperties();
-				String url = pro.getProperty("dburl");
+	private static TransactionalDataSource dataSource = null;
 
-				con = DriverManager.getConnection(url, pro);
-			} catch (SQLException e) {
-				throw new DBException(e.getMessage());
+	private static ConnectionPool localPool = null;
+
+	private static TransactionalDataSource localDataSource = null;
+
+	private static RoutingDataSource routingDataSource = null;
+
+	private static Properties properties = null;
+
+	private static RetryPolicy retryPolicy = null;
+
+	private static final List<CircuitBreaker.Listener> breakerListeners = new CopyOnWriteArrayList<>();
+
+	/**
+	 * DataSource do banco principal. Alem de dburl, URLs de failover podem
+	 * ser dadas em dburl.failover.1, dburl.failover.2, ... (tentadas nessa
+	 * ordem quando a atual nao conecta).
+	 */
+	public static synchronized TransactionalDataSource getDataSource() {
+		if (pool == null) {
+			Properties pro = getProperties();
+			List<String> urls = new ArrayList<>();
+			urls.add(pro.getProperty("dburl"));
+			for (int i = 1; pro.getProperty("dburl.failover." + i) != null; i++) {
+				urls.add(pro.getProperty("dburl.failover." + i).trim());
+			}
+
+			QueryMetrics.configure(pro);
+			pool = new ConnectionPool(urls, driverProperties(pro), pro);
+			for (CircuitBreaker.Listener listener : breakerListeners) {
+				pool.getCircuitBreaker().addListener(listener);
+			}
+			dataSource = new TransactionalDataSource(pool);
+		}
+		return dataSource;
+	}
+
+	/**
+	 * Registra um listener das transicoes do circuit breaker do banco
+	 * principal, mantido quando o pool e recriado.
+	 */
+	public static synchronized void addCircuitBreakerListener(CircuitBreaker.Listener listener) {
+		breakerListeners.add(listener);
+		if (pool != null) {
+			pool.getCircuitBreaker().addListener(listener);
+		}
+	}
+
+	/**
+	 * Politica de novas tentativas das leituras (chaves retry.*).
+	 */
+	public static synchronized RetryPolicy getRetryPolicy() {
+		if (retryPolicy == null) {
+			retryPolicy = new RetryPolicy(getIntProperty("retry.maxAttempts", 3),
+					getIntProperty("retry.baseDelayMs", 100), getIntProperty("retry.maxDelayMs", 2000));
+		}
+		return retryPolicy;
+	}
+
+	/**
+	 * Replica local embarcada (chaves "offline.*"), ou null se o modo offline
+	 * esta desativado:
+	 * <ul>
+	 * <li>offline.enabled - DAOs leem e gravam na replica (padrao false)</li>
+	 * <li>offline.url - URL JDBC da replica (padrao H2 em ./data/offline)</li>
+	 * <li>offline.user / offline.password - credenciais da replica</li>
+	 * <li>offline.syncMs - intervalo da sincronizacao (padrao 5000)</li>
+	 * </ul>
+	 */
+	public static synchronized TransactionalDataSource getLocalDataSource() {
+		if (!isOfflineEnabled()) {
+			return null;
+		}
+		if (localPool == null) {
+			Properties pro = getProperties();
+			QueryMetrics.configure(pro);
+			Properties driverProps = new Properties();
+			driverProps.setProperty("user", pro.getProperty("offline.user", "sa"));
+			driverProps.setProperty("password", pro.getProperty("offline.password", ""));
+			localPool = new ConnectionPool(
+					pro.getProperty("offline.url", "jdbc:h2:file:./data/offline;MODE=MySQL"), driverProps, pro);
+			localDataSource = new TransactionalDataSource(localPool);
+		}
+		return localDataSource;
+	}
+
+	public static boolean isOfflineEnabled() {
+		return getBooleanProperty("offline.enabled", false);
+	}
+
+	/**
+	 * DataSource dos DAOs e unidades de trabalho da aplicacao: a replica
+	 * local no modo offline, senao o banco central.
+	 */
+	public static TransactionalDataSource getWorkingDataSource() {
+		return isOfflineEnabled() ? getLocalDataSource() : getDataSource();
+	}
+
+	/**
+	 * DataSource dos DAOs de seller e department: como
+	 * {@link #getWorkingDataSource()}, mas com as leituras roteadas para as
+	 * replicas de leitura quando configuradas (fora do modo offline):
+	 * <ul>
+	 * <li>replica.urls - URLs JDBC das replicas, separadas por virgula</li>
+	 * <li>replica.user / replica.password - credenciais (padrao as do
+	 * principal)</li>
+	 * <li>replica.maxLagMs - atraso maximo aceito (padrao 2000)</li>
+	 * <li>replica.checkMs - intervalo da verificacao de atraso (padrao 1000)</li>
+	 * <li>replica.retryMs - tempo fora de uso apos uma falha (padrao 30000)</li>
+	 * </ul>
+	 */
+	public static synchronized DataSource getRoutedDataSource() {
+		if (!isReadRoutingEnabled()) {
+			return getWorkingDataSource();
+		}
+		if (routingDataSource == null) {
+			Properties pro = getProperties();
+			Properties driverProps = driverProperties(pro);
+			if (pro.getProperty("replica.user") != null) {
+				driverProps.setProperty("user", pro.getProperty("replica.user"));
+				driverProps.setProperty("password", pro.getProperty("replica.password", ""));
+			}
+			routingDataSource = new RoutingDataSource(getDataSource(), getReplicaUrls(), driverProps, pro);
+		}
+		return routingDataSource;
+	}
+
+	public static boolean isReadRoutingEnabled() {
+		return !isOfflineEnabled() && !getReplicaUrls().isEmpty();
+	}
+
+	private static List<String> getReplicaUrls() {
+		List<String> urls = new ArrayList<>();
+		for (String url : getProperties().getProperty("replica.urls", "").split(",")) {
+			if (!url.trim().isEmpty()) {
+				urls.add(url.trim());
 			}
 		}
-		return con;
+		return urls;
 	}
 
-	public static void closeConnection() {
+	/**
+	 * Avisa o roteamento de leituras que uma transacao foi confirmada, para
+	 * que as leituras seguintes vejam a escrita.
+	 */
+	public static void writeCommitted() {
+		RoutingDataSource routing;
+		synchronized (DB.class) {
+			routing = routingDataSource;
+		}
+		if (routing != null) {
+			routing.writeCommitted();
+		}
+	}
+
+	public static synchronized List<ReplicaStatus> getReplicaStatus() {
+		return routingDataSource == null ? Collections.<ReplicaStatus>emptyList() : routingDataSource.getStatus();
+	}
+
+	public static Connection getConnection() {
+		try {
+			return getDataSource().getConnection();
+		} catch (SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		}
+	}
+
+	public static void closeConnection(Connection con) {
 		if (con != null) {
 			try {
 				con.close();
 			} catch (SQLException e) {
-				throw new DBException(e.getMessage());
+				throw new DBException(e.getMessage(), e);
 			}
 		}
+	}
 
+	public static synchronized void closeConnection() {
+		if (routingDataSource != null) {
+			routingDataSource.close();
+			routingDataSource = null;
+		}
+		if (pool != null) {
+			pool.close();
+			pool = null;
+			dataSource = null;
+		}
+		if (localPool != null) {
+			localPool.close();
+			localPool = null;
+			localDataSource = null;
+		}
+	}
+
+	public static synchronized PoolMetrics getPoolMetrics() {
+		return pool == null ? null : pool.getMetrics();
+	}
+
+	/**
+	 * Substitui as configuracoes lidas do db.properties (ex.: benchmarks e
+	 * testes com banco embarcado). Fecha o pool atual, se houver.
+	 */
+	public static synchronized void configure(Properties props) {
+		closeConnection();
+		properties = props;
+		retryPolicy = null;
+	}
+
+	public static synchronized Properties getProperties() {
+		if (properties == null) {
+			properties = loadProperties();
+		}
+		return properties;
+	}
+
+	public static int getIntProperty(String key, int defaultValue) {
+		String value = getProperties().getProperty(key);
+		if (value == null || value.trim().isEmpty()) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			throw new DBException("Valor invalido para " + key + ": " + value);
+		}
+	}
+
+	public static boolean getBooleanProperty(String key, boolean defaultValue) {
+		String value = getProperties().getProperty(key);
+		if (value == null || value.trim().isEmpty()) {
+			return defaultValue;
+		}
+		return Boolean.parseBoolean(value.trim());
+	}
+
+	public static int getFetchSize() {
+		return getIntProperty("query.fetchSize", 500);
+	}
+
+	public static int getBatchSize() {
+		return getIntProperty("batch.size", 1000);
 	}
 
 	private static Properties loadProperties() {
@@ -44,26 +268,40 @@ public class DB {
 			props.load(fs);
 			return props;
 		} catch (IOException e) {
-			throw new DBException(e.getMessage());
+			throw new DBException(e.getMessage(), e);
 		}
 	}
 
+	/*
+	 * Chaves com ponto (pool.*, etc.) sao configuracoes da aplicacao; as demais
+	 * (user, password, useSSL...) sao repassadas ao driver JDBC.
+	 */
+	private static Properties driverProperties(Properties props) {
+		Properties driverProps = new Properties();
+		for (String key : props.stringPropertyNames()) {
+			if (!key.contains(".") && !key.equals("dburl")) {
+				driverProps.setProperty(key, props.getProperty(key));
+			}
+		}
+		return driverProps;
+	}
+
 	public static void closeStatement(Statement st) {
 		if (st != null) {
 			try {
 				st.close();
 			} catch (SQLException e) {
-				throw new DBException(e.getMessage());
+				throw new DBException(e.getMessage(), e);
 			}
 		}
 	}
-	
+
 	public static void closeResultSet(ResultSet rs) {
 		if (rs != null) {
 			try {
 				rs.close();
 			} catch (SQLException e) {
-				throw new DBException(e.getMessage());
+				throw new DBException(e.getMessage(), e);
 			}
 		}
 	}
@@ -0,0 +1,34 @@
+package db;
+
+/**
+ * Lancada quando um UPDATE com controle de versao nao encontra a versao
+ * esperada: o registro foi alterado ou removido por outro cliente.
+ */
+public class DbConflictException extends DBException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final String table;
+	private final Integer id;
+	private final Integer expectedVersion;
+
+	public DbConflictException(String table, Integer id, Integer expectedVersion) {
+		super("Registro " + table + " Id=" + id + " foi alterado ou removido por outro usuario (versao esperada "
+				+ expectedVersion + ")");
+		this.table = table;
+		this.id = id;
+		this.expectedVersion = expectedVersion;
+	}
+
+	public String getTable() {
+		return table;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public Integer getExpectedVersion() {
+		return expectedVersion;
+	}
+}
@@ -8,4 +8,8 @@ public class DbIntegrityException extends RuntimeException {
 		super(msg);
 	}
 
+	public DbIntegrityException(String msg, Throwable cause) {
+		super(msg, cause);
+	}
+
 }
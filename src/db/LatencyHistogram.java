@@ -0,0 +1,87 @@
+package db;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma de latencias com buckets fixos (em milissegundos).
+ * Seguro para uso concorrente e sem alocacao por amostra.
+ */
+public class LatencyHistogram {
+
+	private static final long[] BOUNDS_MS = { 1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+
+	private final AtomicLongArray counts = new AtomicLongArray(BOUNDS_MS.length + 1);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong totalNanos = new AtomicLong();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	public void record(long nanos) {
+		long ms = TimeUnit.NANOSECONDS.toMillis(nanos);
+		int i = 0;
+		while (i < BOUNDS_MS.length && ms >= BOUNDS_MS[i]) {
+			i++;
+		}
+		counts.incrementAndGet(i);
+		count.incrementAndGet();
+		totalNanos.addAndGet(nanos);
+
+		long max = maxNanos.get();
+		while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+			max = maxNanos.get();
+		}
+	}
+
+	public long getCount() {
+		return count.get();
+	}
+
+	public double getMeanMillis() {
+		long n = count.get();
+		return n == 0 ? 0.0 : totalNanos.get() / (double) n / 1_000_000.0;
+	}
+
+	public double getMaxMillis() {
+		return maxNanos.get() / 1_000_000.0;
+	}
+
+	/**
+	 * Retorna o limite superior (em ms) do bucket que contem o percentil
+	 * informado (0 a 100). Para o ultimo bucket retorna o maximo observado.
+	 */
+	public double getPercentileMillis(double percentile) {
+		long n = count.get();
+		if (n == 0) {
+			return 0.0;
+		}
+		long target = (long) Math.ceil(n * percentile / 100.0);
+		long seen = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			seen += counts.get(i);
+			if (seen >= target) {
+				return i < BOUNDS_MS.length ? Math.min(BOUNDS_MS[i], getMaxMillis()) : getMaxMillis();
+			}
+		}
+		return getMaxMillis();
+	}
+
+	public long[] getBucketCounts() {
+		long[] result = new long[counts.length()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = counts.get(i);
+		}
+		return result;
+	}
+
+	public static long[] getBucketBoundsMillis() {
+		return BOUNDS_MS.clone();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count=%d, mean=%.2fms, p50=%.0fms, p95=%.0fms, p99=%.0fms, max=%.2fms", getCount(),
+				getMeanMillis(), getPercentileMillis(50), getPercentileMillis(95), getPercentileMillis(99),
+				getMaxMillis());
+	}
+}
@@ -0,0 +1,14 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+public interface Migration {
+
+	int getVersion();
+
+	String getDescription();
+
+	void apply(Connection con) throws SQLException;
+
+}
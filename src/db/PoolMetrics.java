@@ -0,0 +1,133 @@
+package db;
+
+import java.util.Map;
+
+public class PoolMetrics {
+
+	private final int active;
+	private final int idle;
+	private final int waiting;
+	private final int maxSize;
+	private final long created;
+	private final long destroyed;
+	private final long timeouts;
+	private final long validationFailures;
+	private final LatencyHistogram waitTime;
+	private final long statementCacheHits;
+	private final long statementCacheMisses;
+	private final long statementCacheEvictions;
+	private final String activeUrl;
+	private final long failovers;
+	private final CircuitBreaker.State breakerState;
+	private final long breakerRejected;
+	private final Map<String, Long> breakerTransitions;
+
+	PoolMetrics(int active, int idle, int waiting, int maxSize, long created, long destroyed, long timeouts,
+			long validationFailures, LatencyHistogram waitTime, long statementCacheHits, long statementCacheMisses,
+			long statementCacheEvictions, String activeUrl, long failovers, CircuitBreaker.State breakerState,
+			long breakerRejected, Map<String, Long> breakerTransitions) {
+		this.active = active;
+		this.idle = idle;
+		this.waiting = waiting;
+		this.maxSize = maxSize;
+		this.created = created;
+		this.destroyed = destroyed;
+		this.timeouts = timeouts;
+		this.validationFailures = validationFailures;
+		this.waitTime = waitTime;
+		this.statementCacheHits = statementCacheHits;
+		this.statementCacheMisses = statementCacheMisses;
+		this.statementCacheEvictions = statementCacheEvictions;
+		this.activeUrl = activeUrl;
+		this.failovers = failovers;
+		this.breakerState = breakerState;
+		this.breakerRejected = breakerRejected;
+		this.breakerTransitions = breakerTransitions;
+	}
+
+	public int getActive() {
+		return active;
+	}
+
+	public int getIdle() {
+		return idle;
+	}
+
+	public int getWaiting() {
+		return waiting;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public long getCreated() {
+		return created;
+	}
+
+	public long getDestroyed() {
+		return destroyed;
+	}
+
+	public long getTimeouts() {
+		return timeouts;
+	}
+
+	public long getValidationFailures() {
+		return validationFailures;
+	}
+
+	public LatencyHistogram getWaitTime() {
+		return waitTime;
+	}
+
+	public long getStatementCacheHits() {
+		return statementCacheHits;
+	}
+
+	public long getStatementCacheMisses() {
+		return statementCacheMisses;
+	}
+
+	public long getStatementCacheEvictions() {
+		return statementCacheEvictions;
+	}
+
+	/**
+	 * @return URL usada pelas conexoes novas (muda no failover)
+	 */
+	public String getActiveUrl() {
+		return activeUrl;
+	}
+
+	public long getFailovers() {
+		return failovers;
+	}
+
+	public CircuitBreaker.State getBreakerState() {
+		return breakerState;
+	}
+
+	public long getBreakerRejected() {
+		return breakerRejected;
+	}
+
+	/**
+	 * @return contagem de cada transicao do circuit breaker ("CLOSED->OPEN",
+	 *         ...)
+	 */
+	public Map<String, Long> getBreakerTransitions() {
+		return breakerTransitions;
+	}
+
+	@Override
+	public String toString() {
+		return "PoolMetrics [active=" + active + ", idle=" + idle + ", waiting=" + waiting + ", maxSize=" + maxSize
+				+ ", created=" + created + ", destroyed=" + destroyed + ", timeouts=" + timeouts
+				+ ", validationFailures=" + validationFailures + ", statementCacheHits=" + statementCacheHits
+				+ ", statementCacheMisses=" + statementCacheMisses + ", statementCacheEvictions="
+				+ statementCacheEvictions + ", activeUrl=" + activeUrl + ", failovers=" + failovers
+				+ ", breakerState=" + breakerState + ", breakerRejected=" + breakerRejected
+				+ ", breakerTransitions=" + breakerTransitions + ", waitTime={" + waitTime + "}]";
+	}
+}
@@ -0,0 +1,220 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conexao fisica mantida pelo {@link ConnectionPool}. Cada emprestimo recebe
+ * um proxy proprio cujo close() devolve a conexao ao pool. Os
+ * PreparedStatements sao reaproveitados pelo {@link StatementCache}.
+ * <p>
+ * Statements e ResultSets tambem sao entregues por proxies: um erro de
+ * conexao (SQLState 08) no execute ou no next marca a conexao como quebrada
+ * e conta como falha no circuit breaker, como nos metodos da Connection.
+ */
+class PooledConnection {
+
+	private final ConnectionPool pool;
+	private final Connection physical;
+	private final StatementCache statementCache;
+	private volatile long lastUsed = System.currentTimeMillis();
+	private volatile boolean broken;
+
+	PooledConnection(ConnectionPool pool, Connection physical) {
+		this.pool = pool;
+		this.physical = physical;
+		this.statementCache = new StatementCache(pool.getStatementCacheSize(), pool);
+	}
+
+	Connection getPhysical() {
+		return physical;
+	}
+
+	long getLastUsed() {
+		return lastUsed;
+	}
+
+	boolean isBroken() {
+		return broken;
+	}
+
+	boolean isValid(int timeoutSeconds) {
+		try {
+			return !physical.isClosed() && physical.isValid(timeoutSeconds);
+		} catch (SQLException e) {
+			return false;
+		}
+	}
+
+	void touch() {
+		lastUsed = System.currentTimeMillis();
+	}
+
+	void closePhysical() {
+		statementCache.closeAll();
+		try {
+			physical.close();
+		} catch (SQLException e) {
+			// conexao ja estava quebrada, nada a fazer
+		}
+	}
+
+	Connection newHandle() {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new Handle());
+	}
+
+	private class Handle implements InvocationHandler {
+
+		private boolean closed;
+		private QueryCancellation cancellation;
+		private List<Statement> statements;
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if ("close".equals(name)) {
+				if (!closed) {
+					closed = true;
+					if (cancellation != null) {
+						// o statement pode ir para outra tarefa junto com a conexao
+						cancellation.unregister(statements);
+					}
+					pool.release(PooledConnection.this);
+				}
+				return null;
+			}
+			if ("isClosed".equals(name)) {
+				return closed || physical.isClosed();
+			}
+			if ("equals".equals(name)) {
+				return proxy == args[0];
+			}
+			if ("hashCode".equals(name)) {
+				return System.identityHashCode(proxy);
+			}
+			if ("toString".equals(name)) {
+				return "PooledConnection[" + physical + "]";
+			}
+			if (closed) {
+				throw new SQLException("Conexao ja foi devolvida ao pool");
+			}
+			if (name.startsWith("prepare") || "createStatement".equals(name)) {
+				QueryCancellation.checkNotCancelled();
+			}
+			try {
+				String key = statementCache.isEnabled() ? StatementCache.keyFor(method, args) : null;
+				Object result;
+				if (key != null) {
+					PreparedStatement cached = statementCache.borrow(key);
+					result = cached != null ? cached
+							: statementCache.put(key, (PreparedStatement) method.invoke(physical, args));
+				} else {
+					result = method.invoke(physical, args);
+				}
+				if (result instanceof Statement) {
+					((Statement) result).setQueryTimeout(QueryTimeout.resolve(pool.getQueryTimeoutSeconds()));
+					track((Statement) result);
+				}
+				if (result instanceof Statement) {
+					result = wrap((Statement) result);
+				}
+				if ("prepareStatement".equals(name) && QueryMetrics.isTracingStatements()) {
+					return TracedStatement.wrap((PreparedStatement) result, (String) args[0]);
+				}
+				return result;
+			} catch (InvocationTargetException e) {
+				throw failed(e.getCause());
+			}
+		}
+
+		private void track(Statement st) throws SQLException {
+			QueryCancellation current = QueryCancellation.current();
+			if (current == null) {
+				return;
+			}
+			if (cancellation != current) {
+				if (cancellation != null) {
+					cancellation.unregister(statements);
+				}
+				cancellation = current;
+				statements = new ArrayList<>();
+			}
+			statements.add(st);
+			if (!current.register(st)) {
+				// cancelada entre a verificacao e a criacao do statement
+				st.close();
+				QueryCancellation.checkNotCancelled();
+			}
+		}
+	}
+
+	private Throwable failed(Throwable cause) {
+		if (cause instanceof SQLException && isConnectionError((SQLException) cause)) {
+			broken = true;
+			pool.connectionError();
+		}
+		return cause;
+	}
+
+	private Statement wrap(Statement st) {
+		Class<?> type = st instanceof CallableStatement ? CallableStatement.class
+				: st instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+		return (Statement) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { type },
+				new Delegate(st, null));
+	}
+
+	/**
+	 * Repassa as chamadas ao Statement ou ResultSet do driver, verificando os
+	 * erros de conexao.
+	 */
+	private class Delegate implements InvocationHandler {
+
+		private final Object target;
+		private final Statement owner;
+
+		Delegate(Object target, Statement owner) {
+			this.target = target;
+			this.owner = owner;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if ("equals".equals(name)) {
+				return proxy == args[0];
+			}
+			if ("hashCode".equals(name)) {
+				return System.identityHashCode(proxy);
+			}
+			if ("getStatement".equals(name) && owner != null) {
+				return owner;
+			}
+			try {
+				Object result = method.invoke(target, args);
+				if (result instanceof ResultSet && target instanceof Statement) {
+					return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+							new Class<?>[] { ResultSet.class }, new Delegate(result, (Statement) proxy));
+				}
+				return result;
+			} catch (InvocationTargetException e) {
+				throw failed(e.getCause());
+			}
+		}
+	}
+
+	static boolean isConnectionError(SQLException e) {
+		String state = e.getSQLState();
+		return state != null && state.startsWith("08");
+	}
+}
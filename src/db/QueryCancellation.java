@@ -0,0 +1,100 @@
+package db;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Permite cancelar as consultas de uma tarefa em andamento. A tarefa chama
+ * {@link #bind()} na thread que vai executa-la; enquanto estiver ligada, os
+ * statements criados pelas conexoes do pool sao registrados e
+ * {@link #cancel()} chama Statement.cancel() nos que ainda estao abertos (o
+ * banco interrompe a consulta e a conexao volta ao pool). Depois do cancelamento
+ * a tarefa nao consegue criar novos statements.
+ */
+public class QueryCancellation {
+
+	private static final ThreadLocal<QueryCancellation> current = new ThreadLocal<>();
+
+	private final Set<Statement> statements = Collections.newSetFromMap(new IdentityHashMap<>());
+	private boolean cancelled;
+	private boolean ended;
+
+	public void bind() {
+		current.set(this);
+	}
+
+	/**
+	 * Desliga da thread; cancelamentos posteriores nao tem efeito.
+	 */
+	public void end() {
+		current.remove();
+		synchronized (this) {
+			ended = true;
+			statements.clear();
+		}
+	}
+
+	public void cancel() {
+		Statement[] running;
+		synchronized (this) {
+			if (cancelled || ended) {
+				return;
+			}
+			cancelled = true;
+			running = statements.toArray(new Statement[0]);
+		}
+		for (Statement st : running) {
+			try {
+				st.cancel();
+			} catch (SQLException e) {
+				// statement ja fechado ou driver sem suporte: a consulta termina sozinha
+			}
+		}
+	}
+
+	public synchronized boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * @return true se a tarefa da thread atual foi cancelada
+	 */
+	public static boolean isCurrentCancelled() {
+		QueryCancellation cancellation = current.get();
+		return cancellation != null && cancellation.isCancelled();
+	}
+
+	static QueryCancellation current() {
+		return current.get();
+	}
+
+	static void checkNotCancelled() throws SQLException {
+		if (isCurrentCancelled()) {
+			throw new SQLException("Consulta cancelada", "70100");
+		}
+	}
+
+	/**
+	 * @return false se a tarefa ja foi cancelada; o statement nao deve ser
+	 *         executado
+	 */
+	synchronized boolean register(Statement st) {
+		if (cancelled) {
+			return false;
+		}
+		if (!ended) {
+			statements.add(st);
+		}
+		return true;
+	}
+
+	synchronized void unregister(Collection<Statement> list) {
+		for (Statement st : list) {
+			statements.remove(st);
+		}
+	}
+}
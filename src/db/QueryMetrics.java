@@ -0,0 +1,232 @@
+package db;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Metricas por consulta (latencia, linhas, espera por conexao e erros) e
+ * log de consultas lentas. Configurado pelas chaves "metrics.*" do
+ * db.properties:
+ * <ul>
+ * <li>metrics.enabled - instrumenta os DAOs (padrao true)</li>
+ * <li>metrics.slowQueryMs - statements a partir deste tempo vao para o log
+ * db.slowquery com os parametros, 0 desativa (padrao 500)</li>
+ * <li>metrics.jmx - publica o MXBean db:type=QueryMetrics (padrao true)</li>
+ * </ul>
+ */
+public class QueryMetrics {
+
+	private static final Logger SLOW_LOG = Logger.getLogger("db.slowquery");
+	private static final Logger LOG = Logger.getLogger(QueryMetrics.class.getName());
+
+	private static final String OBJECT_NAME = "db:type=QueryMetrics";
+	private static final int MAX_PARAMETER_LENGTH = 100;
+
+	private static final ConcurrentMap<String, QueryStats> stats = new ConcurrentHashMap<>();
+	private static final ThreadLocal<Scope> current = new ThreadLocal<>();
+
+	private static volatile long slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(500);
+
+	/**
+	 * Uma chamada de DAO em andamento na thread atual.
+	 */
+	public static final class Scope {
+
+		private final QueryStats stats;
+		private final Scope parent;
+		private final long start = System.nanoTime();
+		private long waitNanos;
+
+		private Scope(QueryStats stats, Scope parent) {
+			this.stats = stats;
+			this.parent = parent;
+		}
+
+		public void end(long rows, boolean failed) {
+			stats.record(System.nanoTime() - start, waitNanos, rows, failed);
+			if (parent == null) {
+				current.remove();
+			} else {
+				current.set(parent);
+			}
+		}
+	}
+
+	static void configure(Properties props) {
+		String value = props.getProperty("metrics.slowQueryMs", "500").trim();
+		try {
+			setSlowQueryThresholdMs(Long.parseLong(value));
+		} catch (NumberFormatException e) {
+			throw new DBException("Valor invalido para metrics.slowQueryMs: " + value);
+		}
+		if (Boolean.parseBoolean(props.getProperty("metrics.jmx", "true"))) {
+			registerMBean();
+		}
+	}
+
+	public static Scope begin(String name) {
+		QueryStats queryStats = stats.computeIfAbsent(name, QueryStats::new);
+		Scope scope = new Scope(queryStats, current.get());
+		current.set(scope);
+		return scope;
+	}
+
+	static void connectionAcquired(long waitNanos) {
+		Scope scope = current.get();
+		if (scope != null) {
+			scope.waitNanos += waitNanos;
+		}
+	}
+
+	static boolean isTracingStatements() {
+		return slowQueryNanos > 0;
+	}
+
+	static void statementExecuted(String sql, List<Object> parameters, int batchSize, long nanos) {
+		long threshold = slowQueryNanos;
+		if (threshold <= 0 || nanos < threshold) {
+			return;
+		}
+		Scope scope = current.get();
+		String query = scope == null ? "?" : scope.stats.getName();
+		if (scope != null) {
+			scope.stats.slowStatement();
+		}
+		if (SLOW_LOG.isLoggable(Level.WARNING)) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(String.format("%.1f ms em %s: %s", nanos / 1e6, query, sql));
+			sb.append(" params=").append(formatParameters(parameters));
+			if (batchSize > 0) {
+				sb.append(" (batch de ").append(batchSize).append(", ultimos parametros)");
+			}
+			SLOW_LOG.warning(sb.toString());
+		}
+	}
+
+	private static String formatParameters(List<Object> parameters) {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < parameters.size(); i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			Object value = parameters.get(i);
+			if (value instanceof CharSequence) {
+				String s = value.toString();
+				if (s.length() > MAX_PARAMETER_LENGTH) {
+					s = s.substring(0, MAX_PARAMETER_LENGTH) + "...";
+				}
+				sb.append('\'').append(s).append('\'');
+			} else if (value instanceof byte[]) {
+				sb.append("<").append(((byte[]) value).length).append(" bytes>");
+			} else {
+				sb.append(value);
+			}
+		}
+		return sb.append("]").toString();
+	}
+
+	public static long getSlowQueryThresholdMs() {
+		return TimeUnit.NANOSECONDS.toMillis(slowQueryNanos);
+	}
+
+	public static void setSlowQueryThresholdMs(long millis) {
+		slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+	}
+
+	/**
+	 * Consultas ordenadas pelo tempo total gasto, da maior para a menor.
+	 */
+	public static List<QuerySummary> getSummaries() {
+		List<QuerySummary> list = new ArrayList<>();
+		for (QueryStats queryStats : stats.values()) {
+			list.add(new QuerySummary(queryStats));
+		}
+		list.sort(Comparator.comparingDouble(QuerySummary::getTotalMillis).reversed());
+		return list;
+	}
+
+	public static QueryStats getStats(String name) {
+		return stats.get(name);
+	}
+
+	public static void reset() {
+		stats.clear();
+	}
+
+	private static synchronized void registerMBean() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (!server.isRegistered(name)) {
+				server.registerMBean(new MXBean(), name);
+			}
+		} catch (JMException e) {
+			LOG.log(Level.WARNING, "Nao foi possivel registrar " + OBJECT_NAME, e);
+		}
+	}
+
+	private static class MXBean implements QueryMetricsMXBean {
+
+		@Override
+		public List<QuerySummary> getQueries() {
+			return getSummaries();
+		}
+
+		@Override
+		public long getSlowQueryThresholdMs() {
+			return QueryMetrics.getSlowQueryThresholdMs();
+		}
+
+		@Override
+		public void setSlowQueryThresholdMs(long millis) {
+			QueryMetrics.setSlowQueryThresholdMs(millis);
+		}
+
+		@Override
+		public int getActiveConnections() {
+			PoolMetrics pool = DB.getPoolMetrics();
+			return pool == null ? 0 : pool.getActive();
+		}
+
+		@Override
+		public int getIdleConnections() {
+			PoolMetrics pool = DB.getPoolMetrics();
+			return pool == null ? 0 : pool.getIdle();
+		}
+
+		@Override
+		public int getWaitingThreads() {
+			PoolMetrics pool = DB.getPoolMetrics();
+			return pool == null ? 0 : pool.getWaiting();
+		}
+
+		@Override
+		public long getConnectionTimeouts() {
+			PoolMetrics pool = DB.getPoolMetrics();
+			return pool == null ? 0 : pool.getTimeouts();
+		}
+
+		@Override
+		public double getConnectionWaitP99Millis() {
+			PoolMetrics pool = DB.getPoolMetrics();
+			return pool == null ? 0.0 : pool.getWaitTime().getPercentileMillis(99);
+		}
+
+		@Override
+		public void reset() {
+			QueryMetrics.reset();
+		}
+	}
+}
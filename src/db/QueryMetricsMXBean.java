@@ -0,0 +1,27 @@
+package db;
+
+import java.util.List;
+
+/**
+ * Metricas de consultas e do pool publicadas em db:type=QueryMetrics.
+ */
+public interface QueryMetricsMXBean {
+
+	List<QuerySummary> getQueries();
+
+	long getSlowQueryThresholdMs();
+
+	void setSlowQueryThresholdMs(long millis);
+
+	int getActiveConnections();
+
+	int getIdleConnections();
+
+	int getWaitingThreads();
+
+	long getConnectionTimeouts();
+
+	double getConnectionWaitP99Millis();
+
+	void reset();
+}
@@ -0,0 +1,72 @@
+package db;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contadores acumulados de uma consulta (metodo de DAO) desde o inicio do
+ * processo ou desde o ultimo {@link QueryMetrics#reset()}.
+ */
+public class QueryStats {
+
+	private final String name;
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final LatencyHistogram connectionWait = new LatencyHistogram();
+	private final AtomicLong rows = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+	private final AtomicLong slow = new AtomicLong();
+
+	QueryStats(String name) {
+		this.name = name;
+	}
+
+	void record(long nanos, long waitNanos, long rowCount, boolean failed) {
+		latency.record(nanos);
+		connectionWait.record(waitNanos);
+		rows.addAndGet(rowCount);
+		if (failed) {
+			errors.incrementAndGet();
+		}
+	}
+
+	void slowStatement() {
+		slow.incrementAndGet();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	public LatencyHistogram getConnectionWait() {
+		return connectionWait;
+	}
+
+	public long getCalls() {
+		return latency.getCount();
+	}
+
+	public long getRows() {
+		return rows.get();
+	}
+
+	public long getErrors() {
+		return errors.get();
+	}
+
+	public long getSlowStatements() {
+		return slow.get();
+	}
+
+	public double getTotalMillis() {
+		return latency.getMeanMillis() * latency.getCount();
+	}
+
+	@Override
+	public String toString() {
+		return "QueryStats [name=" + name + ", rows=" + rows + ", errors=" + errors + ", slow=" + slow
+				+ ", latency={" + latency + "}, connectionWait={" + connectionWait + "}]";
+	}
+}
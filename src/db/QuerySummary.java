@@ -0,0 +1,92 @@
+package db;
+
+/**
+ * Retrato imutavel de um {@link QueryStats}, exportado via JMX.
+ */
+public class QuerySummary {
+
+	private final String name;
+	private final long calls;
+	private final long rows;
+	private final long errors;
+	private final long slowStatements;
+	private final double totalMillis;
+	private final double meanMillis;
+	private final double p50Millis;
+	private final double p95Millis;
+	private final double p99Millis;
+	private final double maxMillis;
+	private final double meanConnectionWaitMillis;
+
+	QuerySummary(QueryStats stats) {
+		LatencyHistogram latency = stats.getLatency();
+		this.name = stats.getName();
+		this.calls = latency.getCount();
+		this.rows = stats.getRows();
+		this.errors = stats.getErrors();
+		this.slowStatements = stats.getSlowStatements();
+		this.totalMillis = stats.getTotalMillis();
+		this.meanMillis = latency.getMeanMillis();
+		this.p50Millis = latency.getPercentileMillis(50);
+		this.p95Millis = latency.getPercentileMillis(95);
+		this.p99Millis = latency.getPercentileMillis(99);
+		this.maxMillis = latency.getMaxMillis();
+		this.meanConnectionWaitMillis = stats.getConnectionWait().getMeanMillis();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getCalls() {
+		return calls;
+	}
+
+	public long getRows() {
+		return rows;
+	}
+
+	public long getErrors() {
+		return errors;
+	}
+
+	public long getSlowStatements() {
+		return slowStatements;
+	}
+
+	public double getTotalMillis() {
+		return totalMillis;
+	}
+
+	public double getMeanMillis() {
+		return meanMillis;
+	}
+
+	public double getP50Millis() {
+		return p50Millis;
+	}
+
+	public double getP95Millis() {
+		return p95Millis;
+	}
+
+	public double getP99Millis() {
+		return p99Millis;
+	}
+
+	public double getMaxMillis() {
+		return maxMillis;
+	}
+
+	public double getMeanConnectionWaitMillis() {
+		return meanConnectionWaitMillis;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"%s: calls=%d, rows=%d, errors=%d, slow=%d, total=%.1fms, mean=%.2fms, p95=%.0fms, p99=%.0fms, max=%.2fms, wait=%.2fms",
+				name, calls, rows, errors, slowStatements, totalMillis, meanMillis, p95Millis, p99Millis, maxMillis,
+				meanConnectionWaitMillis);
+	}
+}
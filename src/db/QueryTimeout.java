@@ -0,0 +1,42 @@
+package db;
+
+/**
+ * Timeout (segundos) aplicado aos statements criados na thread atual. Fora
+ * de um escopo vale o query.timeoutSec do pool.
+ *
+ * <pre>
+ * Integer previous = QueryTimeout.enter(120);
+ * try {
+ * 	...
+ * } finally {
+ * 	QueryTimeout.exit(previous);
+ * }
+ * </pre>
+ */
+public class QueryTimeout {
+
+	private static final ThreadLocal<Integer> current = new ThreadLocal<>();
+
+	/**
+	 * @param seconds timeout dos statements, 0 para nenhum
+	 * @return o valor anterior, a ser passado para {@link #exit(Integer)}
+	 */
+	public static Integer enter(int seconds) {
+		Integer previous = current.get();
+		current.set(seconds);
+		return previous;
+	}
+
+	public static void exit(Integer previous) {
+		if (previous == null) {
+			current.remove();
+		} else {
+			current.set(previous);
+		}
+	}
+
+	static int resolve(int defaultSeconds) {
+		Integer seconds = current.get();
+		return seconds != null ? seconds : defaultSeconds;
+	}
+}
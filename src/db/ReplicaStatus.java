@@ -0,0 +1,61 @@
+package db;
+
+/**
+ * Situacao de uma replica de leitura do {@link RoutingDataSource}.
+ */
+public class ReplicaStatus {
+
+	private final String url;
+	private final boolean available;
+	private final long position;
+	private final long lagMillis;
+	private final long reads;
+	private final long failures;
+
+	ReplicaStatus(String url, boolean available, long position, long lagMillis, long reads, long failures) {
+		this.url = url;
+		this.available = available;
+		this.position = position;
+		this.lagMillis = lagMillis;
+		this.reads = reads;
+		this.failures = failures;
+	}
+
+	public String getUrl() {
+		return url;
+	}
+
+	public boolean isAvailable() {
+		return available;
+	}
+
+	/**
+	 * @return ultimo Id do change_log aplicado na replica, ou -1 se ainda nao
+	 *         foi lido
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * @return atraso em relacao ao principal, ou Long.MAX_VALUE se
+	 *         desconhecido
+	 */
+	public long getLagMillis() {
+		return lagMillis;
+	}
+
+	public long getReads() {
+		return reads;
+	}
+
+	public long getFailures() {
+		return failures;
+	}
+
+	@Override
+	public String toString() {
+		return "ReplicaStatus [url=" + url + ", available=" + available + ", position=" + position + ", lagMillis="
+				+ lagMillis + ", reads=" + reads + ", failures=" + failures + "]";
+	}
+}
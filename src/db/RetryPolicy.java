@@ -0,0 +1,65 @@
+package db;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Politica de novas tentativas para leituras idempotentes, configurada pelas
+ * chaves "retry.*":
+ * <ul>
+ * <li>retry.maxAttempts - tentativas no total, 1 desativa (padrao 3)</li>
+ * <li>retry.baseDelayMs / retry.maxDelayMs - espera antes da tentativa n,
+ * sorteada entre 0 e min(max, base * 2^(n-1)) (padrao 100 e 2000)</li>
+ * </ul>
+ * Sao repetidas apenas falhas transitorias: conexao perdida (SQLState 08),
+ * deadlock ou conflito de serializacao (40001). Timeouts de query e o
+ * circuito aberto nao sao repetidos.
+ */
+public class RetryPolicy {
+
+	private final int maxAttempts;
+	private final long baseDelayMillis;
+	private final long maxDelayMillis;
+
+	public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+		this.maxAttempts = Math.max(1, maxAttempts);
+		this.baseDelayMillis = baseDelayMillis;
+		this.maxDelayMillis = maxDelayMillis;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	/**
+	 * Espera antes da proxima tentativa, com jitter para que varios clientes
+	 * nao voltem ao mesmo tempo.
+	 *
+	 * @param attempt tentativa que acabou de falhar, a partir de 1
+	 */
+	public long delayMillis(int attempt) {
+		long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 20));
+		return ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+	}
+
+	public boolean isRetryable(Throwable error) {
+		for (Throwable t = error; t != null; t = t.getCause()) {
+			if (t instanceof CircuitOpenException || t instanceof SQLTimeoutException) {
+				return false;
+			}
+			if (t instanceof SQLTransientException || t instanceof SQLRecoverableException) {
+				return true;
+			}
+			if (t instanceof SQLException) {
+				String state = ((SQLException) t).getSQLState();
+				if (state != null && (state.startsWith("08") || state.equals("40001"))) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,363 @@
+package db;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * DataSource que envia leituras para replicas de leitura e todo o resto para
+ * o banco principal. Uma conexao so vai para uma replica dentro de
+ * {@link #enterRead()} / {@link #exitRead()} (os DAOs marcam seus finders) e
+ * se:
+ * <ul>
+ * <li>nao ha unidade de trabalho aberta na thread nem {@link #enterPrimary()}
+ * ativo;</li>
+ * <li>a replica ja aplicou as escritas deste processo (read-your-writes):
+ * depois de cada escrita a posicao do change_log do principal e lida de novo
+ * e a replica precisa alcanca-la;</li>
+ * <li>o atraso da replica nao passa de replica.maxLagMs, medido comparando o
+ * MAX(Id) do change_log nas duas bases a cada replica.checkMs.</li>
+ * </ul>
+ * Sem replica elegivel a leitura vai para o principal. Replica que falha fica
+ * fora por replica.retryMs e volta quando responde a verificacao.
+ * <p>
+ * Para testar localmente bastam dois H2 embarcados com o mesmo schema, ex.:
+ * dburl=jdbc:h2:mem:primary;MODE=MySQL;DB_CLOSE_DELAY=-1 e
+ * replica.urls=jdbc:h2:mem:replica;MODE=MySQL;DB_CLOSE_DELAY=-1 (veja o
+ * parametro replicas do BenchmarkDatabase). Sem replicacao entre eles a
+ * replica atende as leituras ate a primeira escrita e depois fica atrasada.
+ */
+public class RoutingDataSource implements DataSource {
+
+	private static final Logger LOG = Logger.getLogger(RoutingDataSource.class.getName());
+
+	private static final String QUERY_POSITION = "SELECT MAX(Id) FROM change_log";
+	private static final int MAX_HISTORY = 1000;
+
+	private static final ThreadLocal<int[]> readDepth = ThreadLocal.withInitial(() -> new int[1]);
+	private static final ThreadLocal<int[]> primaryDepth = ThreadLocal.withInitial(() -> new int[1]);
+	private static final ThreadLocal<Replica> usedReplica = new ThreadLocal<>();
+
+	private final TransactionalDataSource primary;
+	private final List<Replica> replicas = new ArrayList<>();
+	private final long maxLagMillis;
+	private final long retryMillis;
+	private final ScheduledExecutorService monitor;
+	private final AtomicInteger next = new AtomicInteger();
+
+	private final AtomicLong writes = new AtomicLong();
+	private volatile long sampledWrites;
+	private volatile long requiredPosition;
+	private long primaryPosition;
+	private final Deque<long[]> history = new ArrayDeque<>();
+
+	public RoutingDataSource(TransactionalDataSource primary, List<String> replicaUrls, Properties driverProperties,
+			Properties properties) {
+		this.primary = primary;
+		this.maxLagMillis = intProperty(properties, "replica.maxLagMs", 2000);
+		this.retryMillis = intProperty(properties, "replica.retryMs", 30000);
+		for (String url : replicaUrls) {
+			replicas.add(new Replica(url, new ConnectionPool(url, driverProperties, properties)));
+		}
+		monitor = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "db-replica-monitor");
+			t.setDaemon(true);
+			return t;
+		});
+		long period = intProperty(properties, "replica.checkMs", 1000);
+		monitor.scheduleWithFixedDelay(this::check, 0, period, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Marca o inicio de uma leitura que pode ir para uma replica.
+	 */
+	public static void enterRead() {
+		if (readDepth.get()[0]++ == 0) {
+			usedReplica.remove();
+		}
+	}
+
+	public static void exitRead() {
+		readDepth.get()[0]--;
+	}
+
+	/**
+	 * Obriga as conexoes da thread a virem do principal ate
+	 * {@link #exitPrimary()}, mesmo dentro de leituras.
+	 */
+	public static void enterPrimary() {
+		primaryDepth.get()[0]++;
+	}
+
+	public static void exitPrimary() {
+		primaryDepth.get()[0]--;
+	}
+
+	/**
+	 * Chamado quando uma leitura falhou. Se ela usou uma replica, a replica
+	 * fica fora por replica.retryMs e o chamador deve repetir a leitura no
+	 * principal.
+	 *
+	 * @return true se a leitura que falhou foi feita em uma replica
+	 */
+	public static boolean readFailedOnReplica() {
+		Replica replica = usedReplica.get();
+		if (replica == null) {
+			return false;
+		}
+		usedReplica.remove();
+		replica.markDown("leitura falhou");
+		return true;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (readDepth.get()[0] == 0 || primaryDepth.get()[0] > 0 || primary.isBound()) {
+			return readDepth.get()[0] == 0 ? writing(primary.getConnection()) : primary.getConnection();
+		}
+		Replica replica = choose();
+		if (replica == null) {
+			return primary.getConnection();
+		}
+		try {
+			Connection con = replica.pool.getConnection();
+			replica.reads.incrementAndGet();
+			usedReplica.set(replica);
+			return con;
+		} catch (SQLException e) {
+			replica.markDown(e.getMessage());
+			return primary.getConnection();
+		}
+	}
+
+	private Replica choose() {
+		if (sampledWrites != writes.get()) {
+			// escrita recente ainda sem posicao conhecida no principal
+			return null;
+		}
+		long required = requiredPosition;
+		int size = replicas.size();
+		int start = Math.floorMod(next.getAndIncrement(), size);
+		for (int i = 0; i < size; i++) {
+			Replica replica = replicas.get((start + i) % size);
+			if (replica.isUsable(required, maxLagMillis)) {
+				return replica;
+			}
+		}
+		return null;
+	}
+
+	/*
+	 * Conexao de escrita: ao ser devolvida registra a escrita para que as
+	 * leituras seguintes esperem a replica alcancar o principal.
+	 */
+	private Connection writing(Connection con) {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+					String name = method.getName();
+					if ("equals".equals(name)) {
+						return proxy == args[0];
+					}
+					if ("hashCode".equals(name)) {
+						return System.identityHashCode(proxy);
+					}
+					try {
+						return method.invoke(con, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					} finally {
+						if ("close".equals(name)) {
+							writeCommitted();
+						}
+					}
+				});
+	}
+
+	/**
+	 * Registra uma escrita confirmada (ex.: commit de uma unidade de trabalho).
+	 */
+	public void writeCommitted() {
+		writes.incrementAndGet();
+		if (!monitor.isShutdown()) {
+			monitor.execute(this::check);
+		}
+	}
+
+	private synchronized void check() {
+		long seenWrites = writes.get();
+		long now = System.nanoTime();
+		try {
+			primaryPosition = positionOf(primary.getTargetConnection());
+			if (history.isEmpty() || history.peekLast()[0] != primaryPosition) {
+				history.addLast(new long[] { primaryPosition, now });
+				if (history.size() > MAX_HISTORY) {
+					history.removeFirst();
+				}
+			}
+			if (seenWrites != sampledWrites) {
+				requiredPosition = primaryPosition;
+				sampledWrites = seenWrites;
+			}
+		} catch (SQLException | RuntimeException e) {
+			// principal fora do ar: as leituras tambem vao falhar nele
+			return;
+		}
+		for (Replica replica : replicas) {
+			if (replica.down && now < replica.retryAt) {
+				continue;
+			}
+			try {
+				replica.position = positionOf(replica.pool.getConnection());
+				replica.lagMillis = lagMillis(replica.position, now);
+				if (replica.down) {
+					if (replica.retryAt != 0) {
+						LOG.info("Replica de leitura disponivel novamente: " + replica.url);
+					}
+					replica.down = false;
+				}
+			} catch (SQLException | RuntimeException e) {
+				replica.markDown(e.getMessage());
+			}
+		}
+	}
+
+	/*
+	 * Tempo desde que o principal passou da posicao da replica.
+	 */
+	private long lagMillis(long replicaPosition, long now) {
+		if (replicaPosition >= primaryPosition) {
+			return 0;
+		}
+		for (long[] sample : history) {
+			if (sample[0] > replicaPosition) {
+				return TimeUnit.NANOSECONDS.toMillis(now - sample[1]);
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	private static long positionOf(Connection con) throws SQLException {
+		try (Connection c = con; Statement st = c.createStatement(); ResultSet rs = st.executeQuery(QUERY_POSITION)) {
+			return rs.next() ? rs.getLong(1) : 0;
+		}
+	}
+
+	public List<ReplicaStatus> getStatus() {
+		List<ReplicaStatus> list = new ArrayList<>();
+		for (Replica replica : replicas) {
+			list.add(new ReplicaStatus(replica.url, !replica.down, replica.position, replica.lagMillis,
+					replica.reads.get(), replica.failures.get()));
+		}
+		return list;
+	}
+
+	public void close() {
+		monitor.shutdownNow();
+		for (Replica replica : replicas) {
+			replica.pool.close();
+		}
+	}
+
+	private class Replica {
+
+		final String url;
+		final ConnectionPool pool;
+		final AtomicLong reads = new AtomicLong();
+		final AtomicLong failures = new AtomicLong();
+		volatile boolean down = true;
+		volatile long retryAt;
+		volatile long position = -1;
+		volatile long lagMillis = Long.MAX_VALUE;
+
+		Replica(String url, ConnectionPool pool) {
+			this.url = url;
+			this.pool = pool;
+		}
+
+		boolean isUsable(long required, long maxLag) {
+			return !down && position >= required && lagMillis <= maxLag;
+		}
+
+		void markDown(String reason) {
+			failures.incrementAndGet();
+			retryAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryMillis);
+			if (!down) {
+				LOG.warning("Replica de leitura fora de uso (" + url + "): " + reason);
+				down = true;
+			}
+		}
+	}
+
+	private static int intProperty(Properties props, String key, int defaultValue) {
+		String value = props.getProperty(key);
+		if (value == null || value.trim().isEmpty()) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			throw new DBException("Valor invalido para " + key + ": " + value);
+		}
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		throw new SQLFeatureNotSupportedException("Use getConnection()");
+	}
+
+	@Override
+	public PrintWriter getLogWriter() throws SQLException {
+		return primary.getLogWriter();
+	}
+
+	@Override
+	public void setLogWriter(PrintWriter out) throws SQLException {
+		primary.setLogWriter(out);
+	}
+
+	@Override
+	public void setLoginTimeout(int seconds) throws SQLException {
+		primary.setLoginTimeout(seconds);
+	}
+
+	@Override
+	public int getLoginTimeout() throws SQLException {
+		return primary.getLoginTimeout();
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		return primary.getParentLogger();
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		return primary.unwrap(iface);
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return iface.isInstance(this) || primary.isWrapperFor(iface);
+	}
+}
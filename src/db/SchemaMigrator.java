@@ -0,0 +1,330 @@
+package db;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * Aplica em ordem as migracoes ainda nao registradas na tabela
+ * schema_version. Cada migracao roda uma unica vez por banco.
+ * <p>
+ * No MySQL varios clientes podem iniciar juntos contra um schema
+ * desatualizado: a migracao roda com GET_LOCK('schema_migration'), que
+ * sobrevive aos commits implicitos do DDL, e as versoes aplicadas sao lidas
+ * so depois de obter o lock. Nos H2 embarcados basta o lock do processo.
+ */
+public class SchemaMigrator {
+
+	private static final Logger LOG = Logger.getLogger(SchemaMigrator.class.getName());
+
+	private static final String QUERY_CREATE_VERSION_TABLE = 
+			"CREATE TABLE IF NOT EXISTS schema_version ("
+			+ "Version INT NOT NULL PRIMARY KEY, "
+			+ "Description VARCHAR(200) NOT NULL, "
+			+ "AppliedAt TIMESTAMP NOT NULL)";
+
+	private static final String QUERY_FIND_VERSIONS = 
+			"SELECT Version "
+			+ "FROM schema_version";
+
+	private static final String QUERY_INSERT_VERSION = 
+			"INSERT INTO schema_version (Version, Description, AppliedAt) "
+			+ "VALUES (?, ?, ?)";
+
+	private static final String QUERY_GET_LOCK = 
+			"SELECT GET_LOCK('schema_migration', ?)";
+
+	private static final String QUERY_RELEASE_LOCK = 
+			"SELECT RELEASE_LOCK('schema_migration')";
+
+	private static final List<Migration> MIGRATIONS = new ArrayList<>();
+
+	static {
+		register(new SqlMigration(1, "Create department and seller tables",
+				"CREATE TABLE IF NOT EXISTS department ("
+				+ "Id INT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+				+ "Name VARCHAR(60) DEFAULT NULL)",
+				"CREATE TABLE IF NOT EXISTS seller ("
+				+ "Id INT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+				+ "Name VARCHAR(60) NOT NULL, "
+				+ "Email VARCHAR(100) NOT NULL, "
+				+ "BirthDate DATETIME NOT NULL, "
+				+ "BaseSalary DOUBLE NOT NULL, "
+				+ "DepartmentId INT NOT NULL, "
+				+ "FOREIGN KEY (DepartmentId) REFERENCES department (Id))"));
+
+		register(new Migration() {
+			@Override
+			public int getVersion() {
+				return 2;
+			}
+
+			@Override
+			public String getDescription() {
+				return "Add seller indexes used by the DAO queries";
+			}
+
+			@Override
+			public void apply(Connection con) throws SQLException {
+				createIndex(con, "seller", "idx_seller_department_name", "DepartmentId, Name", false);
+				createIndex(con, "seller", "idx_seller_name_id", "Name, Id", false);
+				createIndex(con, "seller", "uk_seller_email", "Email", true);
+			}
+		});
+
+		register(new Migration() {
+			@Override
+			public int getVersion() {
+				return 3;
+			}
+
+			@Override
+			public String getDescription() {
+				return "Add Version column for optimistic locking";
+			}
+
+			@Override
+			public void apply(Connection con) throws SQLException {
+				addColumn(con, "department", "Version", "INT NOT NULL DEFAULT 0");
+				addColumn(con, "seller", "Version", "INT NOT NULL DEFAULT 0");
+			}
+		});
+
+		register(new SqlMigration(4, "Create change_log table for the change feed",
+				"CREATE TABLE IF NOT EXISTS change_log ("
+				+ "Id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, "
+				+ "TableName VARCHAR(30) NOT NULL, "
+				+ "RowId INT NOT NULL, "
+				+ "Operation CHAR(1) NOT NULL, "
+				+ "Version INT DEFAULT NULL, "
+				+ "Origin VARCHAR(36) NOT NULL, "
+				+ "ChangedAt TIMESTAMP NOT NULL)"));
+	}
+
+	public static void register(Migration migration) {
+		MIGRATIONS.add(migration);
+	}
+
+	public static synchronized void migrate(DataSource dataSource) {
+		Connection con = null;
+		Statement st = null;
+		boolean locked = false;
+		// indices em tabelas grandes podem levar mais que o query.timeoutSec
+		Integer previousTimeout = QueryTimeout.enter(0);
+		try {
+			con = dataSource.getConnection();
+			if (isMySql(con)) {
+				lock(con, DB.getIntProperty("migration.lockTimeoutSec", 60));
+				locked = true;
+			}
+			st = con.createStatement();
+			st.execute(QUERY_CREATE_VERSION_TABLE);
+
+			Set<Integer> applied = findAppliedVersions(con);
+
+			List<Migration> pending = new ArrayList<>(MIGRATIONS);
+			Collections.sort(pending, Comparator.comparingInt(Migration::getVersion));
+
+			for (Migration migration : pending) {
+				if (!applied.contains(migration.getVersion())) {
+					apply(con, migration);
+				}
+			}
+		} catch (SQLException e) {
+			throw new DBException("Erro ao migrar o schema: " + e.getMessage(), e);
+		} finally {
+			DB.closeStatement(st);
+			if (locked) {
+				unlock(con);
+			}
+			DB.closeConnection(con);
+			QueryTimeout.exit(previousTimeout);
+		}
+	}
+
+	private static boolean isMySql(Connection con) throws SQLException {
+		String product = con.getMetaData().getDatabaseProductName();
+		return product != null && (product.contains("MySQL") || product.contains("MariaDB"));
+	}
+
+	private static void lock(Connection con, int timeoutSeconds) throws SQLException {
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		try {
+			ps = con.prepareStatement(QUERY_GET_LOCK);
+			ps.setInt(1, timeoutSeconds);
+			rs = ps.executeQuery();
+			if (!rs.next() || rs.getInt(1) != 1) {
+				throw new DBException("Outra instancia esta migrando o schema; lock nao obtido em " + timeoutSeconds
+						+ " s");
+			}
+		} finally {
+			DB.closeResultSet(rs);
+			DB.closeStatement(ps);
+		}
+	}
+
+	private static void unlock(Connection con) {
+		PreparedStatement ps = null;
+		try {
+			ps = con.prepareStatement(QUERY_RELEASE_LOCK);
+			ps.executeQuery().close();
+		} catch (SQLException e) {
+			// o lock e da sessao: se a conexao caiu o servidor ja o liberou
+			LOG.warning("Falha ao liberar o lock de migracao: " + e.getMessage());
+		} finally {
+			DB.closeStatement(ps);
+		}
+	}
+
+	private static Set<Integer> findAppliedVersions(Connection con) throws SQLException {
+		Set<Integer> versions = new HashSet<>();
+		PreparedStatement ps = null;
+		ResultSet rs = null;
+		try {
+			ps = con.prepareStatement(QUERY_FIND_VERSIONS);
+			rs = ps.executeQuery();
+			while (rs.next()) {
+				versions.add(rs.getInt("Version"));
+			}
+			return versions;
+		} finally {
+			DB.closeResultSet(rs);
+			DB.closeStatement(ps);
+		}
+	}
+
+	private static void apply(Connection con, Migration migration) throws SQLException {
+		con.setAutoCommit(false);
+		PreparedStatement ps = null;
+		try {
+			migration.apply(con);
+
+			ps = con.prepareStatement(QUERY_INSERT_VERSION);
+			ps.setInt(1, migration.getVersion());
+			ps.setString(2, migration.getDescription());
+			ps.setTimestamp(3, new java.sql.Timestamp(System.currentTimeMillis()));
+			ps.executeUpdate();
+
+			con.commit();
+			LOG.info("Migracao aplicada: V" + migration.getVersion() + " - " + migration.getDescription());
+		} catch (SQLException e) {
+			con.rollback();
+			throw new SQLException("V" + migration.getVersion() + ": " + e.getMessage(), e.getSQLState(), e);
+		} finally {
+			DB.closeStatement(ps);
+			con.setAutoCommit(true);
+		}
+	}
+
+	/**
+	 * Cria o indice se ainda nao existir um com o mesmo nome (o MySQL nao
+	 * suporta CREATE INDEX IF NOT EXISTS).
+	 */
+	public static void createIndex(Connection con, String table, String name, String columns, boolean unique)
+			throws SQLException {
+		if (indexExists(con, table, name)) {
+			return;
+		}
+		Statement st = con.createStatement();
+		try {
+			st.execute("CREATE " + (unique ? "UNIQUE " : "") + "INDEX " + name + " ON " + table + " (" + columns + ")");
+		} finally {
+			DB.closeStatement(st);
+		}
+	}
+
+	public static void addColumn(Connection con, String table, String column, String definition)
+			throws SQLException {
+		if (columnExists(con, table, column)) {
+			return;
+		}
+		Statement st = con.createStatement();
+		try {
+			st.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+		} finally {
+			DB.closeStatement(st);
+		}
+	}
+
+	public static boolean columnExists(Connection con, String table, String column) throws SQLException {
+		DatabaseMetaData meta = con.getMetaData();
+		for (String tableName : new String[] { table, table.toUpperCase() }) {
+			ResultSet rs = meta.getColumns(con.getCatalog(), null, tableName, null);
+			try {
+				while (rs.next()) {
+					if (column.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+						return true;
+					}
+				}
+			} finally {
+				DB.closeResultSet(rs);
+			}
+		}
+		return false;
+	}
+
+	public static boolean indexExists(Connection con, String table, String name) throws SQLException {
+		DatabaseMetaData meta = con.getMetaData();
+		for (String tableName : new String[] { table, table.toUpperCase() }) {
+			ResultSet rs = meta.getIndexInfo(con.getCatalog(), null, tableName, false, false);
+			try {
+				while (rs.next()) {
+					if (name.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+						return true;
+					}
+				}
+			} finally {
+				DB.closeResultSet(rs);
+			}
+		}
+		return false;
+	}
+
+	private static class SqlMigration implements Migration {
+
+		private final int version;
+		private final String description;
+		private final String[] statements;
+
+		SqlMigration(int version, String description, String... statements) {
+			this.version = version;
+			this.description = description;
+			this.statements = statements;
+		}
+
+		@Override
+		public int getVersion() {
+			return version;
+		}
+
+		@Override
+		public String getDescription() {
+			return description;
+		}
+
+		@Override
+		public void apply(Connection con) throws SQLException {
+			Statement st = con.createStatement();
+			try {
+				for (String sql : statements) {
+					st.execute(sql);
+				}
+			} finally {
+				DB.closeStatement(st);
+			}
+		}
+	}
+}
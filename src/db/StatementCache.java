@@ -0,0 +1,190 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache LRU de PreparedStatements de uma conexao fisica, chaveado pelo SQL
+ * (e pelas opcoes do prepareStatement). O close() do statement entregue ao
+ * DAO apenas o devolve ao cache.
+ */
+class StatementCache {
+
+	private final int maxSize;
+	private final ConnectionPool pool;
+	private final Map<String, CachedStatement> statements;
+
+	StatementCache(int maxSize, ConnectionPool pool) {
+		this.maxSize = maxSize;
+		this.pool = pool;
+		this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+				if (size() > StatementCache.this.maxSize) {
+					pool.statementEvicted();
+					eldest.getValue().evict();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	boolean isEnabled() {
+		return maxSize > 0;
+	}
+
+	/**
+	 * Chave do cache para uma chamada de prepareStatement, ou null se a
+	 * variante chamada nao e cacheada.
+	 */
+	static String keyFor(Method method, Object[] args) {
+		if (!"prepareStatement".equals(method.getName())) {
+			return null;
+		}
+		Class<?>[] types = method.getParameterTypes();
+		if (types.length == 1) {
+			return (String) args[0];
+		}
+		if (types.length == 2 && types[1] == int.class) {
+			return args[0] + "\u0000k" + args[1];
+		}
+		if (types.length == 3 && types[1] == int.class && types[2] == int.class) {
+			return args[0] + "\u0000t" + args[1] + "," + args[2];
+		}
+		return null;
+	}
+
+	/**
+	 * Retorna o statement em cache para a chave, ou null se nao existe ou se
+	 * ja esta em uso (nesse caso o chamador cria um statement comum).
+	 */
+	synchronized PreparedStatement borrow(String key) {
+		CachedStatement cached = statements.get(key);
+		if (cached == null) {
+			pool.statementMiss();
+			return null;
+		}
+		if (cached.inUse) {
+			return null;
+		}
+		pool.statementHit();
+		cached.inUse = true;
+		return cached.newHandle();
+	}
+
+	synchronized PreparedStatement put(String key, PreparedStatement physical) {
+		CachedStatement cached = new CachedStatement(physical);
+		cached.inUse = true;
+		CachedStatement previous = statements.put(key, cached);
+		if (previous != null) {
+			previous.evict();
+		}
+		return cached.newHandle();
+	}
+
+	synchronized void closeAll() {
+		List<CachedStatement> all = new ArrayList<>(statements.values());
+		statements.clear();
+		for (CachedStatement cached : all) {
+			cached.inUse = false;
+			cached.evict();
+		}
+	}
+
+	private class CachedStatement {
+
+		final PreparedStatement physical;
+		boolean inUse;
+		boolean evicted;
+
+		CachedStatement(PreparedStatement physical) {
+			this.physical = physical;
+		}
+
+		void evict() {
+			evicted = true;
+			if (!inUse) {
+				closeQuietly();
+			}
+		}
+
+		void giveBack() {
+			synchronized (StatementCache.this) {
+				inUse = false;
+				if (evicted) {
+					closeQuietly();
+					return;
+				}
+			}
+			try {
+				physical.clearParameters();
+				physical.clearBatch();
+				physical.setFetchSize(0);
+			} catch (SQLException e) {
+				synchronized (StatementCache.this) {
+					evicted = true;
+					statements.values().remove(this);
+				}
+				closeQuietly();
+			}
+		}
+
+		void closeQuietly() {
+			try {
+				physical.close();
+			} catch (SQLException e) {
+				// conexao possivelmente ja fechada
+			}
+		}
+
+		PreparedStatement newHandle() {
+			return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+					new Class<?>[] { PreparedStatement.class }, new Handle());
+		}
+
+		private class Handle implements InvocationHandler {
+
+			private boolean closed;
+
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				String name = method.getName();
+				if ("close".equals(name)) {
+					if (!closed) {
+						closed = true;
+						giveBack();
+					}
+					return null;
+				}
+				if ("isClosed".equals(name)) {
+					return closed;
+				}
+				if ("equals".equals(name)) {
+					return proxy == args[0];
+				}
+				if ("hashCode".equals(name)) {
+					return System.identityHashCode(proxy);
+				}
+				if (closed) {
+					throw new SQLException("Statement ja foi fechado");
+				}
+				try {
+					return method.invoke(physical, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Envolve um PreparedStatement guardando os parametros ligados e medindo as
+ * execucoes, para o log de consultas lentas do {@link QueryMetrics}.
+ */
+class TracedStatement implements InvocationHandler {
+
+	private final PreparedStatement target;
+	private final String sql;
+	private final List<Object> parameters = new ArrayList<>();
+	private int batchSize;
+
+	private TracedStatement(PreparedStatement target, String sql) {
+		this.target = target;
+		this.sql = sql;
+	}
+
+	static PreparedStatement wrap(PreparedStatement target, String sql) {
+		return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, new TracedStatement(target, sql));
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		String name = method.getName();
+		if ("equals".equals(name)) {
+			return proxy == args[0];
+		}
+		if ("hashCode".equals(name)) {
+			return System.identityHashCode(proxy);
+		}
+		if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+			bind((Integer) args[0], "setNull".equals(name) ? null : args[1]);
+		} else if ("clearParameters".equals(name)) {
+			parameters.clear();
+		} else if ("addBatch".equals(name) && args == null) {
+			batchSize++;
+		} else if ("clearBatch".equals(name)) {
+			batchSize = 0;
+		}
+
+		boolean execution = name.startsWith("execute") && args == null;
+		long start = execution ? System.nanoTime() : 0;
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		} finally {
+			if (execution) {
+				QueryMetrics.statementExecuted(sql, parameters, batchSize, System.nanoTime() - start);
+				if (name.endsWith("Batch")) {
+					batchSize = 0;
+				}
+			}
+		}
+	}
+
+	private void bind(int index, Object value) {
+		while (parameters.size() < index) {
+			parameters.add(null);
+		}
+		parameters.set(index - 1, value);
+	}
+}
@@ -0,0 +1,130 @@
+package db;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * DataSource usado pelos DAOs. Fora de uma transacao apenas repassa para o
+ * pool; quando ha uma conexao vinculada a thread (unidade de trabalho
+ * aberta) todos os DAOs recebem essa mesma conexao. Nela close(), commit(),
+ * rollback() e setAutoCommit() sao ignorados: quem controla a transacao e
+ * o dono do vinculo.
+ */
+public class TransactionalDataSource implements DataSource {
+
+	private final DataSource target;
+	private final ThreadLocal<Connection> bound = new ThreadLocal<>();
+
+	public TransactionalDataSource(DataSource target) {
+		this.target = target;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		Connection con = bound.get();
+		if (con != null) {
+			return participating(con);
+		}
+		return target.getConnection();
+	}
+
+	/**
+	 * Conexao fisica do pool, sem vinculo com a thread, para o dono da
+	 * transacao.
+	 */
+	public Connection getTargetConnection() throws SQLException {
+		return target.getConnection();
+	}
+
+	public void bind(Connection con) {
+		if (bound.get() != null) {
+			throw new IllegalStateException("Ja existe uma conexao vinculada a esta thread");
+		}
+		bound.set(con);
+	}
+
+	public void unbind() {
+		bound.remove();
+	}
+
+	public boolean isBound() {
+		return bound.get() != null;
+	}
+
+	private static Connection participating(Connection con) {
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						String name = method.getName();
+						if ("close".equals(name) || "commit".equals(name) || "setAutoCommit".equals(name)
+								|| ("rollback".equals(name) && args == null)) {
+							return null;
+						}
+						if ("equals".equals(name)) {
+							return proxy == args[0];
+						}
+						if ("hashCode".equals(name)) {
+							return System.identityHashCode(proxy);
+						}
+						try {
+							return method.invoke(con, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					}
+				});
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		throw new SQLFeatureNotSupportedException("Use getConnection()");
+	}
+
+	@Override
+	public PrintWriter getLogWriter() throws SQLException {
+		return target.getLogWriter();
+	}
+
+	@Override
+	public void setLogWriter(PrintWriter out) throws SQLException {
+		target.setLogWriter(out);
+	}
+
+	@Override
+	public void setLoginTimeout(int seconds) throws SQLException {
+		target.setLoginTimeout(seconds);
+	}
+
+	@Override
+	public int getLoginTimeout() throws SQLException {
+		return target.getLoginTimeout();
+	}
+
+	@Override
+	public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+		return target.getParentLogger();
+	}
+
+	@Override
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		return target.unwrap(iface);
+	}
+
+	@Override
+	public boolean isWrapperFor(Class<?> iface) throws SQLException {
+		return iface.isInstance(this) || target.isWrapperFor(iface);
+	}
+}
@@ -7,10 +7,14 @@ import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
 
-import db.DBException;
+import db.DbConflictException;
+import gui.listeners.DataChangeBus;
+import gui.listeners.DataChangeEvent;
 import gui.listeners.DataChangeListener;
 import gui.util.Alerts;
+import gui.util.AsyncTasks;
 import gui.util.Constraints;
+import gui.util.MergeDialog;
 import gui.util.Utils;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -19,6 +23,7 @@ import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
+import javafx.stage.Stage;
 import model.entities.Department;
 import model.exception.ValidationException;
 import model.service.DepartmentService;
@@ -70,22 +75,61 @@ public class DepartmentFormController implements Initializable {
 		
 		try {
 			department = getFormData();
-			service.saveOrUpdate(department);
-			notifyDataChangeListeners();
-			Utils.currentStage(event).close();
-		}
-		catch(DBException e) {
-			Alerts.showAlert("Error saving object", null, e.getMessage(), AlertType.ERROR);
 		}
 		catch(ValidationException e) {
 			setErrorMessages(e.getErrors());
+			return;
 		}
+		
+		Stage stage = Utils.currentStage(event);
+		setSaving(true);
+		DataChangeEvent.Type type = department.getId() == null ? DataChangeEvent.Type.INSERT : DataChangeEvent.Type.UPDATE;
+		AsyncTasks.whenDone(service.saveOrUpdateAsync(department), x -> {
+			notifyDataChangeListeners(new DataChangeEvent(type, department.getId(), department));
+			stage.close();
+		}, e -> {
+			if (e instanceof DbConflictException) {
+				resolveConflict();
+				return;
+			}
+			setSaving(false);
+			Alerts.showAlert("Error saving object", null, e.getMessage(), AlertType.ERROR);
+		});
+	}
+	
+	private void resolveConflict() {
+		Department mine = department;
+		AsyncTasks.whenDone(service.findByIdAsync(mine.getId()), current -> {
+			setSaving(false);
+			if(current == null) {
+				Alerts.showAlert("Error saving object", null, "This department was removed by another user.", AlertType.ERROR);
+				return;
+			}
+			new MergeDialog()
+					.addField("Name", mine.getName(), current.getName())
+					.showAndWait("Department changed by another user")
+					.ifPresent(useCurrent -> {
+						Department merged = new Department(mine.getId(), useCurrent.contains("Name") ? current.getName() : mine.getName());
+						merged.setVersion(current.getVersion());
+						department = merged;
+						updateFormData();
+					});
+		}, e -> {
+			setSaving(false);
+			Alerts.showAlert("Error saving object", null, e.getMessage(), AlertType.ERROR);
+		});
+	}
+	
+	private void setSaving(boolean saving) {
+		btSave.setDisable(saving);
+		btCancel.setDisable(saving);
 	}
 	
-	private void notifyDataChangeListeners() {
+	private void notifyDataChangeListeners(DataChangeEvent event) {
 		for(DataChangeListener listener : dataChangeListeners) {
-			listener.onDataChanged();
+			listener.onDataChanged(event);
 		}
+		DataChangeBus.publish(event);
 	}
 
 	private Department getFormData() {
@@ -102,7 +146,9 @@ public class DepartmentFormController implements Initializable {
 			throw exception;
 		}
 		
-		return new Department(id, name);
+		Department obj = new Department(id, name);
+		obj.setVersion(department.getVersion());
+		return obj;
 	}
 
 	@FXML
@@ -2,26 +2,39 @@ package gui;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.Set;
 
 import application.Main;
 import db.DbIntegrityException;
+import gui.listeners.DataChangeBus;
+import gui.listeners.DataChangeEvent;
 import gui.listeners.DataChangeListener;
 import gui.util.Alerts;
+import gui.util.AsyncTasks;
 import gui.util.Utils;
+import gui.util.ViewLoader;
+import javafx.animation.PauseTransition;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.ChoiceDialog;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.SplitPane;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
@@ -29,13 +42,21 @@ import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.Pane;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import model.entities.Department;
+import model.entities.Seller;
 import model.service.DepartmentService;
+import model.service.SellerPageCache;
+import model.service.SellerService;
 
 public class DepartmentListController implements Initializable, DataChangeListener {
 
+	private static boolean pageInvalidationSubscribed;
+
 	private DepartmentService departmentService;
 
+	private SellerService sellerService;
+
 	@FXML
 	private TableView<Department> tableViewDepartment;
 
@@ -54,8 +75,50 @@ public class DepartmentListController implements Initializable, DataChangeListen
 	@FXML
 	private Button btNew;
 
+	@FXML
+	private ProgressIndicator progressIndicator;
+
+	@FXML
+	private SplitPane splitPane;
+
+	@FXML
+	private Label labelSellers;
+
+	@FXML
+	private TableView<Seller> tableViewSeller;
+
+	@FXML
+	private TableColumn<Seller, Integer> tableColumnSellerId;
+
+	@FXML
+	private TableColumn<Seller, String> tableColumnSellerName;
+
+	@FXML
+	private TableColumn<Seller, String> tableColumnSellerEmail;
+
+	@FXML
+	private TableColumn<Seller, Double> tableColumnSellerBaseSalary;
+
 	private ObservableList<Department> obsList;
 
+	private Map<Integer, Department> rowsById = new HashMap<>();
+
+	private Department detailDepartment;
+
+	private Set<Integer> detailIds = new HashSet<>();
+
+	private int detailPages;
+
+	private boolean detailHasMore;
+
+	private boolean loadingDetail;
+
+	private int detailRequest;
+
+	private int lastSelectedIndex = -1;
+
+	private final PauseTransition detailReload = new PauseTransition(Duration.millis(300));
+
 	@FXML
 	public void onBtNewAction(ActionEvent event) {
 		Department department = new Department();
@@ -64,6 +127,46 @@ public class DepartmentListController implements Initializable, DataChangeListen
 
 	public void setDepartmentService(DepartmentService departmentService) {
 		this.departmentService = departmentService;
+		DataChangeBus.subscribeView(event -> {
+			if (event.isRemote() && event.getEntity() instanceof Department && obsList != null) {
+				onDataChanged(event);
+			}
+		});
+	}
+
+	public void setSellerService(SellerService sellerService) {
+		this.sellerService = sellerService;
+		subscribePageInvalidation();
+		DataChangeBus.subscribeView(event -> {
+			if (event.getEntity() instanceof Seller && affectsDetail(event)) {
+				detailReload.playFromStart();
+			}
+		});
+	}
+
+	/*
+	 * O cache de paginas sobrevive a troca de tela, por isso a invalidacao
+	 * fica inscrita de forma permanente no DataChangeBus.
+	 */
+	private static void subscribePageInvalidation() {
+		if (pageInvalidationSubscribed) {
+			return;
+		}
+		pageInvalidationSubscribed = true;
+		SellerPageCache pages = SellerService.getDepartmentPages();
+		DataChangeBus.subscribe(event -> {
+			Object entity = event.getEntity();
+			if (entity instanceof Seller) {
+				pages.invalidateSeller(event.getId());
+				Department department = ((Seller) entity).getDepartment();
+				if (department != null) {
+					pages.invalidateDepartment(department.getId());
+				}
+			} else if (entity instanceof Department && event.getType() == DataChangeEvent.Type.DELETE) {
+				// os sellers podem ter sido movidos para outro departamento
+				pages.invalidateAll();
+			}
+		});
 	}
 
 	@Override
@@ -76,26 +179,135 @@ public class DepartmentListController implements Initializable, DataChangeListen
 		tableColumnName.setCellValueFactory(new PropertyValueFactory<>("name"));
 
 		Stage stage = (Stage) Main.getMainScene().getWindow();
-		tableViewDepartment.prefHeightProperty().bind(stage.heightProperty());
+		splitPane.prefHeightProperty().bind(stage.heightProperty());
+		initEditButtons();
+		initRemoveButtons();
+		initSellerDetail();
+	}
+
+	private void initSellerDetail() {
+		tableColumnSellerId.setCellValueFactory(new PropertyValueFactory<>("id"));
+		tableColumnSellerName.setCellValueFactory(new PropertyValueFactory<>("name"));
+		tableColumnSellerEmail.setCellValueFactory(new PropertyValueFactory<>("email"));
+		tableColumnSellerBaseSalary.setCellValueFactory(new PropertyValueFactory<>("baseSalary"));
+		Utils.formatTableColumnDouble(tableColumnSellerBaseSalary, 2);
+
+		tableViewDepartment.getSelectionModel().selectedItemProperty().addListener((obs, oldValue, newValue) -> {
+			showSellers(newValue);
+			prefetchNeighbour();
+		});
+		detailReload.setOnFinished(event -> showSellers(detailDepartment));
+		Utils.onScrollNearEnd(tableViewSeller, this::loadDetailPage);
 	}
 
 	public void updateTableView() {
 		if (departmentService == null) {
 			throw new IllegalStateException("Service was null!");
 		}
-		List<Department> list = departmentService.findAll();
-		obsList = FXCollections.observableArrayList(list);
-		tableViewDepartment.setItems(obsList);
-		initEditButtons();
-		initRemoveButtons();
+		setLoading(true);
+		AsyncTasks.forView(departmentService.findAllAsync(), list -> {
+			setLoading(false);
+			obsList = FXCollections.observableArrayList(list);
+			rowsById.clear();
+			for (Department department : list) {
+				rowsById.put(department.getId(), department);
+			}
+			tableViewDepartment.setItems(obsList);
+			if (!list.isEmpty()) {
+				sellerService.prefetchDepartmentPage(list.get(0), 0);
+			}
+		}, e -> {
+			setLoading(false);
+			Alerts.showAlert("Error loading departments", null, e.getMessage(), AlertType.ERROR);
+		});
+	}
+
+	private void showSellers(Department department) {
+		detailRequest++;
+		detailDepartment = department;
+		detailIds.clear();
+		detailPages = 0;
+		detailHasMore = true;
+		loadingDetail = false;
+		tableViewSeller.setItems(FXCollections.observableArrayList());
+		if (department == null) {
+			labelSellers.setText("Select a department to see its sellers");
+			return;
+		}
+		labelSellers.setText(department.getName() + ": loading...");
+		loadDetailPage();
+	}
+
+	private void loadDetailPage() {
+		if (loadingDetail || !detailHasMore || detailDepartment == null) {
+			return;
+		}
+		Department department = detailDepartment;
+		int request = detailRequest;
+		int index = detailPages;
+		loadingDetail = true;
+		AsyncTasks.forView(sellerService.findDepartmentPageAsync(department, index), page -> {
+			if (request != detailRequest) {
+				return;
+			}
+			loadingDetail = false;
+			detailPages++;
+			detailHasMore = page.size() == SellerService.getDepartmentPages().getPageSize();
+			for (Seller seller : page) {
+				detailIds.add(seller.getId());
+			}
+			tableViewSeller.getItems().addAll(page);
+			labelSellers.setText(department.getName() + ": " + tableViewSeller.getItems().size()
+					+ (detailHasMore ? "+" : "") + " sellers");
+			if (detailHasMore) {
+				// a proxima pagina ja fica pronta para a rolagem
+				sellerService.prefetchDepartmentPage(department, detailPages);
+			}
+		}, e -> {
+			if (request != detailRequest) {
+				return;
+			}
+			loadingDetail = false;
+			labelSellers.setText(department.getName());
+			Alerts.showAlert("Error loading sellers", null, e.getMessage(), AlertType.ERROR);
+		});
+	}
+
+	/*
+	 * Le antes a primeira pagina do departamento vizinho, na direcao em que
+	 * o usuario esta andando pela lista.
+	 */
+	private void prefetchNeighbour() {
+		int index = tableViewDepartment.getSelectionModel().getSelectedIndex();
+		if (index < 0) {
+			return;
+		}
+		int next = index < lastSelectedIndex ? index - 1 : index + 1;
+		lastSelectedIndex = index;
+		if (next >= 0 && next < tableViewDepartment.getItems().size()) {
+			sellerService.prefetchDepartmentPage(tableViewDepartment.getItems().get(next), 0);
+		}
+	}
+
+	private boolean affectsDetail(DataChangeEvent event) {
+		if (detailDepartment == null) {
+			return false;
+		}
+		Department department = ((Seller) event.getEntity()).getDepartment();
+		return detailIds.contains(event.getId())
+				|| (department != null && detailDepartment.getId().equals(department.getId()));
+	}
+
+	private void setLoading(boolean loading) {
+		progressIndicator.setVisible(loading);
 	}
 
 	private void createDialogForm(Department obj, String absoluteName, Stage parentStage) {
 		try {
-			FXMLLoader loader = new FXMLLoader(getClass().getResource(absoluteName));
-			Pane pane = loader.load();
+			ViewLoader.View<DepartmentFormController> view = ViewLoader.load(absoluteName);
+			Pane pane = view.getRoot();
 
-			DepartmentFormController controller = loader.getController();
+			DepartmentFormController controller = view.getController();
 			controller.setDepartment(obj);
 			controller.setDepartmentService(new DepartmentService());
 			controller.subscribeDataChangeListener(this);
@@ -115,8 +327,32 @@ public class DepartmentListController implements Initializable, DataChangeListen
 	}
 
 	@Override
-	public void onDataChanged() {
-		updateTableView();
+	public void onDataChanged(DataChangeEvent event) {
+		if (obsList == null) {
+			updateTableView();
+			return;
+		}
+		Department department = (Department) event.getEntity();
+		Department row = rowsById.get(event.getId());
+		switch (event.getType()) {
+		case INSERT:
+		case UPDATE:
+			if (row == null) {
+				rowsById.put(department.getId(), department);
+				obsList.add(department);
+			} else {
+				row.setName(department.getName());
+				row.setVersion(department.getVersion());
+				tableViewDepartment.refresh();
+			}
+			break;
+		case DELETE:
+			if (row != null) {
+				rowsById.remove(event.getId());
+				obsList.remove(row);
+			}
+			break;
+		}
 	}
 
 	private void initEditButtons() {
@@ -167,12 +403,42 @@ public class DepartmentListController implements Initializable, DataChangeListen
 			if(departmentService == null) {
 				throw new IllegalStateException("Service was null!");
 			}
-			try {
-			    departmentService.remove(obj);
-			    updateTableView();
-			}catch(DbIntegrityException e) {
-				Alerts.showAlert("Error removing object", null, e.getMessage(), AlertType.ERROR);
-			}
+			setLoading(true);
+			AsyncTasks.whenDone(departmentService.removeAsync(obj), x -> onRemoved(obj), e -> {
+				setLoading(false);
+				if (e instanceof DbIntegrityException) {
+					offerReassign(obj);
+				} else {
+					Alerts.showAlert("Error removing object", null, e.getMessage(), AlertType.ERROR);
+				}
+			});
+		}
+	}
+
+	private void offerReassign(Department obj) {
+		List<Department> targets = new ArrayList<>(obsList);
+		targets.remove(obj);
+		if (targets.isEmpty()) {
+			Alerts.showAlert("Error removing object", null, "This department still has sellers.", AlertType.ERROR);
+			return;
 		}
+		ChoiceDialog<Department> dialog = new ChoiceDialog<>(targets.get(0), targets);
+		dialog.setTitle("Department has sellers");
+		dialog.setHeaderText("Move the sellers of " + obj.getName() + " before deleting it?");
+		dialog.setContentText("Move to:");
+		dialog.showAndWait().ifPresent(target -> {
+			setLoading(true);
+			AsyncTasks.whenDone(departmentService.removeAndReassignAsync(obj, target), moved -> onRemoved(obj), e -> {
+				setLoading(false);
+				Alerts.showAlert("Error removing object", null, e.getMessage(), AlertType.ERROR);
+			});
+		});
+	}
+
+	private void onRemoved(Department obj) {
+		setLoading(false);
+		DataChangeEvent deleted = new DataChangeEvent(DataChangeEvent.Type.DELETE, obj.getId(), obj);
+		onDataChanged(deleted);
+		DataChangeBus.publish(deleted);
 	}
 }
\ No newline at end of file
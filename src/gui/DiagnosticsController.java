@@ -0,0 +1,203 @@
+package gui;
+
+import java.net.URL;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+import application.Main;
+import application.StartupTimings;
+import db.LatencyHistogram;
+import db.DB;
+import db.PoolMetrics;
+import db.QueryMetrics;
+import db.QuerySummary;
+import db.ReplicaStatus;
+import gui.listeners.ChangeFeedBridge;
+import gui.util.Constraints;
+import gui.util.Utils;
+import gui.util.ViewLoader;
+import javafx.collections.FXCollections;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.stage.Stage;
+import model.dao.CacheStats;
+import model.dao.DaoFactory;
+import model.service.QueryResultCache;
+import model.service.SellerService;
+import model.service.SyncService;
+
+public class DiagnosticsController implements Initializable {
+
+	@FXML
+	private TableView<QuerySummary> tableViewQueries;
+
+	@FXML
+	private TableColumn<QuerySummary, String> tableColumnName;
+
+	@FXML
+	private TableColumn<QuerySummary, Long> tableColumnCalls;
+
+	@FXML
+	private TableColumn<QuerySummary, Long> tableColumnRows;
+
+	@FXML
+	private TableColumn<QuerySummary, Long> tableColumnErrors;
+
+	@FXML
+	private TableColumn<QuerySummary, Long> tableColumnSlow;
+
+	@FXML
+	private TableColumn<QuerySummary, Double> tableColumnTotal;
+
+	@FXML
+	private TableColumn<QuerySummary, Double> tableColumnMean;
+
+	@FXML
+	private TableColumn<QuerySummary, Double> tableColumnP95;
+
+	@FXML
+	private TableColumn<QuerySummary, Double> tableColumnP99;
+
+	@FXML
+	private TableColumn<QuerySummary, Double> tableColumnMax;
+
+	@FXML
+	private TableColumn<QuerySummary, Double> tableColumnWait;
+
+	@FXML
+	private Button btRefresh;
+
+	@FXML
+	private Button btReset;
+
+	@FXML
+	private TextField txtSlowQueryMs;
+
+	@FXML
+	private Label labelPool;
+
+	@FXML
+	private Label labelStartup;
+
+	@FXML
+	public void onBtRefreshAction(ActionEvent event) {
+		updateView();
+	}
+
+	@FXML
+	public void onBtResetAction(ActionEvent event) {
+		QueryMetrics.reset();
+		updateView();
+	}
+
+	@FXML
+	public void onTxtSlowQueryMsAction(ActionEvent event) {
+		Integer millis = Utils.tryParseInt(txtSlowQueryMs.getText());
+		if (millis != null) {
+			QueryMetrics.setSlowQueryThresholdMs(millis);
+		}
+		txtSlowQueryMs.setText(String.valueOf(QueryMetrics.getSlowQueryThresholdMs()));
+	}
+
+	@Override
+	public void initialize(URL url, ResourceBundle rb) {
+		tableColumnName.setCellValueFactory(new PropertyValueFactory<>("name"));
+		tableColumnCalls.setCellValueFactory(new PropertyValueFactory<>("calls"));
+		tableColumnRows.setCellValueFactory(new PropertyValueFactory<>("rows"));
+		tableColumnErrors.setCellValueFactory(new PropertyValueFactory<>("errors"));
+		tableColumnSlow.setCellValueFactory(new PropertyValueFactory<>("slowStatements"));
+		tableColumnTotal.setCellValueFactory(new PropertyValueFactory<>("totalMillis"));
+		tableColumnMean.setCellValueFactory(new PropertyValueFactory<>("meanMillis"));
+		tableColumnP95.setCellValueFactory(new PropertyValueFactory<>("p95Millis"));
+		tableColumnP99.setCellValueFactory(new PropertyValueFactory<>("p99Millis"));
+		tableColumnMax.setCellValueFactory(new PropertyValueFactory<>("maxMillis"));
+		tableColumnWait.setCellValueFactory(new PropertyValueFactory<>("meanConnectionWaitMillis"));
+		Utils.formatTableColumnDouble(tableColumnTotal, 1);
+		Utils.formatTableColumnDouble(tableColumnMean, 2);
+		Utils.formatTableColumnDouble(tableColumnP95, 0);
+		Utils.formatTableColumnDouble(tableColumnP99, 0);
+		Utils.formatTableColumnDouble(tableColumnMax, 2);
+		Utils.formatTableColumnDouble(tableColumnWait, 2);
+		Constraints.setTextFieldInteger(txtSlowQueryMs);
+
+		Stage stage = (Stage) Main.getMainScene().getWindow();
+		tableViewQueries.prefHeightProperty().bind(stage.heightProperty());
+	}
+
+	public void updateView() {
+		tableViewQueries.setItems(FXCollections.observableArrayList(QueryMetrics.getSummaries()));
+		txtSlowQueryMs.setText(String.valueOf(QueryMetrics.getSlowQueryThresholdMs()));
+		labelStartup.setText(startupText());
+
+		labelPool.setText(poolText() + replicaText() + syncText() + cacheText());
+	}
+
+	private String poolText() {
+		PoolMetrics pool = DB.getPoolMetrics();
+		if (pool == null) {
+			return "Connection pool not started";
+		}
+		return String.format(Locale.US,
+				"Pool: %d active, %d idle, %d waiting (max %d), %d timeouts, wait p99 %.0f ms, statement cache hit %d / miss %d",
+				pool.getActive(), pool.getIdle(), pool.getWaiting(), pool.getMaxSize(), pool.getTimeouts(),
+				pool.getWaitTime().getPercentileMillis(99), pool.getStatementCacheHits(),
+				pool.getStatementCacheMisses())
+				+ String.format("%nDatabase %s: circuit %s, %d rejected, %d failovers, transitions %s",
+						pool.getActiveUrl(), pool.getBreakerState(), pool.getBreakerRejected(), pool.getFailovers(),
+						pool.getBreakerTransitions());
+	}
+
+	private String replicaText() {
+		StringBuilder sb = new StringBuilder();
+		for (ReplicaStatus replica : DB.getReplicaStatus()) {
+			sb.append(String.format(Locale.US, "%nReplica %s: %s, lag %s, %d reads, %d failures", replica.getUrl(),
+					replica.isAvailable() ? "up" : "down",
+					replica.getLagMillis() == Long.MAX_VALUE ? "unknown" : replica.getLagMillis() + " ms",
+					replica.getReads(), replica.getFailures()));
+		}
+		return sb.toString();
+	}
+
+	private String syncText() {
+		SyncService sync = ChangeFeedBridge.getSyncService();
+		if (sync == null) {
+			return "";
+		}
+		long lastSync = sync.getLastSync();
+		return String.format(Locale.US, "%nOffline replica: %s, %d pending changes, last sync %s",
+				sync.isOnline() ? "online" : "offline", sync.getPendingCount(),
+				lastSync == 0 ? "never" : (System.currentTimeMillis() - lastSync) / 1000 + " s ago");
+	}
+
+	private String cacheText() {
+		QueryResultCache queryCache = QueryResultCache.getShared();
+		return cacheLine("Query cache", queryCache.getStats())
+				+ String.format(", %d results, %d stale", queryCache.getEntryCount(), queryCache.getStaleCount())
+				+ cacheLine("Department cache", DaoFactory.getDepartmentCache().getStats())
+				+ cacheLine("Seller page cache", SellerService.getDepartmentPages().getStats());
+	}
+
+	private static String cacheLine(String name, CacheStats stats) {
+		return String.format(Locale.US, "%n%s: hit ratio %.2f (%d / %d), %d evictions, %d rows", name,
+				stats.getHitRatio(), stats.getHits(), stats.getHits() + stats.getMisses(), stats.getEvictions(),
+				stats.getSize());
+	}
+
+	private String startupText() {
+		StringBuilder sb = new StringBuilder("Startup: ").append(StartupTimings.report());
+		for (Map.Entry<String, LatencyHistogram> entry : ViewLoader.getLoadTimes().entrySet()) {
+			LatencyHistogram times = entry.getValue();
+			sb.append(String.format(Locale.US, "%n%s: %d loads, mean %.1f ms, max %.1f ms", entry.getKey(),
+					times.getCount(), times.getMeanMillis(), times.getMaxMillis()));
+		}
+		return sb.toString();
+	}
+}
@@ -6,17 +6,24 @@ import java.util.ResourceBundle;
 import java.util.function.Consumer;
 
 import application.Main;
+import db.CircuitBreaker;
+import db.DB;
+import gui.listeners.DataChangeBus;
 import gui.util.Alerts;
+import gui.util.AsyncTasks;
+import gui.util.ViewLoader;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.Label;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.ScrollPane;
 import javafx.scene.layout.VBox;
 import model.service.DepartmentService;
+import model.service.SalaryReportService;
 import model.service.SellerService;
 
 public class MainViewController implements Initializable {
@@ -27,9 +34,21 @@ public class MainViewController implements Initializable {
 	@FXML
 	private MenuItem menuItemDepartment;
 	
+	@FXML
+	private MenuItem menuItemSalaryReport;
+	
+	@FXML
+	private MenuItem menuItemSellerAnalysis;
+	
+	@FXML
+	private MenuItem menuItemDiagnostics;
+	
 	@FXML
 	private MenuItem menuItemAbout;
 	
+	@FXML
+	private Label labelDegraded;
+	
 	@FXML
 	public void onMenuItemSellerAction() {
 		loadView("/gui/SellerList.fxml", (SellerListController controller) -> {
@@ -42,10 +61,30 @@ public class MainViewController implements Initializable {
 	public void onMenuItemDepartmentAction() {
 		loadView("/gui/DepartmentList.fxml", (DepartmentListController controller) -> {
 			controller.setDepartmentService(new DepartmentService());
+			controller.setSellerService(new SellerService());
 			controller.updateTableView();
 		});
 	}
 	
+	@FXML
+	public void onMenuItemSalaryReportAction() {
+		loadView("/gui/SalaryReport.fxml", (SalaryReportController controller) -> {
+			controller.setReportService(new SalaryReportService());
+			controller.updateReport();
+		});
+	}
+	
+	@FXML
+	public void onMenuItemSellerAnalysisAction() {
+		loadView("/gui/SellerAnalysis.fxml",
+				(SellerAnalysisController controller) -> controller.setSellerService(new SellerService()));
+	}
+	
+	@FXML
+	public void onMenuItemDiagnosticsAction() {
+		loadView("/gui/Diagnostics.fxml", (DiagnosticsController controller) -> controller.updateView());
+	}
+	
 	@FXML
 	public void onMenuItemAboutAction() {
 		loadView("/gui/About.fxml", x -> {});
@@ -53,24 +92,37 @@ public class MainViewController implements Initializable {
 
 	@Override
 	public void initialize(URL url, ResourceBundle resources) {
-		
+		labelDegraded.managedProperty().bind(labelDegraded.visibleProperty());
+		DB.addCircuitBreakerListener((from, to) -> Platform.runLater(() -> showDegraded(to)));
+	}
+	
+	private void showDegraded(CircuitBreaker.State state) {
+		if (state == CircuitBreaker.State.CLOSED) {
+			labelDegraded.setVisible(false);
+			return;
+		}
+		labelDegraded.setText(DB.isOfflineEnabled()
+				? "Central database unavailable: changes are saved locally and will be synchronized later."
+				: "Database unavailable: working in degraded mode, reconnecting automatically...");
+		labelDegraded.setVisible(true);
 	}
 	
 	public synchronized <T> void loadView(String absoluteName, Consumer<T> initializingAction) {
+		AsyncTasks.cancelViewTasks();
+		DataChangeBus.clearViewListeners();
 		try {
-			FXMLLoader loader = new FXMLLoader(getClass().getResource(absoluteName));
-			VBox newVBox = loader.load();
+			ViewLoader.View<T> view = ViewLoader.load(absoluteName);
+			VBox newVBox = view.getRoot();
 			
 			Scene mainScene = Main.getMainScene();
 			VBox mainVBox = (VBox) ((ScrollPane) mainScene.getRoot()).getContent();
 			
 			Node mainMenu = mainVBox.getChildren().get(0);
 			mainVBox.getChildren().clear();
-			mainVBox.getChildren().add(mainMenu);
+			mainVBox.getChildren().addAll(mainMenu, labelDegraded);
 			mainVBox.getChildren().addAll(newVBox.getChildren());
 			
-			T controller = loader.getController();
-			initializingAction.accept(controller);
+			initializingAction.accept(view.getController());
 		} catch (IOException e) {
 			Alerts.showAlert("IOException", "Erro loading view", e.getMessage(), AlertType.ERROR);
 		}
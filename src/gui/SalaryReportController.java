@@ -0,0 +1,180 @@
+package gui;
+
+import java.net.URL;
+import java.util.List;
+import java.util.Locale;
+import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+
+import application.Main;
+import gui.listeners.DataChangeBus;
+import gui.listeners.DataChangeEvent;
+import gui.listeners.DataChangeListener;
+import gui.util.Alerts;
+import gui.util.AsyncTasks;
+import gui.util.Utils;
+import javafx.animation.PauseTransition;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+import model.entities.DepartmentSalaryStats;
+import model.entities.Seller;
+import model.service.SalaryReportService;
+
+public class SalaryReportController implements Initializable, DataChangeListener {
+
+	private SalaryReportService service;
+
+	private final PauseTransition remoteReload = new PauseTransition(Duration.millis(500));
+
+	@FXML
+	private TableView<DepartmentSalaryStats> tableViewReport;
+
+	@FXML
+	private TableColumn<DepartmentSalaryStats, String> tableColumnDepartment;
+
+	@FXML
+	private TableColumn<DepartmentSalaryStats, Long> tableColumnCount;
+
+	@FXML
+	private TableColumn<DepartmentSalaryStats, Double> tableColumnSum;
+
+	@FXML
+	private TableColumn<DepartmentSalaryStats, Double> tableColumnAverage;
+
+	@FXML
+	private TableColumn<DepartmentSalaryStats, Double> tableColumnMin;
+
+	@FXML
+	private TableColumn<DepartmentSalaryStats, Double> tableColumnMax;
+
+	@FXML
+	private TableColumn<DepartmentSalaryStats, Double> tableColumnMedian;
+
+	@FXML
+	private TableColumn<DepartmentSalaryStats, Double> tableColumnP90;
+
+	@FXML
+	private Button btRefresh;
+
+	@FXML
+	private ProgressIndicator progressIndicator;
+
+	@FXML
+	private Label labelStatus;
+
+	@FXML
+	private Label labelTotal;
+
+	@FXML
+	public void onBtRefreshAction(ActionEvent event) {
+		updateReport();
+	}
+
+	public void setReportService(SalaryReportService service) {
+		this.service = service;
+		DataChangeBus.subscribeView(this);
+	}
+
+	@Override
+	public void initialize(URL url, ResourceBundle rb) {
+		tableColumnDepartment.setCellValueFactory(new PropertyValueFactory<>("departmentName"));
+		tableColumnCount.setCellValueFactory(new PropertyValueFactory<>("count"));
+		tableColumnSum.setCellValueFactory(new PropertyValueFactory<>("sum"));
+		tableColumnAverage.setCellValueFactory(new PropertyValueFactory<>("average"));
+		tableColumnMin.setCellValueFactory(new PropertyValueFactory<>("min"));
+		tableColumnMax.setCellValueFactory(new PropertyValueFactory<>("max"));
+		tableColumnMedian.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue().getMedian()));
+		tableColumnP90.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue().getPercentile90()));
+		Utils.formatTableColumnDouble(tableColumnSum, 2);
+		Utils.formatTableColumnDouble(tableColumnAverage, 2);
+		Utils.formatTableColumnDouble(tableColumnMin, 2);
+		Utils.formatTableColumnDouble(tableColumnMax, 2);
+		Utils.formatTableColumnDouble(tableColumnMedian, 2);
+		Utils.formatTableColumnDouble(tableColumnP90, 2);
+
+		Stage stage = (Stage) Main.getMainScene().getWindow();
+		tableViewReport.prefHeightProperty().bind(stage.heightProperty());
+	}
+
+	/**
+	 * Recalcula o relatorio inteiro no banco.
+	 */
+	public void updateReport() {
+		if (service == null) {
+			throw new IllegalStateException("Service was null!");
+		}
+		long start = System.nanoTime();
+		setLoading(true);
+		AsyncTasks.forView(service.loadAsync(), list -> {
+			setLoading(false);
+			showReport(list, "Loaded", start);
+		}, this::onError);
+	}
+
+	@Override
+	public void onDataChanged(DataChangeEvent event) {
+		if (service == null) {
+			return;
+		}
+		if (event.isRemote()) {
+			// sem o estado anterior da linha: recalcula uma vez por rajada
+			remoteReload.setOnFinished(e -> updateReport());
+			remoteReload.playFromStart();
+			return;
+		}
+		if (!(event.getEntity() instanceof Seller)) {
+			// departamento criado, renomeado ou removido
+			updateReport();
+			return;
+		}
+		long start = System.nanoTime();
+		Seller seller = (Seller) event.getEntity();
+		switch (event.getType()) {
+		case INSERT:
+			service.applyInsert(seller);
+			break;
+		case UPDATE:
+			service.applyUpdate((Seller) event.getPrevious(), seller);
+			break;
+		case DELETE:
+			service.applyDelete(seller);
+			break;
+		}
+		showReport(service.getReport(), "Updated", start);
+
+		if (service.hasStale()) {
+			CompletableFuture<List<DepartmentSalaryStats>> refresh = service.refreshStaleAsync();
+			AsyncTasks.forView(refresh, list -> showReport(list, "Updated", start), this::onError);
+		}
+	}
+
+	private void showReport(List<DepartmentSalaryStats> list, String action, long start) {
+		tableViewReport.setItems(FXCollections.observableArrayList(list));
+		DepartmentSalaryStats total = service.getTotal();
+		labelTotal.setText(String.format(Locale.US, "%d sellers, total %.2f, average %.2f", total.getCount(),
+				total.getSum(), total.getAverage() == null ? 0.0 : total.getAverage()));
+		labelStatus.setText(String.format(Locale.US, "%s in %.1f ms", action, (System.nanoTime() - start) / 1e6));
+	}
+
+	private void setLoading(boolean loading) {
+		progressIndicator.setVisible(loading);
+		btRefresh.setDisable(loading);
+	}
+
+	private void onError(Throwable e) {
+		setLoading(false);
+		Alerts.showAlert("Error loading report", null, e.getMessage(), AlertType.ERROR);
+	}
+}
@@ -0,0 +1,238 @@
+package gui;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
+
+import application.Main;
+import gui.util.Alerts;
+import gui.util.AsyncTasks;
+import gui.util.Utils;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
+import javafx.event.ActionEvent;
+import javafx.fxml.FXML;
+import javafx.fxml.Initializable;
+import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.stage.Stage;
+import javafx.util.Callback;
+import model.entities.Department;
+import model.entities.SellerStore;
+import model.entities.SellerStore.Row;
+import model.service.SellerService;
+import model.service.ServiceExecutor;
+
+/**
+ * Analise de todos os sellers em memoria usando o {@link SellerStore}
+ * colunar. Ordenacao e filtro por departamento sao feitos sobre arrays de
+ * indices, sem criar objetos Seller.
+ */
+public class SellerAnalysisController implements Initializable {
+
+	private SellerService service;
+
+	private SellerStore store;
+
+	// linhas exibidas, na ordem da tabela
+	private int[] rows;
+
+	private String sortedBy = "";
+
+	private CompletableFuture<int[]> currentSort;
+
+	private final Map<TableColumn<Row, ?>, SellerStore.Column> columns = new HashMap<>();
+
+	@FXML
+	private TableView<Row> tableViewSeller;
+
+	@FXML
+	private TableColumn<Row, Integer> tableColumnId;
+
+	@FXML
+	private TableColumn<Row, String> tableColumnName;
+
+	@FXML
+	private TableColumn<Row, String> tableColumnEmail;
+
+	@FXML
+	private TableColumn<Row, Date> tableColumnBirthDate;
+
+	@FXML
+	private TableColumn<Row, Double> tableColumnBaseSalary;
+
+	@FXML
+	private TableColumn<Row, String> tableColumnDepartment;
+
+	@FXML
+	private Button btLoad;
+
+	@FXML
+	private ComboBox<Department> comboBoxDepartment;
+
+	@FXML
+	private ProgressIndicator progressIndicator;
+
+	@FXML
+	private Label labelStatus;
+
+	@FXML
+	private Label labelTotal;
+
+	@FXML
+	public void onBtLoadAction(ActionEvent event) {
+		loadStore();
+	}
+
+	@FXML
+	public void onComboBoxDepartmentAction(ActionEvent event) {
+		if (store == null) {
+			return;
+		}
+		Department dep = comboBoxDepartment.getValue();
+		rows = dep == null ? store.allRows() : store.rowsOfDepartment(dep.getId());
+		sortedBy = "";
+		applySort();
+	}
+
+	public void setSellerService(SellerService service) {
+		this.service = service;
+	}
+
+	@Override
+	public void initialize(URL url, ResourceBundle rb) {
+		tableColumnId.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue().getId()));
+		tableColumnName.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue().getName()));
+		tableColumnEmail.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue().getEmail()));
+		tableColumnBirthDate
+				.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue().getBirthDate()));
+		Utils.formatTableColumnDate(tableColumnBirthDate, "dd/MM/yyyy");
+		tableColumnBaseSalary
+				.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue().getBaseSalary()));
+		Utils.formatTableColumnDouble(tableColumnBaseSalary, 2);
+		tableColumnDepartment.setCellValueFactory(param -> {
+			Department dep = param.getValue().getDepartment();
+			return new ReadOnlyObjectWrapper<>(dep == null ? null : dep.getName());
+		});
+
+		columns.put(tableColumnId, SellerStore.Column.ID);
+		columns.put(tableColumnName, SellerStore.Column.NAME);
+		columns.put(tableColumnEmail, SellerStore.Column.EMAIL);
+		columns.put(tableColumnBirthDate, SellerStore.Column.BIRTH_DATE);
+		columns.put(tableColumnBaseSalary, SellerStore.Column.BASE_SALARY);
+		columns.put(tableColumnDepartment, SellerStore.Column.DEPARTMENT);
+		tableViewSeller.setSortPolicy(table -> {
+			applySort();
+			return true;
+		});
+
+		Callback<ListView<Department>, ListCell<Department>> factory = lv -> new ListCell<Department>() {
+			@Override
+			protected void updateItem(Department item, boolean empty) {
+				super.updateItem(item, empty);
+				setText(empty ? "" : item == null ? "All departments" : item.getName());
+			}
+		};
+		comboBoxDepartment.setCellFactory(factory);
+		comboBoxDepartment.setButtonCell(factory.call(null));
+
+		Stage stage = (Stage) Main.getMainScene().getWindow();
+		tableViewSeller.prefHeightProperty().bind(stage.heightProperty());
+	}
+
+	public void loadStore() {
+		if (service == null) {
+			throw new IllegalStateException("Service was null!");
+		}
+		long start = System.nanoTime();
+		setLoading(true);
+		AsyncTasks.forView(service.loadStoreAsync(), loaded -> {
+			setLoading(false);
+			store = loaded;
+			rows = store.allRows();
+			sortedBy = "";
+
+			List<Department> deps = new ArrayList<>(store.getDepartments());
+			deps.sort(Comparator.comparing(Department::getName, Comparator.nullsFirst(Comparator.naturalOrder())));
+			deps.add(0, null);
+			comboBoxDepartment.setItems(FXCollections.observableArrayList(deps));
+			comboBoxDepartment.setValue(null);
+
+			applySort();
+			labelStatus.setText(String.format(Locale.US, "Loaded %d sellers in %.0f ms, %.1f MB", store.size(),
+					(System.nanoTime() - start) / 1e6, store.estimateBytes() / (1024.0 * 1024.0)));
+		}, this::onError);
+	}
+
+	/*
+	 * Chamado pela sortPolicy da tabela e apos carga ou filtro. A ordenacao
+	 * roda fora da FX Application Thread; a tabela so e atualizada quando
+	 * ela termina.
+	 */
+	private void applySort() {
+		if (store == null) {
+			return;
+		}
+		TableColumn<Row, ?> column = tableViewSeller.getSortOrder().isEmpty() ? null
+				: tableViewSeller.getSortOrder().get(0);
+		String key = column == null ? "" : columns.get(column) + " " + column.getSortType();
+		if (key.equals(sortedBy) && tableViewSeller.getItems().size() == rows.length) {
+			return;
+		}
+		if (currentSort != null) {
+			currentSort.cancel(true);
+		}
+		if (column == null) {
+			showRows(rows, key);
+			return;
+		}
+		SellerStore.Column storeColumn = columns.get(column);
+		boolean ascending = column.getSortType() == TableColumn.SortType.ASCENDING;
+		int[] sorted = rows.clone();
+		long start = System.nanoTime();
+		setLoading(true);
+		currentSort = ServiceExecutor.supply(() -> {
+			store.sort(sorted, storeColumn, ascending);
+			return sorted;
+		});
+		AsyncTasks.forView(currentSort, result -> {
+			setLoading(false);
+			showRows(result, key);
+			labelStatus.setText(String.format(Locale.US, "Sorted %d sellers in %.0f ms", result.length,
+					(System.nanoTime() - start) / 1e6));
+		}, this::onError);
+	}
+
+	private void showRows(int[] visible, String key) {
+		rows = visible;
+		sortedBy = key;
+		tableViewSeller.setItems(FXCollections.observableList(store.rows(visible)));
+		double total = store.sumSalary(visible);
+		labelTotal.setText(String.format(Locale.US, "%d sellers, total %.2f, average %.2f", visible.length, total,
+				visible.length == 0 ? 0.0 : total / visible.length));
+	}
+
+	private void setLoading(boolean loading) {
+		progressIndicator.setVisible(loading);
+		btLoad.setDisable(loading);
+	}
+
+	private void onError(Throwable e) {
+		setLoading(false);
+		Alerts.showAlert("Error loading sellers", null, e.getMessage(), AlertType.ERROR);
+	}
+}
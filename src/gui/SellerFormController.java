@@ -1,6 +1,7 @@
 package gui;
 
 import java.net.URL;
+import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -12,10 +13,14 @@ import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
 
-import db.DBException;
+import db.DbConflictException;
+import gui.listeners.DataChangeBus;
+import gui.listeners.DataChangeEvent;
 import gui.listeners.DataChangeListener;
 import gui.util.Alerts;
+import gui.util.AsyncTasks;
 import gui.util.Constraints;
+import gui.util.MergeDialog;
 import gui.util.Utils;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -30,6 +35,7 @@ import javafx.scene.control.Label;
 import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
 import javafx.scene.control.TextField;
+import javafx.stage.Stage;
 import javafx.util.Callback;
 import model.entities.Department;
 import model.entities.Seller;
@@ -41,6 +47,12 @@ public class SellerFormController implements Initializable {
 
 	private Seller seller;
 
+	/**
+	 * Estado do banco obtido ao resolver um conflito de versao; vira o
+	 * "anterior" do evento de UPDATE.
+	 */
+	private Seller persisted;
+
 	private SellerService service;
 
 	private DepartmentService departmentService;
@@ -77,6 +89,9 @@ public class SellerFormController implements Initializable {
 	@FXML
 	private Label labelErrorBaseSalary;
 
+	@FXML
+	private Label labelErrorDepartment;
+
 	@FXML
 	private Button btSave;
 
@@ -109,22 +124,81 @@ public class SellerFormController implements Initializable {
 			throw new IllegalStateException("Service was null!");
 		}
 
+		Seller previous = seller.getId() == null ? null : persisted != null ? persisted
+				: new Seller(seller.getId(), seller.getName(), seller.getEmail(), seller.getBirthDate(),
+						seller.getBaseSalary(), seller.getDepartment());
 		try {
 			seller = getFormData();
-			service.saveOrUpdate(seller);
-			notifyDataChangeListeners();
-			Utils.currentStage(event).close();
-		} catch (DBException e) {
-			Alerts.showAlert("Error saving object", null, e.getMessage(), AlertType.ERROR);
 		} catch (ValidationException e) {
 			setErrorMessages(e.getErrors());
+			return;
 		}
+
+		Stage stage = Utils.currentStage(event);
+		setSaving(true);
+		DataChangeEvent.Type type = seller.getId() == null ? DataChangeEvent.Type.INSERT : DataChangeEvent.Type.UPDATE;
+		AsyncTasks.whenDone(service.saveOrUpdateAsync(seller), x -> {
+			notifyDataChangeListeners(new DataChangeEvent(type, seller.getId(), seller, previous));
+			stage.close();
+		}, e -> {
+			if (e instanceof DbConflictException) {
+				resolveConflict();
+				return;
+			}
+			setSaving(false);
+			Alerts.showAlert("Error saving object", null, e.getMessage(), AlertType.ERROR);
+		});
+	}
+
+	private void resolveConflict() {
+		Seller mine = seller;
+		AsyncTasks.whenDone(service.findByIdAsync(mine.getId()), current -> {
+			setSaving(false);
+			if (current == null) {
+				Alerts.showAlert("Error saving object", null, "This seller was removed by another user.", AlertType.ERROR);
+				return;
+			}
+			SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
+			new MergeDialog()
+					.addField("Name", mine.getName(), current.getName())
+					.addField("Email", mine.getEmail(), current.getEmail())
+					.addField("Birth Date", sdf.format(mine.getBirthDate()), sdf.format(current.getBirthDate()))
+					.addField("Base Salary", String.format(Locale.US, "%.2f", mine.getBaseSalary()),
+							String.format(Locale.US, "%.2f", current.getBaseSalary()))
+					.addField("Department", departmentName(mine), departmentName(current))
+					.showAndWait("Seller changed by another user")
+					.ifPresent(useCurrent -> {
+						Seller merged = new Seller(mine.getId(),
+								useCurrent.contains("Name") ? current.getName() : mine.getName(),
+								useCurrent.contains("Email") ? current.getEmail() : mine.getEmail(),
+								useCurrent.contains("Birth Date") ? current.getBirthDate() : mine.getBirthDate(),
+								useCurrent.contains("Base Salary") ? current.getBaseSalary() : mine.getBaseSalary(),
+								useCurrent.contains("Department") ? current.getDepartment() : mine.getDepartment());
+						merged.setVersion(current.getVersion());
+						seller = merged;
+						persisted = current;
+						updateFormData();
+					});
+		}, e -> {
+			setSaving(false);
+			Alerts.showAlert("Error saving object", null, e.getMessage(), AlertType.ERROR);
+		});
 	}
 
-	private void notifyDataChangeListeners() {
+	private static String departmentName(Seller obj) {
+		return obj.getDepartment() == null ? null : obj.getDepartment().getName();
+	}
+
+	private void setSaving(boolean saving) {
+		btSave.setDisable(saving);
+		btCancel.setDisable(saving);
+	}
+
+	private void notifyDataChangeListeners(DataChangeEvent event) {
 		for (DataChangeListener listener : dataChangeListeners) {
-			listener.onDataChanged();
+			listener.onDataChanged(event);
 		}
+		DataChangeBus.publish(event);
 	}
 
 	private Seller getFormData() {
@@ -155,7 +229,12 @@ public class SellerFormController implements Initializable {
 		}
 		seller.setBaseSalary(Utils.tryParseDouble(txtBaseSalary.getText()));
 		
+		// os departamentos carregam em segundo plano: a lista pode ainda estar vazia
+		if (comboBoxDepartment.getSelectionModel().getSelectedItem() == null) {
+			exception.addError("department", "Select a department");
+		}
 		seller.setDepartment(comboBoxDepartment.getSelectionModel().getSelectedItem());
+		seller.setVersion(this.seller.getVersion());
 		
 		if (exception.getErrors().size() > 0) {
 			throw exception;
@@ -197,6 +276,10 @@ public class SellerFormController implements Initializable {
 					(LocalDateTime.ofInstant(seller.getBirthDate().toInstant(), ZoneId.systemDefault())).toLocalDate());
 		}
 		
+		updateDepartmentSelection();
+	}
+
+	private void updateDepartmentSelection() {
 		if(seller.getDepartment() == null) {
 			comboBoxDepartment.getSelectionModel().selectFirst();
 		} else {
@@ -224,6 +307,10 @@ public class SellerFormController implements Initializable {
 		if (fields.contains("birthDate")) {
 			labelErrorBirtDate.setText(errors.get("birthDate"));
 		}
+		
+		if (fields.contains("department")) {
+			labelErrorDepartment.setText(errors.get("department"));
+		}
 	}
 	
 	public void resetErrorMessages() {
@@ -231,15 +318,22 @@ public class SellerFormController implements Initializable {
 		labelErrorEmail.setText(null);
 		labelErrorBaseSalary.setText(null);
 		labelErrorBirtDate.setText(null);
+		labelErrorDepartment.setText(null);
 	}
 
 	public void loadAssociatedObjects() {
 		if (departmentService == null) {
 			throw new IllegalStateException("Department service was null!");
 		}
-		List<Department> list = departmentService.findAll();
-		obsList = FXCollections.observableArrayList(list);
-		comboBoxDepartment.setItems(obsList);
+		comboBoxDepartment.setDisable(true);
+		AsyncTasks.whenDone(departmentService.findAllAsync(), list -> {
+			obsList = FXCollections.observableArrayList(list);
+			comboBoxDepartment.setItems(obsList);
+			comboBoxDepartment.setDisable(false);
+			if (seller != null) {
+				updateDepartmentSelection();
+			}
+		}, e -> Alerts.showAlert("Error loading departments", null, e.getMessage(), AlertType.ERROR));
 	}
 
 	private void initializeComboBoxDepartment() {
@@ -1,41 +1,70 @@
 package gui;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
 import application.Main;
-import db.DbIntegrityException;
+import gui.listeners.DataChangeBus;
+import gui.listeners.DataChangeEvent;
 import gui.listeners.DataChangeListener;
 import gui.util.Alerts;
+import gui.util.AsyncTasks;
 import gui.util.Utils;
+import gui.util.ViewLoader;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
-import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressIndicator;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableView;
+import javafx.scene.control.TextField;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.Pane;
+import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import javafx.util.Duration;
+import model.dao.SellerFilter;
+import model.dao.SellerQuery;
+import model.dao.SellerSort;
+import model.entities.Department;
 import model.entities.Seller;
 import model.service.DepartmentService;
+import model.service.ImportResult;
+import model.service.SellerExportService;
+import model.service.SellerImportService;
 import model.service.SellerService;
 
 public class SellerListController implements Initializable, DataChangeListener {
 
+	private static final int PAGE_SIZE = 200;
+
+	private static final Comparator<Seller> ROW_ORDER = Comparator
+			.comparing(Seller::getName, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+			.thenComparing(Seller::getId, Comparator.nullsFirst(Comparator.<Integer>naturalOrder()));
+
 	private SellerService sellerService;
 
 	@FXML
@@ -65,16 +94,113 @@ public class SellerListController implements Initializable, DataChangeListener {
 	@FXML
 	private Button btNew;
 
+	@FXML
+	private Button btImport;
+
+	@FXML
+	private Button btExport;
+
+	@FXML
+	private Label labelTransferStatus;
+
+	@FXML
+	private ProgressIndicator progressIndicator;
+
+	@FXML
+	private TextField txtSearch;
+
 	private ObservableList<Seller> obsList;
 
+	private Map<Integer, Seller> rowsById = new HashMap<>();
+
+	private boolean hasMorePages;
+	private Seller pageCursor;
+
+	private boolean loadingPage;
+
+	private CompletableFuture<List<Seller>> currentLoad;
+
+	private SellerFilter searchFilter = new SellerFilter();
+
+	private List<SellerSort> appliedSorts = new ArrayList<>();
+
+	private Map<TableColumn<Seller, ?>, SellerSort.Column> sortColumns = new HashMap<>();
+
+	private PauseTransition searchDelay = new PauseTransition(Duration.millis(300));
+
 	@FXML
 	public void onBtNewAction(ActionEvent event) {
 		Seller seller = new Seller();
 		createDialogForm(seller, "/gui/SellerForm.fxml", Utils.currentStage(event));
 	}
 
+	@FXML
+	public void onBtExportAction(ActionEvent event) {
+		FileChooser chooser = new FileChooser();
+		chooser.setTitle("Export Sellers");
+		chooser.getExtensionFilters().addAll(new FileChooser.ExtensionFilter("CSV", "*.csv"),
+				new FileChooser.ExtensionFilter("JSON", "*.json"));
+		chooser.setInitialFileName("sellers.csv");
+		File file = chooser.showSaveDialog(Utils.currentStage(event));
+		if (file == null) {
+			return;
+		}
+		SellerExportService.Format format = "JSON".equals(chooser.getSelectedExtensionFilter().getDescription())
+				? SellerExportService.Format.JSON
+				: SellerExportService.Format.forFile(file.toPath());
+
+		btExport.setDisable(true);
+		labelTransferStatus.setText("Exporting...");
+		CompletableFuture<Long> export = new SellerExportService().exportAsync(file.toPath(), format,
+				(rows, rate, done) -> Platform.runLater(() -> labelTransferStatus
+						.setText(String.format("%s%d rows (%.0f rows/s)", done ? "Exported " : "", rows, rate))));
+		AsyncTasks.whenDone(export, rows -> btExport.setDisable(false), e -> {
+			btExport.setDisable(false);
+			labelTransferStatus.setText("");
+			Alerts.showAlert("Error exporting sellers", null, e.getMessage(), AlertType.ERROR);
+		});
+	}
+
+	@FXML
+	public void onBtImportAction(ActionEvent event) {
+		FileChooser chooser = new FileChooser();
+		chooser.setTitle("Import Sellers");
+		chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV", "*.csv"));
+		File file = chooser.showOpenDialog(Utils.currentStage(event));
+		if (file == null) {
+			return;
+		}
+
+		btImport.setDisable(true);
+		labelTransferStatus.setText("Importing...");
+		CompletableFuture<ImportResult> task = new SellerImportService().importFileAsync(file.toPath(),
+				(rows, rate, done) -> Platform.runLater(() -> labelTransferStatus
+						.setText(String.format("%s%d rows (%.0f rows/s)", done ? "Imported " : "", rows, rate))));
+		AsyncTasks.whenDone(task, result -> {
+			btImport.setDisable(false);
+			String message = result.getImported() + " imported, " + result.getRejected() + " rejected";
+			if (result.getRejectedReport() != null) {
+				message += "\nRejected rows: " + result.getRejectedReport();
+			}
+			Alerts.showAlert("Import finished", null, message,
+					result.getRejected() > 0 ? AlertType.WARNING : AlertType.INFORMATION);
+			if (sellerService != null) {
+				updateTableView();
+			}
+		}, e -> {
+			btImport.setDisable(false);
+			labelTransferStatus.setText("");
+			Alerts.showAlert("Error importing sellers", null, e.getMessage(), AlertType.ERROR);
+		});
+	}
+
 	public void setSellerService(SellerService sellerService) {
 		this.sellerService = sellerService;
+		DataChangeBus.subscribeView(event -> {
+			if (event.isRemote() && event.getEntity() instanceof Seller && obsList != null) {
+				onDataChanged(event);
+			}
+		});
 	}
 
 	@Override
@@ -93,25 +219,145 @@ public class SellerListController implements Initializable, DataChangeListener {
 		
 		Stage stage = (Stage) Main.getMainScene().getWindow();
 		tableViewSeller.prefHeightProperty().bind(stage.heightProperty());
+		Utils.onScrollNearEnd(tableViewSeller, this::loadNextPage);
+		initSearch();
+		initServerSideSort();
+		initEditButtons();
+		initRemoveButtons();
 	}
 
 	public void updateTableView() {
 		if (sellerService == null) {
 			throw new IllegalStateException("Service was null!");
 		}
-		List<Seller> list = sellerService.findAll();
-		obsList = FXCollections.observableArrayList(list);
-		tableViewSeller.setItems(obsList);
-		initEditButtons();
-		initRemoveButtons();
+		if (currentLoad != null) {
+			currentLoad.cancel(true);
+		}
+		loadingPage = false;
+		setLoading(true);
+		currentLoad = isDefaultOrder() ? sellerService.findPageAsync(null, PAGE_SIZE)
+				: sellerService.findAsync(currentQuery(null));
+		AsyncTasks.forView(currentLoad, list -> {
+			setLoading(false);
+			hasMorePages = list.size() == PAGE_SIZE;
+			pageCursor = cursorOf(list);
+			obsList = FXCollections.observableArrayList(list);
+			rowsById.clear();
+			indexRows(list);
+			tableViewSeller.setItems(obsList);
+		}, this::onLoadError);
+	}
+
+	private void loadNextPage() {
+		if (loadingPage || !hasMorePages || pageCursor == null) {
+			return;
+		}
+		loadingPage = true;
+		setLoading(true);
+		currentLoad = isDefaultOrder() ? sellerService.findPageAsync(pageCursor, PAGE_SIZE)
+				: sellerService.findAsync(currentQuery(pageCursor));
+		AsyncTasks.forView(currentLoad, list -> {
+			loadingPage = false;
+			setLoading(false);
+			hasMorePages = list.size() == PAGE_SIZE;
+			if (!list.isEmpty()) {
+				pageCursor = cursorOf(list);
+			}
+			indexRows(list);
+			obsList.addAll(list);
+		}, e -> {
+			loadingPage = false;
+			onLoadError(e);
+		});
+	}
+
+	private boolean isDefaultOrder() {
+		return searchFilter.isEmpty() && appliedSorts.isEmpty();
+	}
+
+	private SellerQuery currentQuery(Seller after) {
+		return new SellerQuery().setFilter(searchFilter).setSorts(appliedSorts).setAfter(after).setLimit(PAGE_SIZE);
+	}
+
+	/**
+	 * Copia da ultima linha lida: as linhas da tabela sao alteradas pelos
+	 * eventos, mas a proxima pagina continua do ponto lido do banco.
+	 */
+	private static Seller cursorOf(List<Seller> list) {
+		if (list.isEmpty()) {
+			return null;
+		}
+		Seller last = list.get(list.size() - 1);
+		Department dep = last.getDepartment();
+		return new Seller(last.getId(), last.getName(), last.getEmail(), last.getBirthDate(), last.getBaseSalary(),
+				new Department(dep.getId(), dep.getName()));
+	}
+
+	private void initSearch() {
+		searchDelay.setOnFinished(event -> {
+			String text = txtSearch.getText() == null ? "" : txtSearch.getText().trim();
+			SellerFilter filter = new SellerFilter();
+			if (text.contains("@")) {
+				filter.setEmailPrefix(text);
+			} else {
+				filter.setNamePrefix(text);
+			}
+			searchFilter = filter;
+			if (sellerService != null) {
+				updateTableView();
+			}
+		});
+		txtSearch.textProperty().addListener((obs, oldValue, newValue) -> searchDelay.playFromStart());
+	}
+
+	private void initServerSideSort() {
+		sortColumns.put(tableColumnId, SellerSort.Column.ID);
+		sortColumns.put(tableColumnName, SellerSort.Column.NAME);
+		sortColumns.put(tableColumnEmail, SellerSort.Column.EMAIL);
+		sortColumns.put(tableColumnBirthDate, SellerSort.Column.BIRTH_DATE);
+		sortColumns.put(tableColumnBaseSalary, SellerSort.Column.BASE_SALARY);
+		tableColumnEdit.setSortable(false);
+		tableColumnRemove.setSortable(false);
+
+		tableViewSeller.setSortPolicy(table -> {
+			List<SellerSort> sorts = new ArrayList<>();
+			for (TableColumn<Seller, ?> column : table.getSortOrder()) {
+				SellerSort.Column sortColumn = sortColumns.get(column);
+				if (sortColumn != null) {
+					sorts.add(new SellerSort(sortColumn, column.getSortType() == TableColumn.SortType.ASCENDING));
+				}
+			}
+			if (!sorts.equals(appliedSorts)) {
+				appliedSorts = sorts;
+				if (sellerService != null) {
+					updateTableView();
+				}
+			}
+			return true;
+		});
+	}
+
+	private void indexRows(List<Seller> list) {
+		for (Seller seller : list) {
+			rowsById.put(seller.getId(), seller);
+		}
+	}
+
+	private void setLoading(boolean loading) {
+		progressIndicator.setVisible(loading);
+	}
+
+	private void onLoadError(Throwable e) {
+		setLoading(false);
+		Alerts.showAlert("Error loading sellers", null, e.getMessage(), AlertType.ERROR);
 	}
 
 	private void createDialogForm(Seller obj, String absoluteName, Stage parentStage) {
 		try {
-			FXMLLoader loader = new FXMLLoader(getClass().getResource(absoluteName));
-			Pane pane = loader.load();
+			ViewLoader.View<SellerFormController> view = ViewLoader.load(absoluteName);
+			Pane pane = view.getRoot();
 
-			SellerFormController controller = loader.getController();
+			SellerFormController controller = view.getController();
 			controller.setSeller(obj);
 			controller.setServices(new SellerService(), new DepartmentService());
 			controller.loadAssociatedObjects();
@@ -132,8 +378,65 @@ public class SellerListController implements Initializable, DataChangeListener {
 	}
 
 	@Override
-	public void onDataChanged() {
-		updateTableView();
+	public void onDataChanged(DataChangeEvent event) {
+		if (obsList == null) {
+			updateTableView();
+			return;
+		}
+		switch (event.getType()) {
+		case INSERT:
+			if (isDefaultOrder()) {
+				insertRow((Seller) event.getEntity());
+			} else {
+				updateTableView();
+			}
+			break;
+		case UPDATE:
+			updateRow((Seller) event.getEntity());
+			break;
+		case DELETE:
+			removeRow(event.getId());
+			break;
+		}
+	}
+
+	private void insertRow(Seller seller) {
+		if (rowsById.containsKey(seller.getId())) {
+			updateRow(seller);
+			return;
+		}
+		int index = Collections.binarySearch(obsList, seller, ROW_ORDER);
+		if (index < 0) {
+			index = -index - 1;
+		}
+		if (index == obsList.size() && hasMorePages) {
+			// pertence a uma pagina ainda nao carregada
+			return;
+		}
+		rowsById.put(seller.getId(), seller);
+		obsList.add(index, seller);
+	}
+
+	private void updateRow(Seller seller) {
+		Seller row = rowsById.get(seller.getId());
+		if (row == null) {
+			insertRow(seller);
+			return;
+		}
+		row.setName(seller.getName());
+		row.setEmail(seller.getEmail());
+		row.setBirthDate(seller.getBirthDate());
+		row.setBaseSalary(seller.getBaseSalary());
+		row.setDepartment(seller.getDepartment());
+		row.setVersion(seller.getVersion());
+		tableViewSeller.refresh();
+	}
+
+	private void removeRow(Integer id) {
+		Seller row = rowsById.remove(id);
+		if (row != null) {
+			obsList.remove(row);
+		}
 	}
 
 	private void initEditButtons() {
@@ -184,12 +487,16 @@ public class SellerListController implements Initializable, DataChangeListener {
 			if(sellerService == null) {
 				throw new IllegalStateException("Service was null!");
 			}
-			try {
-			    sellerService.remove(obj);
-			    updateTableView();
-			}catch(DbIntegrityException e) {
+			setLoading(true);
+			AsyncTasks.whenDone(sellerService.removeAsync(obj), x -> {
+				setLoading(false);
+				DataChangeEvent deleted = new DataChangeEvent(DataChangeEvent.Type.DELETE, obj.getId(), obj);
+				onDataChanged(deleted);
+				DataChangeBus.publish(deleted);
+			}, e -> {
+				setLoading(false);
 				Alerts.showAlert("Error removing object", null, e.getMessage(), AlertType.ERROR);
-			}
+			});
 		}
 	}
 }
\ No newline at end of file
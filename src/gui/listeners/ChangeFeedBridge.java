@@ -0,0 +1,105 @@
+package gui.listeners;
+
+import java.util.List;
+
+import db.DB;
+import gui.util.Alerts;
+import javafx.application.Platform;
+import javafx.scene.control.Alert.AlertType;
+import model.entities.Department;
+import model.entities.Seller;
+import model.service.ChangeFeedService;
+import model.service.ChangeFeedService.Change;
+import model.service.SyncService;
+
+/**
+ * Repassa as alteracoes feitas por outros clientes, lidas pelo
+ * {@link ChangeFeedService}, para o {@link DataChangeBus} na FX Application
+ * Thread como eventos remotos. No modo offline as alteracoes vem do
+ * {@link SyncService}, que tambem avisa os conflitos de sincronizacao.
+ */
+public class ChangeFeedBridge {
+
+	private static ChangeFeedService service;
+	private static SyncService syncService;
+
+	public static synchronized void start() {
+		if (service != null || syncService != null) {
+			return;
+		}
+		if (DB.isOfflineEnabled()) {
+			syncService = new SyncService();
+			syncService.addListener(ChangeFeedBridge::deliver);
+			syncService.addConflictListener(ChangeFeedBridge::conflict);
+			syncService.start();
+			return;
+		}
+		service = new ChangeFeedService();
+		service.addListener(ChangeFeedBridge::deliver);
+		service.start();
+	}
+
+	public static synchronized void stop() {
+		if (service != null) {
+			service.stop();
+			service = null;
+		}
+		if (syncService != null) {
+			syncService.stop();
+			syncService = null;
+		}
+	}
+
+	/**
+	 * @return o servico de sincronizacao, ou null fora do modo offline
+	 */
+	public static synchronized SyncService getSyncService() {
+		return syncService;
+	}
+
+	private static void conflict(String table, Integer id, String message) {
+		Platform.runLater(() -> Alerts.showAlert("Conflito de sincronizacao",
+				"Alteracao local em " + table + " " + id + " descartada", message, AlertType.WARNING));
+	}
+
+	private static void deliver(List<Change> changes) {
+		Platform.runLater(() -> {
+			for (Change change : changes) {
+				DataChangeBus.publish(toEvent(change));
+			}
+		});
+	}
+
+	private static DataChangeEvent toEvent(Change change) {
+		Object entity = change.getEntity();
+		DataChangeEvent.Type type;
+		switch (change.getOperation()) {
+		case INSERT:
+			type = DataChangeEvent.Type.INSERT;
+			break;
+		case UPDATE:
+			type = DataChangeEvent.Type.UPDATE;
+			break;
+		default:
+			type = DataChangeEvent.Type.DELETE;
+			entity = stub(change);
+			break;
+		}
+		return new DataChangeEvent(type, change.getId(), entity, null, true);
+	}
+
+	/**
+	 * Entidade so com o Id, para que os listeners saibam o tipo da linha
+	 * removida.
+	 */
+	private static Object stub(Change change) {
+		if ("department".equals(change.getTable())) {
+			Department dep = new Department();
+			dep.setId(change.getId());
+			return dep;
+		}
+		Seller seller = new Seller();
+		seller.setId(change.getId());
+		return seller;
+	}
+}
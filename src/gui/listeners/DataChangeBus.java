@@ -0,0 +1,41 @@
+package gui.listeners;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Canal global de eventos de alteracao de dados, para telas que precisam
+ * saber de mudancas feitas em outras telas. Usado apenas na FX Application
+ * Thread. Listeners de view sao removidos quando a view principal e trocada.
+ */
+public class DataChangeBus {
+
+	private static final List<DataChangeListener> listeners = new ArrayList<>();
+	private static final List<DataChangeListener> viewListeners = new ArrayList<>();
+
+	public static void subscribe(DataChangeListener listener) {
+		listeners.add(listener);
+	}
+
+	public static void unsubscribe(DataChangeListener listener) {
+		listeners.remove(listener);
+		viewListeners.remove(listener);
+	}
+
+	public static void subscribeView(DataChangeListener listener) {
+		viewListeners.add(listener);
+	}
+
+	public static void clearViewListeners() {
+		viewListeners.clear();
+	}
+
+	public static void publish(DataChangeEvent event) {
+		for (DataChangeListener listener : new ArrayList<>(listeners)) {
+			listener.onDataChanged(event);
+		}
+		for (DataChangeListener listener : new ArrayList<>(viewListeners)) {
+			listener.onDataChanged(event);
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package gui.listeners;
+
+public class DataChangeEvent {
+
+	public enum Type {
+		INSERT, UPDATE, DELETE
+	}
+
+	private final Type type;
+	private final Integer id;
+	private final Object entity;
+	private final Object previous;
+	private final boolean remote;
+
+	public DataChangeEvent(Type type, Integer id, Object entity) {
+		this(type, id, entity, null);
+	}
+
+	/**
+	 * @param previous estado anterior da entidade em um UPDATE, ou null se
+	 *                 nao conhecido
+	 */
+	public DataChangeEvent(Type type, Integer id, Object entity, Object previous) {
+		this(type, id, entity, previous, false);
+	}
+
+	/**
+	 * @param remote true se a alteracao foi feita por outro cliente e chegou
+	 *               pelo change feed
+	 */
+	public DataChangeEvent(Type type, Integer id, Object entity, Object previous, boolean remote) {
+		this.type = type;
+		this.id = id;
+		this.entity = entity;
+		this.previous = previous;
+		this.remote = remote;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public Integer getId() {
+		return id;
+	}
+
+	public Object getEntity() {
+		return entity;
+	}
+
+	public Object getPrevious() {
+		return previous;
+	}
+
+	public boolean isRemote() {
+		return remote;
+	}
+
+	@Override
+	public String toString() {
+		return "DataChangeEvent [type=" + type + ", id=" + id + ", remote=" + remote + "]";
+	}
+}
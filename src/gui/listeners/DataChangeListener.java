@@ -2,6 +2,6 @@ package gui.listeners;
 
 public interface DataChangeListener {
 	
-	void onDataChanged();
+	void onDataChanged(DataChangeEvent event);
 
 }
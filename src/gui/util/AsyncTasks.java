@@ -0,0 +1,58 @@
+package gui.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+
+/**
+ * Entrega o resultado de operacoes assincronas na FX Application Thread.
+ * Tarefas registradas com {@link #forView} sao canceladas quando a view
+ * principal e trocada; se vierem do ServiceExecutor a consulta em andamento
+ * e interrompida no banco.
+ */
+public class AsyncTasks {
+
+	private static final List<CompletableFuture<?>> viewTasks = new ArrayList<>();
+
+	public static <T> CompletableFuture<T> whenDone(CompletableFuture<T> future, Consumer<T> onSuccess,
+			Consumer<Throwable> onError) {
+		future.whenComplete((result, error) -> Platform.runLater(() -> {
+			if (future.isCancelled()) {
+				return;
+			}
+			if (error != null) {
+				onError.accept(unwrap(error));
+			} else {
+				onSuccess.accept(result);
+			}
+		}));
+		return future;
+	}
+
+	public static <T> CompletableFuture<T> forView(CompletableFuture<T> future, Consumer<T> onSuccess,
+			Consumer<Throwable> onError) {
+		viewTasks.add(future);
+		future.whenComplete((result, error) -> Platform.runLater(() -> viewTasks.remove(future)));
+		return whenDone(future, onSuccess, onError);
+	}
+
+	public static void cancelViewTasks() {
+		for (CompletableFuture<?> future : new ArrayList<>(viewTasks)) {
+			future.cancel(true);
+		}
+		viewTasks.clear();
+	}
+
+	private static Throwable unwrap(Throwable error) {
+		while ((error instanceof CompletionException || error instanceof ExecutionException)
+				&& error.getCause() != null) {
+			error = error.getCause();
+		}
+		return error;
+	}
+}
@@ -0,0 +1,97 @@
+package gui.util;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+import javafx.geometry.Insets;
+import javafx.scene.control.ButtonBar.ButtonData;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Dialog;
+import javafx.scene.control.Label;
+import javafx.scene.layout.GridPane;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+
+/**
+ * Dialogo exibido quando um save esbarra em uma alteracao concorrente. Mostra
+ * os campos que diferem entre a versao do usuario e a versao atual do banco
+ * e deixa escolher, campo a campo, qual valor manter.
+ */
+public class MergeDialog {
+
+	private final Map<String, String[]> fields = new LinkedHashMap<>();
+
+	/**
+	 * Adiciona um campo ao dialogo; campos com o mesmo valor nos dois lados
+	 * sao ignorados.
+	 */
+	public MergeDialog addField(String label, String mine, String theirs) {
+		if (!Objects.equals(mine, theirs)) {
+			fields.put(label, new String[] { mine, theirs });
+		}
+		return this;
+	}
+
+	/**
+	 * Retorna os campos em que o usuario escolheu o valor do banco, ou vazio
+	 * se o dialogo foi cancelado.
+	 */
+	public Optional<Set<String>> showAndWait(String title) {
+		Dialog<ButtonType> dialog = new Dialog<>();
+		dialog.setTitle(title);
+		dialog.setHeaderText("This record was changed by another user since you opened it.\n"
+				+ "Choose the values to keep and save again.");
+		ButtonType merge = new ButtonType("Merge", ButtonData.OK_DONE);
+		dialog.getDialogPane().getButtonTypes().addAll(merge, ButtonType.CANCEL);
+
+		GridPane grid = new GridPane();
+		grid.setHgap(10);
+		grid.setVgap(6);
+		grid.setPadding(new Insets(10));
+		grid.addRow(0, bold("Field"), bold("Yours"), bold("Current"), bold("Keep yours"));
+
+		List<CheckBox> choices = new ArrayList<>();
+		int row = 1;
+		for (Map.Entry<String, String[]> field : fields.entrySet()) {
+			CheckBox keepMine = new CheckBox();
+			keepMine.setSelected(true);
+			choices.add(keepMine);
+			grid.addRow(row++, new Label(field.getKey()), new Label(text(field.getValue()[0])),
+					new Label(text(field.getValue()[1])), keepMine);
+		}
+		if (fields.isEmpty()) {
+			grid.add(new Label("No conflicting fields, only the version changed."), 0, 1, 4, 1);
+		}
+		dialog.getDialogPane().setContent(grid);
+
+		Optional<ButtonType> result = dialog.showAndWait();
+		if (!result.isPresent() || result.get() != merge) {
+			return Optional.empty();
+		}
+		Set<String> useTheirs = new HashSet<>();
+		int i = 0;
+		for (String label : fields.keySet()) {
+			if (!choices.get(i++).isSelected()) {
+				useTheirs.add(label);
+			}
+		}
+		return Optional.of(useTheirs);
+	}
+
+	private static Label bold(String text) {
+		Label label = new Label(text);
+		label.setFont(Font.font(null, FontWeight.BOLD, -1));
+		return label;
+	}
+
+	private static String text(String value) {
+		return value == null ? "" : value;
+	}
+}
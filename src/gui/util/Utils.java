@@ -7,10 +7,13 @@ import java.util.Date;
 import java.util.Locale;
 
 import javafx.event.ActionEvent;
+import javafx.geometry.Orientation;
 import javafx.scene.Node;
 import javafx.scene.control.DatePicker;
+import javafx.scene.control.ScrollBar;
 import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
 import javafx.stage.Stage;
 import javafx.util.StringConverter;
 
@@ -20,6 +23,25 @@ public class Utils {
 		return (Stage) ((Node) event.getSource()).getScene().getWindow();
 	}
 
+	/**
+	 * Executa a acao quando a barra de rolagem vertical da tabela passa de
+	 * 90%, para carregar a proxima pagina.
+	 */
+	public static void onScrollNearEnd(TableView<?> tableView, Runnable action) {
+		tableView.skinProperty().addListener((obs, oldSkin, newSkin) -> {
+			for (Node node : tableView.lookupAll(".scroll-bar")) {
+				if (node instanceof ScrollBar && ((ScrollBar) node).getOrientation() == Orientation.VERTICAL) {
+					ScrollBar bar = (ScrollBar) node;
+					bar.valueProperty().addListener((o, oldValue, newValue) -> {
+						if (newValue.doubleValue() >= bar.getMax() * 0.9) {
+							action.run();
+						}
+					});
+				}
+			}
+		});
+	}
+
 	public static Integer tryParseInt(String str) {
 		try {
 			return Integer.parseInt(str);
@@ -44,7 +66,7 @@ public class Utils {
 				@Override
 				protected void updateItem(Date item, boolean empty) {
 					super.updateItem(item, empty);
-					if (empty) {
+					if (empty || item == null) {
 						setText(null);
 					} else {
 						setText(sdf.format(item));
@@ -63,7 +85,7 @@ public class Utils {
 				@Override
 				protected void updateItem(Double item, boolean empty) {
 					super.updateItem(item, empty);
-					if (empty) {
+					if (empty || item == null) {
 						setText(null);
 					} else {
 						Locale.setDefault(Locale.US);
@@ -0,0 +1,185 @@
+package gui.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import db.LatencyHistogram;
+import javafx.application.Platform;
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+
+/**
+ * Carrega as views FXML mantendo uma instancia pronta de cada view ja usada
+ * (ou aquecida com {@link #prewarm}), que e entregue no proximo
+ * {@link #load} e reposta logo em seguida na FX Application Thread. Cada
+ * instancia e entregue uma unica vez, entao os controllers nao precisam
+ * ser reinicializados. O FXML e as classes que ele importa sao lidos em
+ * background.
+ */
+public class ViewLoader {
+
+	private static final Logger LOG = Logger.getLogger(ViewLoader.class.getName());
+
+	private static final Pattern IMPORT = Pattern.compile("<\\?import\\s+([\\w.]+)\\s*\\?>");
+	private static final Pattern CONTROLLER = Pattern.compile("fx:controller=\"([\\w.]+)\"");
+
+	private static final Map<String, byte[]> sources = new ConcurrentHashMap<>();
+	private static final Map<String, LatencyHistogram> loadTimes = new ConcurrentHashMap<>();
+
+	// acessados apenas na FX Application Thread
+	private static final Map<String, View<?>> ready = new HashMap<>();
+	private static final Set<String> cached = new HashSet<>();
+
+	public static class View<T> {
+
+		private final Parent root;
+		private final T controller;
+
+		View(Parent root, T controller) {
+			this.root = root;
+			this.controller = controller;
+		}
+
+		@SuppressWarnings("unchecked")
+		public <R extends Parent> R getRoot() {
+			return (R) root;
+		}
+
+		public T getController() {
+			return controller;
+		}
+	}
+
+	public static <T> View<T> load(String absoluteName) throws IOException {
+		long start = System.nanoTime();
+		@SuppressWarnings("unchecked")
+		View<T> view = (View<T>) ready.remove(absoluteName);
+		boolean prewarmed = view != null;
+		if (view == null) {
+			view = parse(absoluteName);
+		}
+		cached.add(absoluteName);
+		refill(absoluteName);
+
+		long elapsed = System.nanoTime() - start;
+		loadTimes.computeIfAbsent(absoluteName, k -> new LatencyHistogram()).record(elapsed);
+		LOG.fine(String.format("%s carregada em %.1f ms%s", absoluteName, elapsed / 1e6,
+				prewarmed ? " (pre-carregada)" : ""));
+		return view;
+	}
+
+	/**
+	 * Prepara as views informadas sem bloquear a interface: le os FXML e
+	 * carrega as classes em uma thread de baixa prioridade e depois monta uma
+	 * instancia de cada view, uma por vez, na FX Application Thread.
+	 */
+	public static void prewarm(String... absoluteNames) {
+		List<String> names = Arrays.asList(absoluteNames);
+		Thread t = new Thread(() -> {
+			for (String name : names) {
+				try {
+					preloadClasses(source(name));
+				} catch (IOException e) {
+					LOG.log(Level.WARNING, "Falha ao ler " + name, e);
+				}
+			}
+			Platform.runLater(() -> {
+				for (String name : names) {
+					cached.add(name);
+					refill(name);
+				}
+			});
+		}, "view-prewarm");
+		t.setDaemon(true);
+		t.setPriority(Thread.MIN_PRIORITY);
+		t.start();
+	}
+
+	/**
+	 * Tempos de {@link #load} por view, em ordem alfabetica.
+	 */
+	public static Map<String, LatencyHistogram> getLoadTimes() {
+		return new TreeMap<>(loadTimes);
+	}
+
+	private static void refill(String absoluteName) {
+		Platform.runLater(() -> {
+			if (!cached.contains(absoluteName) || ready.containsKey(absoluteName)) {
+				return;
+			}
+			try {
+				ready.put(absoluteName, parse(absoluteName));
+			} catch (IOException | RuntimeException e) {
+				// o proximo load tenta de novo e reporta o erro
+				cached.remove(absoluteName);
+				LOG.log(Level.WARNING, "Falha ao pre-carregar " + absoluteName, e);
+			}
+		});
+	}
+
+	private static <T> View<T> parse(String absoluteName) throws IOException {
+		URL url = ViewLoader.class.getResource(absoluteName);
+		if (url == null) {
+			throw new IOException("View nao encontrada: " + absoluteName);
+		}
+		FXMLLoader loader = new FXMLLoader(url);
+		Parent root = loader.load(new ByteArrayInputStream(source(absoluteName)));
+		return new View<>(root, loader.getController());
+	}
+
+	private static byte[] source(String absoluteName) throws IOException {
+		byte[] bytes = sources.get(absoluteName);
+		if (bytes != null) {
+			return bytes;
+		}
+		try (InputStream in = ViewLoader.class.getResourceAsStream(absoluteName)) {
+			if (in == null) {
+				throw new IOException("View nao encontrada: " + absoluteName);
+			}
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				out.write(buffer, 0, n);
+			}
+			bytes = out.toByteArray();
+		}
+		sources.put(absoluteName, bytes);
+		return bytes;
+	}
+
+	/*
+	 * Carrega sem inicializar as classes importadas pelo FXML e o controller,
+	 * tirando a leitura e verificacao do bytecode da FX Application Thread.
+	 */
+	private static void preloadClasses(byte[] fxml) {
+		String text = new String(fxml, StandardCharsets.UTF_8);
+		ClassLoader classLoader = ViewLoader.class.getClassLoader();
+		for (Pattern pattern : new Pattern[] { IMPORT, CONTROLLER }) {
+			Matcher m = pattern.matcher(text);
+			while (m.find()) {
+				try {
+					Class.forName(m.group(1), false, classLoader);
+				} catch (ClassNotFoundException | LinkageError e) {
+					// import de pacote (x.y.*) ou classe ausente: o FXMLLoader reporta
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package model.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class BatchResult<T> {
+
+	private int succeeded;
+
+	private List<Failure<T>> failures = new ArrayList<>();
+
+	public int getSucceeded() {
+		return succeeded;
+	}
+
+	public List<Failure<T>> getFailures() {
+		return Collections.unmodifiableList(failures);
+	}
+
+	public boolean hasFailures() {
+		return !failures.isEmpty();
+	}
+
+	public void addSuccess(int count) {
+		succeeded += count;
+	}
+
+	public void addFailure(int index, T entity, String message) {
+		failures.add(new Failure<>(index, entity, message));
+	}
+
+	public void merge(BatchResult<T> other) {
+		succeeded += other.succeeded;
+		failures.addAll(other.failures);
+	}
+
+	@Override
+	public String toString() {
+		return "BatchResult [succeeded=" + succeeded + ", failures=" + failures.size() + "]";
+	}
+
+	public static class Failure<T> {
+
+		private final int index;
+		private final T entity;
+		private final String message;
+
+		public Failure(int index, T entity, String message) {
+			this.index = index;
+			this.entity = entity;
+			this.message = message;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public T getEntity() {
+			return entity;
+		}
+
+		public String getMessage() {
+			return message;
+		}
+
+		@Override
+		public String toString() {
+			return "Failure [index=" + index + ", entity=" + entity + ", message=" + message + "]";
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package model.dao;
+
+public class CacheStats {
+
+	private final long hits;
+	private final long misses;
+	private final long evictions;
+	private final int size;
+
+	public CacheStats(long hits, long misses, long evictions, int size) {
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.size = size;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public double getHitRatio() {
+		long total = hits + misses;
+		return total == 0 ? 0.0 : hits / (double) total;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("CacheStats [hits=%d, misses=%d, hitRatio=%.2f, evictions=%d, size=%d]", hits, misses,
+				getHitRatio(), evictions, size);
+	}
+}
@@ -0,0 +1,24 @@
+package model.dao;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import model.entities.ChangeLogEntry;
+
+public interface ChangeLogDao {
+
+	/**
+	 * Maior Id do change_log, ou 0 se vazio.
+	 */
+	long findMaxId();
+
+	/**
+	 * Alteracoes com Id maior que {@code afterId}, em ordem crescente.
+	 */
+	List<ChangeLogEntry> findAfter(long afterId, int limit);
+
+	List<ChangeLogEntry> findByIds(Collection<Long> ids);
+
+	int deleteOlderThan(Date limit);
+}
@@ -1,17 +1,94 @@
 package model.dao;
 
 import db.DB;
+import model.dao.impl.CachedDepartmentDao;
+import model.dao.impl.ChangeLogDaoJDBC;
+import model.dao.impl.DepartmentCache;
 import model.dao.impl.DepartmentDaoJDBC;
+import model.dao.impl.InstrumentedDao;
+import model.dao.impl.ReadRoutingDao;
+import model.dao.impl.ResilientDao;
+import model.dao.impl.ReplicaDaoJDBC;
 import model.dao.impl.SellerDaoJDBC;
 
 public class DaoFactory {
 	
+	private static DepartmentCache departmentCache;
+	
+	private static DepartmentCache serverDepartmentCache;
+	
 	public static SellerDao createSellerDao() {
-		return new SellerDaoJDBC(DB.getConnection());
+		return ResilientDao.wrap(SellerDao.class, route(SellerDao.class,
+				instrument(SellerDao.class, new SellerDaoJDBC(DB.getRoutedDataSource(), getDepartmentCache()))));
 	}
 	
 	public static DepartmentDao createDepartmentDao() {
-		return new DepartmentDaoJDBC(DB.getConnection());
+		DepartmentDao dao = ResilientDao.wrap(DepartmentDao.class, route(DepartmentDao.class,
+				instrument(DepartmentDao.class, new DepartmentDaoJDBC(DB.getRoutedDataSource()))));
+		return new CachedDepartmentDao(dao, getDepartmentCache());
+	}
+	
+	public static ChangeLogDao createChangeLogDao() {
+		return ResilientDao.wrap(ChangeLogDao.class,
+				instrument(ChangeLogDao.class, new ChangeLogDaoJDBC(DB.getWorkingDataSource())));
+	}
+	
+	/*
+	 * DAOs do banco central, usados pela sincronizacao da replica local. Tem
+	 * cache de departamentos proprio para nao misturar as duas bases.
+	 */
+	
+	public static SellerDao createServerSellerDao() {
+		return ResilientDao.wrap(SellerDao.class,
+				instrument(SellerDao.class, new SellerDaoJDBC(DB.getDataSource(), getServerDepartmentCache())));
+	}
+	
+	public static DepartmentDao createServerDepartmentDao() {
+		return ResilientDao.wrap(DepartmentDao.class,
+				instrument(DepartmentDao.class, new DepartmentDaoJDBC(DB.getDataSource())));
+	}
+	
+	public static ChangeLogDao createServerChangeLogDao() {
+		return ResilientDao.wrap(ChangeLogDao.class,
+				instrument(ChangeLogDao.class, new ChangeLogDaoJDBC(DB.getDataSource())));
+	}
+	
+	public static ReplicaDao createReplicaDao() {
+		return new ReplicaDaoJDBC(DB.getLocalDataSource());
+	}
+	
+	private static <T> T route(Class<T> iface, T dao) {
+		return DB.isReadRoutingEnabled() ? ReadRoutingDao.wrap(iface, dao) : dao;
+	}
+	
+	private static <T> T instrument(Class<T> iface, T dao) {
+		return DB.getBooleanProperty("metrics.enabled", true) ? InstrumentedDao.wrap(iface, dao) : dao;
+	}
+	
+	/**
+	 * Identifica este processo no change_log, para que ele ignore as proprias
+	 * alteracoes ao ler o feed.
+	 */
+	public static String getOrigin() {
+		return ChangeLogDaoJDBC.getOrigin();
+	}
+	
+	private static synchronized DepartmentCache getServerDepartmentCache() {
+		if (serverDepartmentCache == null) {
+			serverDepartmentCache = new DepartmentCache(
+					DB.getIntProperty("cache.department.ttlMs", 300000),
+					DB.getIntProperty("cache.department.maxSize", 1000));
+		}
+		return serverDepartmentCache;
+	}
+	
+	public static synchronized DepartmentCache getDepartmentCache() {
+		if (departmentCache == null) {
+			departmentCache = new DepartmentCache(
+					DB.getIntProperty("cache.department.ttlMs", 300000),
+					DB.getIntProperty("cache.department.maxSize", 1000));
+		}
+		return departmentCache;
 	}
 
 }
@@ -1,5 +1,6 @@
 package model.dao;
 
+import java.util.Collection;
 import java.util.List;
 
 import model.entities.Department;
@@ -8,6 +9,8 @@ public interface DepartmentDao {
 	
 	void insert(Department obj);
 	void update(Department obj);
+	BatchResult<Department> insertAll(Collection<Department> list);
+	BatchResult<Department> updateAll(Collection<Department> list);
 	void deleteById(Integer id);
 	Department findById(Integer id);
 	List<Department> findAll();
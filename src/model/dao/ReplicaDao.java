@@ -0,0 +1,69 @@
+package model.dao;
+
+import java.util.List;
+import java.util.Set;
+
+import model.entities.ChangeLogEntry;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Operacoes da sincronizacao sobre a replica local. Nenhuma delas grava no
+ * change_log local, que funciona como fila das alteracoes feitas pelo
+ * usuario ainda nao enviadas ao banco central.
+ */
+public interface ReplicaDao {
+
+	/**
+	 * Ids a partir deste valor foram gerados na replica e ainda nao existem
+	 * no banco central.
+	 */
+	int LOCAL_ID_BASE = 1_000_000_000;
+
+	/**
+	 * Cria a tabela sync_state e posiciona os auto-incrementos da replica a
+	 * partir de {@link #LOCAL_ID_BASE}.
+	 */
+	void initialize();
+
+	Long getState(String key);
+
+	void setState(String key, long value);
+
+	List<ChangeLogEntry> findPending(int limit);
+
+	int countPending();
+
+	/**
+	 * Linhas com alteracoes pendentes, no formato "tabela:id".
+	 */
+	Set<String> findPendingRows();
+
+	/**
+	 * Remove da fila as entradas da linha ate {@code upToEntryId}.
+	 */
+	void markPushed(String table, int rowId, long upToEntryId);
+
+	/**
+	 * Grava a linha se ela nao existe ou se a versao local e menor, ou
+	 * sempre com {@code force}. Retorna true se gravou.
+	 */
+	boolean upsertDepartment(Department obj, boolean force);
+
+	boolean upsertSeller(Seller obj, boolean force);
+
+	void deleteRow(String table, int id);
+
+	void setVersion(String table, int id, int version);
+
+	/**
+	 * Troca o id local provisorio pelo id gerado no banco central, incluindo
+	 * as referencias e as entradas pendentes da linha.
+	 */
+	void rekey(String table, int oldId, int newId, int version);
+
+	/**
+	 * Ids ja existentes no banco central (abaixo de {@link #LOCAL_ID_BASE}).
+	 */
+	List<Integer> findServerIds(String table);
+}
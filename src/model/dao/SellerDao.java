@@ -1,17 +1,60 @@
 package model.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 import model.entities.Department;
+import model.entities.DepartmentSalaryStats;
 import model.entities.Seller;
 
 public interface SellerDao {
 	
 	void insert(Seller obj);
 	void update(Seller obj);
+	BatchResult<Seller> insertAll(Collection<Seller> list);
+	BatchResult<Seller> updateAll(Collection<Seller> list);
 	void deleteById(Integer id);
+	
+	/**
+	 * Move todos os sellers de um departamento para outro, retornando
+	 * quantos foram alterados.
+	 */
+	int reassignDepartment(Integer fromDepartmentId, Integer toDepartmentId);
 	Seller findById(Integer id);
 	List<Seller> findAll();
 	List<Seller> findByDepartment(Department department);
+	List<Seller> findByIds(Collection<Integer> ids);
+	
+	/**
+	 * Pagina ordenada por (Name, Id) comecando logo apos {@code after}
+	 * (keyset pagination). Passe {@code null} para a primeira pagina.
+	 */
+	List<Seller> findPage(Seller after, int pageSize);
+	
+	/**
+	 * Como {@link #findPage(Seller, int)}, restrito a um departamento (usa o
+	 * indice DepartmentId, Name).
+	 */
+	List<Seller> findPageByDepartment(Integer departmentId, Seller after, int pageSize);
+	
+	/**
+	 * Busca filtrada e ordenada no banco, retornando apenas a pagina pedida.
+	 */
+	List<Seller> find(SellerQuery query);
+	
+	/**
+	 * Percorre todos os sellers com um cursor somente leitura, sem
+	 * carregar a tabela inteira em memoria.
+	 */
+	void forEach(Consumer<Seller> action);
+	
+	/**
+	 * Agregados de BaseSalary por departamento calculados no banco com
+	 * GROUP BY. Departamentos sem sellers aparecem com count 0.
+	 */
+	List<DepartmentSalaryStats> salaryStatsByDepartment();
+	
+	DepartmentSalaryStats salaryStatsForDepartment(Integer departmentId);
 	
 }
\ No newline at end of file
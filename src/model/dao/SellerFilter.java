@@ -0,0 +1,96 @@
+package model.dao;
+
+import java.util.Date;
+
+/**
+ * Criterios de busca de sellers. Campos nulos nao filtram.
+ */
+public class SellerFilter {
+
+	private String namePrefix;
+	private String emailPrefix;
+	private Integer departmentId;
+	private Double minBaseSalary;
+	private Double maxBaseSalary;
+	private Date birthDateFrom;
+	private Date birthDateTo;
+
+	public String getNamePrefix() {
+		return namePrefix;
+	}
+
+	public SellerFilter setNamePrefix(String namePrefix) {
+		this.namePrefix = namePrefix;
+		return this;
+	}
+
+	public String getEmailPrefix() {
+		return emailPrefix;
+	}
+
+	public SellerFilter setEmailPrefix(String emailPrefix) {
+		this.emailPrefix = emailPrefix;
+		return this;
+	}
+
+	public Integer getDepartmentId() {
+		return departmentId;
+	}
+
+	public SellerFilter setDepartmentId(Integer departmentId) {
+		this.departmentId = departmentId;
+		return this;
+	}
+
+	public Double getMinBaseSalary() {
+		return minBaseSalary;
+	}
+
+	public SellerFilter setMinBaseSalary(Double minBaseSalary) {
+		this.minBaseSalary = minBaseSalary;
+		return this;
+	}
+
+	public Double getMaxBaseSalary() {
+		return maxBaseSalary;
+	}
+
+	public SellerFilter setMaxBaseSalary(Double maxBaseSalary) {
+		this.maxBaseSalary = maxBaseSalary;
+		return this;
+	}
+
+	public Date getBirthDateFrom() {
+		return birthDateFrom;
+	}
+
+	public SellerFilter setBirthDateFrom(Date birthDateFrom) {
+		this.birthDateFrom = birthDateFrom;
+		return this;
+	}
+
+	public Date getBirthDateTo() {
+		return birthDateTo;
+	}
+
+	public SellerFilter setBirthDateTo(Date birthDateTo) {
+		this.birthDateTo = birthDateTo;
+		return this;
+	}
+
+	public boolean isEmpty() {
+		return isBlank(namePrefix) && isBlank(emailPrefix) && departmentId == null && minBaseSalary == null
+				&& maxBaseSalary == null && birthDateFrom == null && birthDateTo == null;
+	}
+
+	private static boolean isBlank(String str) {
+		return str == null || str.trim().isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "SellerFilter [namePrefix=" + namePrefix + ", emailPrefix=" + emailPrefix + ", departmentId="
+				+ departmentId + ", minBaseSalary=" + minBaseSalary + ", maxBaseSalary=" + maxBaseSalary
+				+ ", birthDateFrom=" + birthDateFrom + ", birthDateTo=" + birthDateTo + "]";
+	}
+}
@@ -0,0 +1,69 @@
+package model.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import model.entities.Seller;
+
+/**
+ * Filtro, ordenacao e pagina de uma consulta de sellers. Sem ordenacao
+ * explicita o resultado segue (Name, Id); o Id sempre desempata.
+ * <p>
+ * A pagina seguinte comeca depois de {@link #getAfter()} (a ultima linha da
+ * pagina anterior) na mesma ordenacao, sem OFFSET: o custo nao cresce com a
+ * profundidade e linhas inseridas ou removidas antes do cursor nao deslocam
+ * a pagina.
+ */
+public class SellerQuery {
+
+	private SellerFilter filter = new SellerFilter();
+	private List<SellerSort> sorts = new ArrayList<>();
+	private Seller after;
+	private int limit = 200;
+
+	public SellerFilter getFilter() {
+		return filter;
+	}
+
+	public SellerQuery setFilter(SellerFilter filter) {
+		this.filter = filter == null ? new SellerFilter() : filter;
+		return this;
+	}
+
+	public List<SellerSort> getSorts() {
+		return sorts;
+	}
+
+	public SellerQuery setSorts(List<SellerSort> sorts) {
+		this.sorts = sorts == null ? new ArrayList<>() : new ArrayList<>(sorts);
+		return this;
+	}
+
+	public Seller getAfter() {
+		return after;
+	}
+
+	/**
+	 * @param after ultima linha ja lida, ou null para a primeira pagina. Os
+	 *              valores das colunas ordenadas sao lidos na consulta: nao
+	 *              altere o objeto enquanto ela roda.
+	 */
+	public SellerQuery setAfter(Seller after) {
+		this.after = after;
+		return this;
+	}
+
+	public int getLimit() {
+		return limit;
+	}
+
+	public SellerQuery setLimit(int limit) {
+		this.limit = limit;
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "SellerQuery [filter=" + filter + ", sorts=" + sorts + ", after=" + (after == null ? null : after.getId()) + ", limit=" + limit + "]";
+	}
+}
@@ -0,0 +1,60 @@
+package model.dao;
+
+public class SellerSort {
+
+	public enum Column {
+		ID("seller.Id"),
+		NAME("seller.Name"),
+		EMAIL("seller.Email"),
+		BIRTH_DATE("seller.BirthDate"),
+		BASE_SALARY("seller.BaseSalary"),
+		// o nome e opcional: null ordena como vazio para a paginacao por cursor
+		DEPARTMENT("COALESCE(department.Name, '')");
+
+		private final String sql;
+
+		Column(String sql) {
+			this.sql = sql;
+		}
+
+		public String getSql() {
+			return sql;
+		}
+	}
+
+	private final Column column;
+	private final boolean ascending;
+
+	public SellerSort(Column column, boolean ascending) {
+		this.column = column;
+		this.ascending = ascending;
+	}
+
+	public Column getColumn() {
+		return column;
+	}
+
+	public boolean isAscending() {
+		return ascending;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+		SellerSort other = (SellerSort) obj;
+		return column == other.column && ascending == other.ascending;
+	}
+
+	@Override
+	public int hashCode() {
+		return column.hashCode() * 31 + (ascending ? 1 : 0);
+	}
+
+	@Override
+	public String toString() {
+		return column + (ascending ? " ASC" : " DESC");
+	}
+}
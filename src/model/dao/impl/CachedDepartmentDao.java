@@ -0,0 +1,89 @@
+package model.dao.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import model.dao.BatchResult;
+import model.dao.DepartmentDao;
+import model.entities.Department;
+
+/**
+ * Cache de leitura na frente de outro DepartmentDao. Escritas passam direto
+ * para o DAO de origem e invalidam as entradas afetadas.
+ */
+public class CachedDepartmentDao implements DepartmentDao {
+
+	private final DepartmentDao dao;
+	private final DepartmentCache cache;
+
+	public CachedDepartmentDao(DepartmentDao dao, DepartmentCache cache) {
+		this.dao = dao;
+		this.cache = cache;
+	}
+
+	@Override
+	public void insert(Department obj) {
+		dao.insert(obj);
+		cache.invalidate(obj.getId());
+	}
+
+	@Override
+	public void update(Department obj) {
+		try {
+			dao.update(obj);
+		} finally {
+			// em conflito a versao em cache tambem esta desatualizada
+			cache.invalidate(obj.getId());
+		}
+	}
+
+	@Override
+	public BatchResult<Department> insertAll(Collection<Department> list) {
+		try {
+			return dao.insertAll(list);
+		} finally {
+			cache.invalidateAll();
+		}
+	}
+
+	@Override
+	public BatchResult<Department> updateAll(Collection<Department> list) {
+		try {
+			return dao.updateAll(list);
+		} finally {
+			cache.invalidateAll();
+		}
+	}
+
+	@Override
+	public void deleteById(Integer id) {
+		dao.deleteById(id);
+		cache.invalidate(id);
+	}
+
+	@Override
+	public Department findById(Integer id) {
+		Department dep = cache.get(id);
+		if (dep == null) {
+			dep = dao.findById(id);
+			if (dep != null) {
+				dep = cache.put(dep);
+			}
+		}
+		return dep;
+	}
+
+	@Override
+	public List<Department> findAll() {
+		List<Department> list = cache.getAll();
+		if (list == null) {
+			list = cache.putAll(dao.findAll());
+		}
+		return new ArrayList<>(list);
+	}
+
+	public DepartmentCache getCache() {
+		return cache;
+	}
+}
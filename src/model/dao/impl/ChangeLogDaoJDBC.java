@@ -0,0 +1,208 @@
+package model.dao.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import db.DB;
+import db.DBException;
+import model.dao.ChangeLogDao;
+import model.entities.ChangeLogEntry;
+
+/**
+ * Leitura do change_log e gravacao das entradas pelos outros DAOs, na mesma
+ * conexao (e transacao) da escrita que as gerou.
+ */
+public class ChangeLogDaoJDBC implements ChangeLogDao {
+
+	private static final String QUERY_INSERT = 
+			"INSERT INTO change_log (TableName, RowId, Operation, Version, Origin, ChangedAt) "
+			+ "VALUES (?, ?, ?, ?, ?, ?)";
+
+	private static final String QUERY_MAX_ID = 
+			"SELECT MAX(Id) AS MaxId "
+			+ "FROM change_log";
+
+	private static final String QUERY_FIND_AFTER = 
+			"SELECT * "
+			+ "FROM change_log "
+			+ "WHERE Id > ? "
+			+ "ORDER BY Id "
+			+ "LIMIT ?";
+
+	private static final String QUERY_DELETE_OLDER = 
+			"DELETE FROM change_log "
+			+ "WHERE ChangedAt < ?";
+
+	/**
+	 * Identifica este processo nas entradas que ele grava.
+	 */
+	private static final String ORIGIN = UUID.randomUUID().toString();
+
+	private DataSource dataSource;
+
+	public ChangeLogDaoJDBC(DataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	public static String getOrigin() {
+		return ORIGIN;
+	}
+
+	static void record(Connection con, String table, int rowId, char operation, Integer version)
+			throws SQLException {
+		PreparedStatement st = con.prepareStatement(QUERY_INSERT);
+		try {
+			bind(st, table, rowId, operation, version, new Timestamp(System.currentTimeMillis()));
+			st.executeUpdate();
+		} finally {
+			DB.closeStatement(st);
+		}
+	}
+
+	static void recordAll(Connection con, String table, char operation, List<Integer> rowIds, List<Integer> versions)
+			throws SQLException {
+		if (rowIds.isEmpty()) {
+			return;
+		}
+		PreparedStatement st = con.prepareStatement(QUERY_INSERT);
+		try {
+			Timestamp now = new Timestamp(System.currentTimeMillis());
+			for (int i = 0; i < rowIds.size(); i++) {
+				bind(st, table, rowIds.get(i), operation, versions == null ? null : versions.get(i), now);
+				st.addBatch();
+			}
+			st.executeBatch();
+		} finally {
+			DB.closeStatement(st);
+		}
+	}
+
+	private static void bind(PreparedStatement st, String table, int rowId, char operation, Integer version,
+			Timestamp now) throws SQLException {
+		st.setString(1, table);
+		st.setInt(2, rowId);
+		st.setString(3, String.valueOf(operation));
+		if (version == null) {
+			st.setNull(4, Types.INTEGER);
+		} else {
+			st.setInt(4, version);
+		}
+		st.setString(5, ORIGIN);
+		st.setTimestamp(6, now);
+	}
+
+	@Override
+	public long findMaxId() {
+		Connection con = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			con = dataSource.getConnection();
+			st = con.prepareStatement(QUERY_MAX_ID);
+			rs = st.executeQuery();
+			return rs.next() ? rs.getLong("MaxId") : 0;
+		} catch (SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeResultSet(rs);
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+
+	@Override
+	public List<ChangeLogEntry> findAfter(long afterId, int limit) {
+		Connection con = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			con = dataSource.getConnection();
+			st = con.prepareStatement(QUERY_FIND_AFTER);
+			st.setLong(1, afterId);
+			st.setInt(2, limit);
+			rs = st.executeQuery();
+			return instantiateEntries(rs);
+		} catch (SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeResultSet(rs);
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+
+	@Override
+	public List<ChangeLogEntry> findByIds(Collection<Long> ids) {
+		if (ids.isEmpty()) {
+			return new ArrayList<>();
+		}
+		Connection con = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			con = dataSource.getConnection();
+			st = con.prepareStatement("SELECT * FROM change_log WHERE Id IN ("
+					+ String.join(",", Collections.nCopies(ids.size(), "?")) + ") ORDER BY Id");
+			int i = 1;
+			for (Long id : ids) {
+				st.setLong(i++, id);
+			}
+			rs = st.executeQuery();
+			return instantiateEntries(rs);
+		} catch (SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeResultSet(rs);
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+
+	@Override
+	public int deleteOlderThan(Date limit) {
+		Connection con = null;
+		PreparedStatement st = null;
+		try {
+			con = dataSource.getConnection();
+			st = con.prepareStatement(QUERY_DELETE_OLDER);
+			st.setTimestamp(1, new Timestamp(limit.getTime()));
+			return st.executeUpdate();
+		} catch (SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+
+	static List<ChangeLogEntry> instantiateEntries(ResultSet rs) throws SQLException {
+		List<ChangeLogEntry> list = new ArrayList<>();
+		while (rs.next()) {
+			Integer version = rs.getInt("Version");
+			if (rs.wasNull()) {
+				version = null;
+			}
+			list.add(new ChangeLogEntry(
+					rs.getLong("Id"), 
+					rs.getString("TableName"), 
+					rs.getInt("RowId"), 
+					rs.getString("Operation").charAt(0), 
+					version, 
+					rs.getString("Origin"), 
+					new Date(rs.getTimestamp("ChangedAt").getTime())));
+		}
+		return list;
+	}
+}
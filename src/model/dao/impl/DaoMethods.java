@@ -0,0 +1,28 @@
+package model.dao.impl;
+
+import java.lang.reflect.Method;
+
+/**
+ * Classificacao dos metodos dos DAOs usada pelos proxies.
+ */
+class DaoMethods {
+
+	private DaoMethods() {
+	}
+
+	/**
+	 * Leitura sem efeitos colaterais: find*, forEach e salaryStats*.
+	 */
+	static boolean isRead(Method method) {
+		String name = method.getName();
+		return name.startsWith("find") || isStreaming(method) || name.startsWith("salaryStats");
+	}
+
+	/**
+	 * Entrega as linhas a um Consumer durante a leitura; repetir a chamada
+	 * entregaria linhas em dobro.
+	 */
+	static boolean isStreaming(Method method) {
+		return method.getName().equals("forEach");
+	}
+}
@@ -0,0 +1,151 @@
+package model.dao.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import model.dao.CacheStats;
+import model.entities.Department;
+
+/**
+ * Identity map de departamentos: cada Id corresponde a uma unica instancia
+ * de Department enquanto estiver no cache. Entradas expiram pelo TTL e o
+ * tamanho e limitado com despejo LRU.
+ */
+public class DepartmentCache {
+
+	private final long ttlMillis;
+	private final int maxSize;
+
+	private final Map<Integer, CacheEntry> entries;
+	private List<Integer> allIds;
+	private long allLoadedAt;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	public DepartmentCache(long ttlMillis, int maxSize) {
+		this.ttlMillis = ttlMillis;
+		this.maxSize = maxSize;
+		this.entries = new LinkedHashMap<Integer, CacheEntry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, CacheEntry> eldest) {
+				if (size() > DepartmentCache.this.maxSize) {
+					evictions++;
+					allIds = null;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public synchronized Department get(Integer id) {
+		CacheEntry entry = entries.get(id);
+		if (entry != null && !isExpired(entry.loadedAt)) {
+			hits++;
+			return entry.department;
+		}
+		misses++;
+		return null;
+	}
+
+	public synchronized List<Department> getAll() {
+		if (allIds == null || isExpired(allLoadedAt)) {
+			misses++;
+			return null;
+		}
+		List<Department> list = new ArrayList<>(allIds.size());
+		for (Integer id : allIds) {
+			CacheEntry entry = entries.get(id);
+			if (entry == null) {
+				misses++;
+				allIds = null;
+				return null;
+			}
+			list.add(entry.department);
+		}
+		hits++;
+		return list;
+	}
+
+	public synchronized Department put(Department department) {
+		return canonicalize(department.getId(), department.getName(), department.getVersion(), department);
+	}
+
+	public synchronized List<Department> putAll(List<Department> departments) {
+		List<Department> list = new ArrayList<>(departments.size());
+		List<Integer> ids = new ArrayList<>(departments.size());
+		for (Department dep : departments) {
+			list.add(put(dep));
+			ids.add(dep.getId());
+		}
+		if (departments.size() <= maxSize) {
+			allIds = ids;
+			allLoadedAt = System.currentTimeMillis();
+		}
+		return list;
+	}
+
+	/**
+	 * Retorna a instancia em cache para o Id, criando (ou substituindo, se o
+	 * nome ou a versao mudaram) quando necessario.
+	 */
+	public synchronized Department canonicalize(Integer id, String name, Integer version) {
+		return canonicalize(id, name, version, null);
+	}
+
+	private Department canonicalize(Integer id, String name, Integer version, Department candidate) {
+		CacheEntry entry = entries.get(id);
+		if (entry != null && !isExpired(entry.loadedAt) && equalsName(entry.department.getName(), name)
+				&& Objects.equals(entry.department.getVersion(), version)) {
+			return entry.department;
+		}
+		if (entry == null && allIds != null && !allIds.contains(id)) {
+			allIds = null;
+		}
+		Department dep = candidate;
+		if (dep == null) {
+			dep = new Department(id, name);
+			dep.setVersion(version);
+		}
+		entries.put(id, new CacheEntry(dep));
+		return dep;
+	}
+
+	public synchronized void invalidate(Integer id) {
+		entries.remove(id);
+		allIds = null;
+	}
+
+	public synchronized void invalidateAll() {
+		entries.clear();
+		allIds = null;
+	}
+
+	public synchronized CacheStats getStats() {
+		return new CacheStats(hits, misses, evictions, entries.size());
+	}
+
+	private boolean isExpired(long loadedAt) {
+		return System.currentTimeMillis() - loadedAt > ttlMillis;
+	}
+
+	private static boolean equalsName(String a, String b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	private static class CacheEntry {
+		final Department department;
+		final long loadedAt = System.currentTimeMillis();
+
+		CacheEntry(Department department) {
+			this.department = department;
+		}
+	}
+}
@@ -4,18 +4,28 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
 
 import db.DB;
 import db.DBException;
+import db.DbConflictException;
 import db.DbIntegrityException;
+import model.dao.BatchResult;
 import model.dao.DepartmentDao;
+import model.entities.ChangeLogEntry;
 import model.entities.Department;
 
 public class DepartmentDaoJDBC implements DepartmentDao {
 	
+	private static final Logger LOG = Logger.getLogger(DepartmentDaoJDBC.class.getName());
+	
 	private static final String QUERY_FIND_BY_ID = 
 			"SELECT *  "
 			+ "FROM department "
@@ -31,69 +41,111 @@ public class DepartmentDaoJDBC implements DepartmentDao {
 	
 	private static final String QUERY_UPDATE = 
 			"UPDATE department "
-			+ "SET Name = ? "
-			+ "WHERE Id = ?";
+			+ "SET Name = ?, Version = Version + 1 "
+			+ "WHERE Id = ? AND Version = ?";
 	
 	private static final String QUERY_DELETE = 
 			"DELETE FROM department "
 			+ "WHERE Id = ?";
 	
-	private Connection con;
+	private DataSource dataSource;
 
-	public DepartmentDaoJDBC(Connection con) {
-		this.con = con;
+	public DepartmentDaoJDBC(DataSource dataSource) {
+		this.dataSource = dataSource;
 	}
 	
 	@Override
 	public void insert(Department obj) {
+		Connection con = null;
 		PreparedStatement ps = null;
+		ResultSet rs = null;
 		try {
+			con = dataSource.getConnection();
+			con.setAutoCommit(false);
 			ps = con.prepareStatement(QUERY_INSERT, Statement.RETURN_GENERATED_KEYS);
 			
 			ps.setString(1, obj.getName());
 			
 			int rows = ps.executeUpdate();
 			
-			if(rows > 0) {
-				ResultSet rs = ps.getGeneratedKeys();
-				if(rs.next()) {
-					Integer id = rs.getInt(1);
-					obj.setId(id);
-					System.out.println("Inserido com sucesso! Id = " + id);
-				}
-				DB.closeResultSet(rs);
-			}
-			else {
+			if(rows == 0) {
 				throw new DBException("Erro! no foi inserido nenhum departamento");
 			}
+			rs = ps.getGeneratedKeys();
+			if(!rs.next()) {
+				throw new DBException("Erro! O banco nao retornou o id do departamento inserido");
+			}
+			Integer id = rs.getInt(1);
+			ChangeLogDaoJDBC.record(con, "department", id, ChangeLogEntry.INSERT, 0);
+			con.commit();
+			obj.setId(id);
+			obj.setVersion(0);
+			LOG.fine("Inserido com sucesso! Id = " + id);
 		} catch(SQLException e) {
-			throw new DBException(e.getMessage());
+			throw new DBException(e.getMessage(), e);
 		} finally {
+			DB.closeResultSet(rs);
 			DB.closeStatement(ps);
+			DB.closeConnection(con);
 		}
 	}
 
 	@Override
 	public void update(Department obj) {
+		Connection con = null;
 		PreparedStatement ps = null;	
 		try {
+			con = dataSource.getConnection();
+			con.setAutoCommit(false);
 			ps = con.prepareStatement(QUERY_UPDATE);
 			
 			ps.setString(1, obj.getName());
 			ps.setInt(2, obj.getId());
+			ps.setInt(3, versionOf(obj));
 			
-			ps.executeUpdate();
+			if(ps.executeUpdate() == 0) {
+				throw new DbConflictException("department", obj.getId(), obj.getVersion());
+			}
+			ChangeLogDaoJDBC.record(con, "department", obj.getId(), ChangeLogEntry.UPDATE, versionOf(obj) + 1);
+			con.commit();
+			obj.setVersion(versionOf(obj) + 1);
 		} catch(SQLException e) {
-			throw new DBException(e.getMessage());
+			throw new DBException(e.getMessage(), e);
 		} finally {
 			DB.closeStatement(ps);
+			DB.closeConnection(con);
 		}
 	}
 
+	@Override
+	public BatchResult<Department> insertAll(Collection<Department> list) {
+		return new JdbcBatch<Department>(dataSource, QUERY_INSERT, (ps, obj) -> ps.setString(1, obj.getName()),
+				Department::setId)
+				.beforeCommit((con, items) -> logChanges(con, items, ChangeLogEntry.INSERT))
+				.afterCommit(obj -> obj.setVersion(0))
+				.execute(list, DB.getBatchSize());
+	}
+
+	@Override
+	public BatchResult<Department> updateAll(Collection<Department> list) {
+		return new JdbcBatch<Department>(dataSource, QUERY_UPDATE, (ps, obj) -> {
+			ps.setString(1, obj.getName());
+			ps.setInt(2, obj.getId());
+			ps.setInt(3, versionOf(obj));
+		}, null)
+				.noRowsMessage("Conflito de versao: departamento alterado ou removido por outro usuario")
+				.beforeCommit((con, items) -> logChanges(con, items, ChangeLogEntry.UPDATE))
+				.afterCommit(obj -> obj.setVersion(versionOf(obj) + 1))
+				.execute(list, DB.getBatchSize());
+	}
+
 	@Override
 	public void deleteById(Integer id) {
+		Connection con = null;
 		PreparedStatement ps = null;	
 		try {
+			con = dataSource.getConnection();
+			con.setAutoCommit(false);
 			ps = con.prepareStatement(QUERY_DELETE);
 			
 			ps.setInt(1, id);
@@ -101,22 +153,33 @@ public class DepartmentDaoJDBC implements DepartmentDao {
 			int rowsAffected = ps.executeUpdate();
 			
 			if(rowsAffected > 0) {
-				System.out.println("Departamento excludo com sucesso!");
+				ChangeLogDaoJDBC.record(con, "department", id, ChangeLogEntry.DELETE, null);
+				con.commit();
+				LOG.fine("Departamento excludo com sucesso! Id = " + id);
 			} else {
-				System.out.println("No existe departamento com este ID!");
+				LOG.fine("No existe departamento com este ID! Id = " + id);
 			}
 		} catch(SQLException e) {
-			throw new DbIntegrityException(e.getMessage());
+			// so violacao de restricao (sellers no departamento); falha de
+			// conexao ou circuito aberto seguem como DBException
+			if (e instanceof SQLIntegrityConstraintViolationException
+					|| (e.getSQLState() != null && e.getSQLState().startsWith("23"))) {
+				throw new DbIntegrityException(e.getMessage(), e);
+			}
+			throw new DBException(e.getMessage(), e);
 		} finally {
 			DB.closeStatement(ps);
+			DB.closeConnection(con);
 		}
 	}
 
 	@Override
 	public Department findById(Integer id) {
+		Connection con = null;
 		PreparedStatement ps = null;
 		ResultSet rs = null;
 		try {
+			con = dataSource.getConnection();
 			ps = con.prepareStatement(QUERY_FIND_BY_ID);
 			
 			ps.setInt(1, id);
@@ -126,23 +189,26 @@ public class DepartmentDaoJDBC implements DepartmentDao {
 			if(rs.next()) {
 				return instantiateDeparment(rs);
 			}else {
-				System.out.println("No existe Departamento para o ID escolhido!");
+				LOG.fine("No existe Departamento para o ID escolhido! Id = " + id);
 				return null;
 			}
 		} catch(SQLException e) {
-			throw new DBException(e.getMessage());
+			throw new DBException(e.getMessage(), e);
 		} finally {
 			DB.closeResultSet(rs);
 			DB.closeStatement(ps);
+			DB.closeConnection(con);
 		}
 	}
 
 	@Override
 	public List<Department> findAll() {
+		Connection con = null;
 		PreparedStatement ps = null;
 		ResultSet rs = null;
 		List<Department> lista = new ArrayList<>();
 		try {
+			con = dataSource.getConnection();
 			ps = con.prepareStatement(QUERY_FIND_ALL);
 			
 			rs = ps.executeQuery();
@@ -152,14 +218,34 @@ public class DepartmentDaoJDBC implements DepartmentDao {
 			}
 			return lista;
 		} catch(SQLException e) {
-			throw new DBException(e.getMessage());
+			throw new DBException(e.getMessage(), e);
 		} finally {
 			DB.closeResultSet(rs);
 			DB.closeStatement(ps);
+			DB.closeConnection(con);
 		}
 	}
 	
 	private Department instantiateDeparment(ResultSet rs) throws SQLException {
-		return new Department(rs.getInt("Id"), rs.getString("Name"));
+		Department dep = new Department(rs.getInt("Id"), rs.getString("Name"));
+		dep.setVersion(rs.getInt("Version"));
+		return dep;
+	}
+	
+	private static void logChanges(Connection con, List<Department> items, char operation) throws SQLException {
+		List<Integer> ids = new ArrayList<>(items.size());
+		List<Integer> versions = new ArrayList<>(items.size());
+		for(Department obj : items) {
+			ids.add(obj.getId());
+			versions.add(operation == ChangeLogEntry.INSERT ? 0 : versionOf(obj) + 1);
+		}
+		ChangeLogDaoJDBC.recordAll(con, "department", operation, ids, versions);
+	}
+	
+	private static int versionOf(Department obj) {
+		if(obj.getVersion() == null) {
+			throw new DBException("Departamento Id=" + obj.getId() + " sem versao: recarregue o registro antes de alterar");
+		}
+		return obj.getVersion();
 	}
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package model.dao.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+import db.QueryMetrics;
+import model.dao.BatchResult;
+
+/**
+ * Proxy que mede cada metodo de um DAO no {@link QueryMetrics}, com o nome
+ * "Interface.metodo". As linhas contadas sao o tamanho das listas
+ * retornadas, as linhas afetadas em lotes e updates, ou os itens entregues
+ * a um Consumer.
+ */
+public class InstrumentedDao implements InvocationHandler {
+
+	private final Object target;
+	private final String prefix;
+
+	private InstrumentedDao(Object target, String prefix) {
+		this.target = target;
+		this.prefix = prefix;
+	}
+
+	public static <T> T wrap(Class<T> iface, T target) {
+		Object proxy = Proxy.newProxyInstance(iface.getClassLoader(), new Class<?>[] { iface },
+				new InstrumentedDao(target, iface.getSimpleName() + "."));
+		return iface.cast(proxy);
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		if (method.getDeclaringClass() == Object.class) {
+			return method.invoke(target, args);
+		}
+		long[] consumed = null;
+		if (args != null) {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i] instanceof Consumer) {
+					consumed = new long[1];
+					args[i] = counting((Consumer<?>) args[i], consumed);
+				}
+			}
+		}
+
+		QueryMetrics.Scope scope = QueryMetrics.begin(prefix + method.getName());
+		Object result = null;
+		boolean failed = true;
+		try {
+			result = method.invoke(target, args);
+			failed = false;
+			return result;
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		} finally {
+			scope.end(consumed != null ? consumed[0] : rowsOf(result), failed);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> Consumer<T> counting(Consumer<?> action, long[] counter) {
+		Consumer<T> typed = (Consumer<T>) action;
+		return item -> {
+			counter[0]++;
+			typed.accept(item);
+		};
+	}
+
+	private static long rowsOf(Object result) {
+		if (result == null) {
+			return 0;
+		}
+		if (result instanceof Collection) {
+			return ((Collection<?>) result).size();
+		}
+		if (result instanceof BatchResult) {
+			return ((BatchResult<?>) result).getSucceeded();
+		}
+		if (result instanceof Number) {
+			return ((Number) result).longValue();
+		}
+		return 1;
+	}
+}
@@ -0,0 +1,222 @@
+package model.dao.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.sql.DataSource;
+
+import db.DB;
+import db.DBException;
+import model.dao.BatchResult;
+
+/**
+ * Executa um mesmo comando para varios registros com addBatch/executeBatch,
+ * um commit por lote. Se o lote falhar ele e desfeito e reexecutado registro
+ * a registro, para que apenas as linhas invalidas sejam rejeitadas.
+ * <p>
+ * Se a conexao ja estiver em uma transacao (unidade de trabalho aberta), os
+ * lotes sao isolados por savepoints e o commit fica com quem abriu a
+ * transacao.
+ */
+class JdbcBatch<T> {
+
+	interface Binder<T> {
+		void bind(PreparedStatement st, T obj) throws SQLException;
+	}
+
+	interface KeySetter<T> {
+		/**
+		 * @param id chave gerada, ou null para desfazer a atribuicao quando o
+		 *           lote e desfeito
+		 */
+		void setKey(T obj, Integer id);
+	}
+
+	interface ChunkHook<T> {
+		void written(Connection con, List<T> items) throws SQLException;
+	}
+
+	private final DataSource dataSource;
+	private final String sql;
+	private final Binder<T> binder;
+	private final KeySetter<T> keySetter;
+	private String noRowsMessage = "Nenhum registro afetado";
+	private Consumer<T> afterCommit;
+	private ChunkHook<T> beforeCommit;
+
+	JdbcBatch(DataSource dataSource, String sql, Binder<T> binder, KeySetter<T> keySetter) {
+		this.dataSource = dataSource;
+		this.sql = sql;
+		this.binder = binder;
+		this.keySetter = keySetter;
+	}
+
+	/**
+	 * Mensagem da falha registrada quando o comando nao afeta nenhuma linha
+	 * (ex.: UPDATE com versao desatualizada).
+	 */
+	JdbcBatch<T> noRowsMessage(String message) {
+		this.noRowsMessage = message;
+		return this;
+	}
+
+	/**
+	 * Chamado com os registros gravados de cada lote, na mesma transacao,
+	 * antes do commit.
+	 */
+	JdbcBatch<T> beforeCommit(ChunkHook<T> hook) {
+		this.beforeCommit = hook;
+		return this;
+	}
+
+	/**
+	 * Acao aplicada a cada registro gravado, depois do commit do lote.
+	 */
+	JdbcBatch<T> afterCommit(Consumer<T> action) {
+		this.afterCommit = action;
+		return this;
+	}
+
+	BatchResult<T> execute(Collection<T> items, int batchSize) {
+		BatchResult<T> result = new BatchResult<>();
+		List<T> list = new ArrayList<>(items);
+		if (list.isEmpty()) {
+			return result;
+		}
+
+		Connection con = null;
+		PreparedStatement st = null;
+		try {
+			con = dataSource.getConnection();
+			boolean ownTransaction = con.getAutoCommit();
+			if (ownTransaction) {
+				con.setAutoCommit(false);
+			}
+			st = keySetter != null ? con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+					: con.prepareStatement(sql);
+
+			for (int from = 0; from < list.size(); from += batchSize) {
+				List<T> chunk = list.subList(from, Math.min(from + batchSize, list.size()));
+				List<T> written = new ArrayList<>(chunk.size());
+				Savepoint savepoint = ownTransaction ? null : con.setSavepoint();
+				try {
+					BatchResult<T> chunkResult = executeChunk(st, chunk, from, written);
+					if (beforeCommit != null) {
+						beforeCommit.written(con, written);
+					}
+					if (ownTransaction) {
+						con.commit();
+					}
+					result.merge(chunkResult);
+				} catch (SQLException | RuntimeException e) {
+					st.clearBatch();
+					if (ownTransaction) {
+						con.rollback();
+					} else {
+						con.rollback(savepoint);
+					}
+					// as chaves do lote desfeito nao existem mais no banco
+					clearKeys(chunk);
+					written.clear();
+					try {
+						executeOneByOne(st, chunk, from, result, written);
+						if (beforeCommit != null) {
+							beforeCommit.written(con, written);
+						}
+						if (ownTransaction) {
+							con.commit();
+						}
+					} catch (SQLException | RuntimeException retryError) {
+						clearKeys(chunk);
+						throw retryError;
+					}
+				}
+				if (afterCommit != null) {
+					written.forEach(afterCommit);
+				}
+			}
+			if (ownTransaction) {
+				con.setAutoCommit(true);
+			}
+			return result;
+		} catch (SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+
+	private BatchResult<T> executeChunk(PreparedStatement st, List<T> chunk, int offset, List<T> written)
+			throws SQLException {
+		for (T obj : chunk) {
+			binder.bind(st, obj);
+			st.addBatch();
+		}
+		int[] counts = st.executeBatch();
+
+		BatchResult<T> chunkResult = new BatchResult<>();
+		for (int i = 0; i < chunk.size(); i++) {
+			int count = i < counts.length ? counts[i] : Statement.SUCCESS_NO_INFO;
+			if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+				chunkResult.addSuccess(1);
+				written.add(chunk.get(i));
+			} else {
+				chunkResult.addFailure(offset + i, chunk.get(i), noRowsMessage);
+			}
+		}
+		if (keySetter != null) {
+			assignKeys(st, chunk);
+		}
+		return chunkResult;
+	}
+
+	private void executeOneByOne(PreparedStatement st, List<T> chunk, int offset, BatchResult<T> result,
+			List<T> written) {
+		for (int i = 0; i < chunk.size(); i++) {
+			T obj = chunk.get(i);
+			try {
+				binder.bind(st, obj);
+				if (st.executeUpdate() > 0) {
+					if (keySetter != null) {
+						assignKeys(st, chunk.subList(i, i + 1));
+					}
+					result.addSuccess(1);
+					written.add(obj);
+				} else {
+					result.addFailure(offset + i, obj, noRowsMessage);
+				}
+			} catch (SQLException | RuntimeException e) {
+				result.addFailure(offset + i, obj, e.getMessage());
+			}
+		}
+	}
+
+	private void clearKeys(List<T> chunk) {
+		if (keySetter != null) {
+			for (T obj : chunk) {
+				keySetter.setKey(obj, null);
+			}
+		}
+	}
+
+	private void assignKeys(PreparedStatement st, List<T> chunk) throws SQLException {
+		ResultSet rs = st.getGeneratedKeys();
+		try {
+			int i = 0;
+			while (rs.next() && i < chunk.size()) {
+				keySetter.setKey(chunk.get(i++), rs.getInt(1));
+			}
+		} finally {
+			DB.closeResultSet(rs);
+		}
+	}
+}
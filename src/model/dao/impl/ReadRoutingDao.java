@@ -0,0 +1,63 @@
+package model.dao.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import db.DBException;
+import db.QueryCancellation;
+import db.RoutingDataSource;
+
+/**
+ * Proxy que marca os metodos de leitura de um DAO (find*, forEach,
+ * salaryStats*) para o {@link RoutingDataSource}, que pode atende-los em uma
+ * replica. Se a leitura falha na replica ela e repetida uma vez no
+ * principal (exceto forEach, que pode ja ter entregue linhas).
+ */
+public class ReadRoutingDao implements InvocationHandler {
+
+	private final Object target;
+
+	private ReadRoutingDao(Object target) {
+		this.target = target;
+	}
+
+	public static <T> T wrap(Class<T> iface, T target) {
+		Object proxy = Proxy.newProxyInstance(iface.getClassLoader(), new Class<?>[] { iface },
+				new ReadRoutingDao(target));
+		return iface.cast(proxy);
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		if (method.getDeclaringClass() == Object.class || !DaoMethods.isRead(method)) {
+			return call(method, args);
+		}
+		RoutingDataSource.enterRead();
+		try {
+			return call(method, args);
+		} catch (DBException e) {
+			if (QueryCancellation.isCurrentCancelled() || !RoutingDataSource.readFailedOnReplica()
+					|| DaoMethods.isStreaming(method)) {
+				throw e;
+			}
+			RoutingDataSource.enterPrimary();
+			try {
+				return call(method, args);
+			} finally {
+				RoutingDataSource.exitPrimary();
+			}
+		} finally {
+			RoutingDataSource.exitRead();
+		}
+	}
+
+	private Object call(Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+}
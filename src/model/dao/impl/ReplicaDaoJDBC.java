@@ -0,0 +1,456 @@
+package model.dao.impl;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import db.DB;
+import db.DBException;
+import model.dao.ReplicaDao;
+import model.entities.ChangeLogEntry;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Implementacao para a replica H2. Os auto-incrementos sao reposicionados
+ * com ALTER TABLE ... RESTART WITH, sintaxe do H2.
+ */
+public class ReplicaDaoJDBC implements ReplicaDao {
+
+	private static final String QUERY_CREATE_STATE_TABLE = 
+			"CREATE TABLE IF NOT EXISTS sync_state ("
+			+ "Name VARCHAR(40) NOT NULL PRIMARY KEY, "
+			+ "Value BIGINT NOT NULL)";
+
+	private static final String QUERY_FIND_STATE = 
+			"SELECT Value "
+			+ "FROM sync_state "
+			+ "WHERE Name = ?";
+
+	private static final String QUERY_UPDATE_STATE = 
+			"UPDATE sync_state "
+			+ "SET Value = ? "
+			+ "WHERE Name = ?";
+
+	private static final String QUERY_INSERT_STATE = 
+			"INSERT INTO sync_state (Value, Name) "
+			+ "VALUES (?, ?)";
+
+	private static final String QUERY_FIND_PENDING = 
+			"SELECT * "
+			+ "FROM change_log "
+			+ "ORDER BY Id "
+			+ "LIMIT ?";
+
+	private static final String QUERY_COUNT_PENDING = 
+			"SELECT COUNT(*) "
+			+ "FROM change_log";
+
+	private static final String QUERY_FIND_PENDING_ROWS = 
+			"SELECT DISTINCT TableName, RowId "
+			+ "FROM change_log";
+
+	private static final String QUERY_MARK_PUSHED = 
+			"DELETE FROM change_log "
+			+ "WHERE TableName = ? AND RowId = ? AND Id <= ?";
+
+	private static final String QUERY_REKEY_PENDING = 
+			"UPDATE change_log "
+			+ "SET RowId = ? "
+			+ "WHERE TableName = ? AND RowId = ?";
+
+	private static final String QUERY_UPDATE_DEPARTMENT = 
+			"UPDATE department "
+			+ "SET Name = ?, Version = ? "
+			+ "WHERE Id = ?";
+
+	private static final String QUERY_INSERT_DEPARTMENT = 
+			"INSERT INTO department (Name, Version, Id) "
+			+ "VALUES (?, ?, ?)";
+
+	private static final String QUERY_UPDATE_SELLER = 
+			"UPDATE seller "
+			+ "SET Name = ?, Email = ?, BirthDate = ?, BaseSalary = ?, DepartmentId = ?, Version = ? "
+			+ "WHERE Id = ?";
+
+	private static final String QUERY_INSERT_SELLER = 
+			"INSERT INTO seller (Name, Email, BirthDate, BaseSalary, DepartmentId, Version, Id) "
+			+ "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+	private static final String QUERY_COPY_DEPARTMENT = 
+			"INSERT INTO department (Id, Name, Version) "
+			+ "SELECT ?, Name, ? FROM department WHERE Id = ?";
+
+	private static final String QUERY_MOVE_SELLERS = 
+			"UPDATE seller "
+			+ "SET DepartmentId = ? "
+			+ "WHERE DepartmentId = ?";
+
+	private static final String QUERY_REKEY_SELLER = 
+			"UPDATE seller "
+			+ "SET Id = ?, Version = ? "
+			+ "WHERE Id = ?";
+
+	private DataSource dataSource;
+
+	public ReplicaDaoJDBC(DataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	@Override
+	public void initialize() {
+		Connection con = null;
+		Statement st = null;
+		ResultSet rs = null;
+		try {
+			con = dataSource.getConnection();
+			st = con.createStatement();
+			st.execute(QUERY_CREATE_STATE_TABLE);
+			for (String table : new String[] { "department", "seller" }) {
+				rs = st.executeQuery("SELECT MAX(Id) FROM " + table);
+				long max = rs.next() ? rs.getLong(1) : 0;
+				DB.closeResultSet(rs);
+				rs = null;
+				st.execute("ALTER TABLE " + table + " ALTER COLUMN Id RESTART WITH " + Math.max(LOCAL_ID_BASE, max + 1));
+			}
+		} catch (SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeResultSet(rs);
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+
+	@Override
+	public Long getState(String key) {
+		Connection con = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			con = dataSource.getConnection();
+			st = con.prepareStatement(QUERY_FIND_STATE);
+			st.setString(1, key);
+			rs = st.executeQuery();
+			return rs.next() ? rs.getLong("Value") : null;
+		} catch (SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeResultSet(rs);
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+
+	@Override
+	public void setState(String key, long value) {
+		Connection con = null;
+		PreparedStatement st = null;
+		try {
+			con = dataSource.getConnection();
+			st = con.prepareStatement(QUERY_UPDATE_STATE);
+			st.setLong(1, value);
+			st.setString(2, key);
+			if (st.executeUpdate() == 0) {
+				DB.closeStatement(st);
+				st = con.prepareStatement(QUERY_INSERT_STATE);
+				st.setLong(1, value);
+				st.setString(2, key);
+				st.executeUpdate();
+			}
+		} catch (SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+
+	@Override
+	public List<ChangeLogEntry> findPending(int limit) {
+		Connection con = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			con = dataSource.getConnection();
+			st = con.prepareStatement(QUERY_FIND_PENDING);
+			st.setInt(1, limit);
+			rs = st.executeQuery();
+			return ChangeLogDaoJDBC.instantiateEntries(rs);
+		} catch (SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeResultSet(rs);
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+
+	@Override
+	public int countPending() {
+		Connection con = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			con = dataSource.getConnection();
+			st = con.prepareStatement(QUERY_COUNT_PENDING);
+			rs = st.executeQuery();
+			return rs.next() ? rs.getInt(1) : 0;
+		} catch (SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeResultSet(rs);
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+
+	@Override
+	public Set<String> findPendingRows() {
+		Connection con = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			con = dataSource.getConnection();
+			st = con.prepareStatement(QUERY_FIND_PENDING_ROWS);
+			rs = st.executeQuery();
+			Set<String> rows = new HashSet<>();
+			while (rs.next()) {
+				rows.add(rs.getString("TableName") + ":" + rs.getInt("RowId"));
+			}
+			return rows;
+		} catch (SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeResultSet(rs);
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+
+	@Override
+	public void markPushed(String table, int rowId, long upToEntryId) {
+		Connection con = null;
+		PreparedStatement st = null;
+		try {
+			con = dataSource.getConnection();
+			st = con.prepareStatement(QUERY_MARK_PUSHED);
+			st.setString(1, table);
+			st.setInt(2, rowId);
+			st.setLong(3, upToEntryId);
+			st.executeUpdate();
+		} catch (SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+
+	@Override
+	public boolean upsertDepartment(Department obj, boolean force) {
+		Connection con = null;
+		PreparedStatement st = null;
+		try {
+			con = dataSource.getConnection();
+			st = con.prepareStatement(QUERY_UPDATE_DEPARTMENT + (force ? "" : " AND Version < ?"));
+			st.setString(1, obj.getName());
+			st.setInt(2, obj.getVersion());
+			st.setInt(3, obj.getId());
+			if (!force) {
+				st.setInt(4, obj.getVersion());
+			}
+			if (st.executeUpdate() > 0) {
+				return true;
+			}
+			if (exists(con, "department", obj.getId())) {
+				return false;
+			}
+			DB.closeStatement(st);
+			st = con.prepareStatement(QUERY_INSERT_DEPARTMENT);
+			st.setString(1, obj.getName());
+			st.setInt(2, obj.getVersion());
+			st.setInt(3, obj.getId());
+			st.executeUpdate();
+			return true;
+		} catch (SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+
+	@Override
+	public boolean upsertSeller(Seller obj, boolean force) {
+		Connection con = null;
+		PreparedStatement st = null;
+		try {
+			con = dataSource.getConnection();
+			st = con.prepareStatement(QUERY_UPDATE_SELLER + (force ? "" : " AND Version < ?"));
+			setSellerParameters(st, obj);
+			if (!force) {
+				st.setInt(8, obj.getVersion());
+			}
+			if (st.executeUpdate() > 0) {
+				return true;
+			}
+			if (exists(con, "seller", obj.getId())) {
+				return false;
+			}
+			DB.closeStatement(st);
+			st = con.prepareStatement(QUERY_INSERT_SELLER);
+			setSellerParameters(st, obj);
+			st.executeUpdate();
+			return true;
+		} catch (SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+
+	private void setSellerParameters(PreparedStatement st, Seller obj) throws SQLException {
+		st.setString(1, obj.getName());
+		st.setString(2, obj.getEmail());
+		st.setDate(3, new java.sql.Date(obj.getBirthDate().getTime()));
+		st.setDouble(4, obj.getBaseSalary());
+		st.setInt(5, obj.getDepartment().getId());
+		st.setInt(6, obj.getVersion());
+		st.setInt(7, obj.getId());
+	}
+
+	private boolean exists(Connection con, String table, int id) throws SQLException {
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			st = con.prepareStatement("SELECT 1 FROM " + checkTable(table) + " WHERE Id = ?");
+			st.setInt(1, id);
+			rs = st.executeQuery();
+			return rs.next();
+		} finally {
+			DB.closeResultSet(rs);
+			DB.closeStatement(st);
+		}
+	}
+
+	@Override
+	public void deleteRow(String table, int id) {
+		Connection con = null;
+		PreparedStatement st = null;
+		try {
+			con = dataSource.getConnection();
+			st = con.prepareStatement("DELETE FROM " + checkTable(table) + " WHERE Id = ?");
+			st.setInt(1, id);
+			st.executeUpdate();
+		} catch (SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+
+	@Override
+	public void setVersion(String table, int id, int version) {
+		Connection con = null;
+		PreparedStatement st = null;
+		try {
+			con = dataSource.getConnection();
+			st = con.prepareStatement("UPDATE " + checkTable(table) + " SET Version = ? WHERE Id = ?");
+			st.setInt(1, version);
+			st.setInt(2, id);
+			st.executeUpdate();
+		} catch (SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+
+	@Override
+	public void rekey(String table, int oldId, int newId, int version) {
+		Connection con = null;
+		PreparedStatement st = null;
+		try {
+			con = dataSource.getConnection();
+			con.setAutoCommit(false);
+			if ("department".equals(checkTable(table))) {
+				// a FK de seller impede trocar o Id no lugar
+				st = con.prepareStatement(QUERY_COPY_DEPARTMENT);
+				st.setInt(1, newId);
+				st.setInt(2, version);
+				st.setInt(3, oldId);
+				st.executeUpdate();
+				DB.closeStatement(st);
+				st = con.prepareStatement(QUERY_MOVE_SELLERS);
+				st.setInt(1, newId);
+				st.setInt(2, oldId);
+				st.executeUpdate();
+				DB.closeStatement(st);
+				st = con.prepareStatement("DELETE FROM department WHERE Id = ?");
+				st.setInt(1, oldId);
+				st.executeUpdate();
+			} else {
+				st = con.prepareStatement(QUERY_REKEY_SELLER);
+				st.setInt(1, newId);
+				st.setInt(2, version);
+				st.setInt(3, oldId);
+				st.executeUpdate();
+			}
+			DB.closeStatement(st);
+			st = con.prepareStatement(QUERY_REKEY_PENDING);
+			st.setInt(1, newId);
+			st.setString(2, table);
+			st.setInt(3, oldId);
+			st.executeUpdate();
+			con.commit();
+		} catch (SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+
+	@Override
+	public List<Integer> findServerIds(String table) {
+		Connection con = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		try {
+			con = dataSource.getConnection();
+			st = con.prepareStatement("SELECT Id FROM " + checkTable(table) + " WHERE Id < ?");
+			st.setInt(1, LOCAL_ID_BASE);
+			rs = st.executeQuery();
+			List<Integer> ids = new ArrayList<>();
+			while (rs.next()) {
+				ids.add(rs.getInt("Id"));
+			}
+			return ids;
+		} catch (SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeResultSet(rs);
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+
+	private static String checkTable(String table) {
+		if (!"seller".equals(table) && !"department".equals(table)) {
+			throw new IllegalArgumentException("Tabela nao replicada: " + table);
+		}
+		return table;
+	}
+}
@@ -0,0 +1,99 @@
+package model.dao.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import db.DB;
+import db.DBException;
+import db.QueryCancellation;
+import db.QueryTimeout;
+import db.RetryPolicy;
+
+/**
+ * Proxy que aplica a um DAO o timeout por operacao e as novas tentativas:
+ * <ul>
+ * <li>query.timeoutSec.Interface.metodo (ex.:
+ * query.timeoutSec.SellerDao.forEach) substitui o query.timeoutSec para os
+ * statements do metodo;</li>
+ * <li>leituras que falham por erro transitorio sao repetidas conforme o
+ * {@link RetryPolicy}, exceto forEach e chamadas dentro de uma unidade de
+ * trabalho (a transacao ja foi perdida).</li>
+ * </ul>
+ */
+public class ResilientDao implements InvocationHandler {
+
+	private static final Logger LOG = Logger.getLogger(ResilientDao.class.getName());
+
+	private static final Integer NO_OVERRIDE = -1;
+
+	private final Object target;
+	private final String prefix;
+	private final Map<Method, Integer> timeouts = new ConcurrentHashMap<>();
+
+	private ResilientDao(Object target, String prefix) {
+		this.target = target;
+		this.prefix = prefix;
+	}
+
+	public static <T> T wrap(Class<T> iface, T target) {
+		Object proxy = Proxy.newProxyInstance(iface.getClassLoader(), new Class<?>[] { iface },
+				new ResilientDao(target, iface.getSimpleName() + "."));
+		return iface.cast(proxy);
+	}
+
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		if (method.getDeclaringClass() == Object.class) {
+			return call(method, args);
+		}
+		Integer timeout = timeouts.computeIfAbsent(method,
+				m -> DB.getIntProperty("query.timeoutSec." + prefix + m.getName(), NO_OVERRIDE));
+		Integer previous = timeout.equals(NO_OVERRIDE) ? null : QueryTimeout.enter(timeout);
+		try {
+			if (!DaoMethods.isRead(method) || DaoMethods.isStreaming(method)) {
+				return call(method, args);
+			}
+			return callWithRetry(method, args);
+		} finally {
+			if (!timeout.equals(NO_OVERRIDE)) {
+				QueryTimeout.exit(previous);
+			}
+		}
+	}
+
+	private Object callWithRetry(Method method, Object[] args) throws Throwable {
+		RetryPolicy policy = DB.getRetryPolicy();
+		for (int attempt = 1;; attempt++) {
+			try {
+				return call(method, args);
+			} catch (DBException e) {
+				if (attempt >= policy.getMaxAttempts() || !policy.isRetryable(e)
+						|| DB.getWorkingDataSource().isBound() || QueryCancellation.isCurrentCancelled()) {
+					throw e;
+				}
+				long delay = policy.delayMillis(attempt);
+				LOG.fine(prefix + method.getName() + " falhou (" + e.getMessage() + "), tentativa " + (attempt + 1)
+						+ " em " + delay + " ms");
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+			}
+		}
+	}
+
+	private Object call(Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+}
@@ -4,39 +4,92 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
 
-import com.mysql.jdbc.Statement;
+import javax.sql.DataSource;
 
 import db.DB;
 import db.DBException;
+import db.DbConflictException;
+import model.dao.BatchResult;
 import model.dao.SellerDao;
+import model.dao.SellerFilter;
+import model.dao.SellerQuery;
+import model.dao.SellerSort;
 import model.entities.Department;
+import model.entities.ChangeLogEntry;
+import model.entities.DepartmentSalaryStats;
 import model.entities.Seller;
 
 public class SellerDaoJDBC implements SellerDao {
 	
+	private static final Logger LOG = Logger.getLogger(SellerDaoJDBC.class.getName());
+	
 	private static final String QUERY_FIND_BY_ID = 
-			"SELECT seller.*,department.Name as DepName  "
+			"SELECT seller.*,department.Name as DepName,department.Version as DepVersion "
 			+ "FROM seller "
 			+ "INNER JOIN department ON seller.DepartmentId = department.Id "
 			+ "WHERE seller.Id = ?";
 	
 	private static final String QUERY_FIND_BY_DEPARTMENT = 
-			"SELECT seller.*,department.Name as DepName "
+			"SELECT seller.*,department.Name as DepName,department.Version as DepVersion "
 			+ "FROM seller "
 			+ "INNER JOIN department ON seller.DepartmentId = department.Id "
 			+ "WHERE DepartmentId = ? "
 			+ "ORDER BY Name";
 	
-	private static final String QUERY_FIND_ALL = 
-			"SELECT seller.*,department.Name as DepName "
+	private static final String QUERY_FIND_DEPARTMENT_FIRST_PAGE = 
+			"SELECT seller.*,department.Name as DepName,department.Version as DepVersion "
 			+ "FROM seller "
 			+ "INNER JOIN department ON seller.DepartmentId = department.Id "
-			+ "ORDER BY Name";
+			+ "WHERE seller.DepartmentId = ? "
+			+ "ORDER BY seller.Name, seller.Id "
+			+ "LIMIT ?";
+	
+	private static final String QUERY_FIND_DEPARTMENT_PAGE_AFTER = 
+			"SELECT seller.*,department.Name as DepName,department.Version as DepVersion "
+			+ "FROM seller "
+			+ "INNER JOIN department ON seller.DepartmentId = department.Id "
+			+ "WHERE seller.DepartmentId = ? AND (seller.Name > ? OR (seller.Name = ? AND seller.Id > ?)) "
+			+ "ORDER BY seller.Name, seller.Id "
+			+ "LIMIT ?";
+	
+	static final String QUERY_FIND_ALL = 
+			"SELECT seller.*,department.Name as DepName,department.Version as DepVersion "
+			+ "FROM seller "
+			+ "INNER JOIN department ON seller.DepartmentId = department.Id "
+			+ "ORDER BY seller.Name, seller.Id";
+	
+	private static final String QUERY_FIND_FIRST_PAGE = 
+			"SELECT seller.*,department.Name as DepName,department.Version as DepVersion "
+			+ "FROM seller "
+			+ "INNER JOIN department ON seller.DepartmentId = department.Id "
+			+ "ORDER BY seller.Name, seller.Id "
+			+ "LIMIT ?";
+	
+	private static final String QUERY_FIND_PAGE_AFTER = 
+			"SELECT seller.*,department.Name as DepName,department.Version as DepVersion "
+			+ "FROM seller "
+			+ "INNER JOIN department ON seller.DepartmentId = department.Id "
+			+ "WHERE seller.Name > ? OR (seller.Name = ? AND seller.Id > ?) "
+			+ "ORDER BY seller.Name, seller.Id "
+			+ "LIMIT ?";
+	
+	private static final String QUERY_SELECT = 
+			"SELECT seller.*,department.Name as DepName,department.Version as DepVersion "
+			+ "FROM seller "
+			+ "INNER JOIN department ON seller.DepartmentId = department.Id ";
+	
+	private static final String QUERY_SALARY_STATS = salaryStatsQuery();
 	
 	private static final String QUERY_INSERT = 
 			"INSERT INTO seller (Name, Email, BirthDate, BaseSalary, DepartmentId) "
@@ -44,102 +97,188 @@ public class SellerDaoJDBC implements SellerDao {
 	
 	private static final String QUERY_UPDATE = 
 			"UPDATE seller "
-			+ "SET Name = ?, Email = ?, BirthDate = ?, BaseSalary = ?, DepartmentId = ? "
-			+ "WHERE Id = ?";
+			+ "SET Name = ?, Email = ?, BirthDate = ?, BaseSalary = ?, DepartmentId = ?, Version = Version + 1 "
+			+ "WHERE Id = ? AND Version = ?";
+	
+	private static final String QUERY_REASSIGN_DEPARTMENT = 
+			"UPDATE seller "
+			+ "SET DepartmentId = ?, Version = Version + 1 "
+			+ "WHERE DepartmentId = ?";
+	
+	private static final String QUERY_LOG_REASSIGN = 
+			"INSERT INTO change_log (TableName, RowId, Operation, Version, Origin, ChangedAt) "
+			+ "SELECT 'seller', Id, 'U', Version + 1, ?, ? "
+			+ "FROM seller "
+			+ "WHERE DepartmentId = ?";
 	
 	private static final String QUERY_DELETE = 
 			"DELETE FROM seller "
 			+ "WHERE Id = ?";
 	
-	private Connection con;
+	private static final int MAX_IN_PARAMETERS = 500;
 	
-	public SellerDaoJDBC(Connection con) {
-		this.con = con;
+	private DataSource dataSource;
+	
+	private DepartmentCache departmentCache;
+	
+	public SellerDaoJDBC(DataSource dataSource, DepartmentCache departmentCache) {
+		this.dataSource = dataSource;
+		this.departmentCache = departmentCache;
 	}
 
 	@Override
 	public void insert(Seller obj) {
+		Connection con = null;
 		PreparedStatement st = null;
+		ResultSet rs = null;
 		try {
+			con = dataSource.getConnection();
+			con.setAutoCommit(false);
 			st = con.prepareStatement(QUERY_INSERT, Statement.RETURN_GENERATED_KEYS);
 			
-			st.setString(1, obj.getName());
-			st.setString(2, obj.getEmail());
-			st.setDate(3, new java.sql.Date(obj.getBirthDate().getTime()));
-			st.setDouble(4, obj.getBaseSalary());
-			st.setInt(5, obj.getDepartment().getId());
+			setSellerParameters(st, obj);
 			
 			int rowsInserted = st.executeUpdate();
 			
-			if(rowsInserted > 0) {
-				ResultSet rs = st.getGeneratedKeys();
-				if(rs.next()) {
-					int id = rs.getInt(1);
-					obj.setId(id);
-				}
-				DB.closeResultSet(rs);
-			} else {
+			if(rowsInserted == 0) {
 				throw new DBException("Erro inesperado! Nenhuma registro foi inserido no banco");
 			}
+			rs = st.getGeneratedKeys();
+			if(!rs.next()) {
+				throw new DBException("Erro inesperado! O banco nao retornou o id do seller inserido");
+			}
+			int id = rs.getInt(1);
+			ChangeLogDaoJDBC.record(con, "seller", id, ChangeLogEntry.INSERT, 0);
+			con.commit();
+			obj.setId(id);
+			obj.setVersion(0);
 					
 		} catch(SQLException e) {
-			throw new DBException(e.getMessage());
+			throw new DBException(e.getMessage(), e);
 		} finally {
+			DB.closeResultSet(rs);
 			DB.closeStatement(st);
+			DB.closeConnection(con);
 		}
 	}
 
 	@Override
 	public void update(Seller obj) {
+		Connection con = null;
 		PreparedStatement st = null;
 		try {
+			con = dataSource.getConnection();
+			con.setAutoCommit(false);
 			st = con.prepareStatement(QUERY_UPDATE);
 			
-			st.setString(1, obj.getName());
-			st.setString(2, obj.getEmail());
-			st.setDate(3, new java.sql.Date(obj.getBirthDate().getTime()));
-			st.setDouble(4, obj.getBaseSalary());
-			st.setInt(5, obj.getDepartment().getId());
+			setSellerParameters(st, obj);
 			st.setInt(6, obj.getId());
+			st.setInt(7, versionOf(obj));
 			
-			st.executeUpdate();
+			if(st.executeUpdate() == 0) {
+				throw new DbConflictException("seller", obj.getId(), obj.getVersion());
+			}
+			ChangeLogDaoJDBC.record(con, "seller", obj.getId(), ChangeLogEntry.UPDATE, versionOf(obj) + 1);
+			con.commit();
+			obj.setVersion(versionOf(obj) + 1);
 					
 		} catch(SQLException e) {
-			throw new DBException(e.getMessage());
+			throw new DBException(e.getMessage(), e);
 		} finally {
 			DB.closeStatement(st);
+			DB.closeConnection(con);
 		}
 	}
 
+	@Override
+	public BatchResult<Seller> insertAll(Collection<Seller> list) {
+		return new JdbcBatch<Seller>(dataSource, QUERY_INSERT, this::setSellerParameters, Seller::setId)
+				.beforeCommit((con, items) -> logChanges(con, items, ChangeLogEntry.INSERT))
+				.afterCommit(obj -> obj.setVersion(0))
+				.execute(list, DB.getBatchSize());
+	}
+
+	@Override
+	public BatchResult<Seller> updateAll(Collection<Seller> list) {
+		return new JdbcBatch<Seller>(dataSource, QUERY_UPDATE, (st, obj) -> {
+			setSellerParameters(st, obj);
+			st.setInt(6, obj.getId());
+			st.setInt(7, versionOf(obj));
+		}, null)
+				.noRowsMessage("Conflito de versao: seller alterado ou removido por outro usuario")
+				.beforeCommit((con, items) -> logChanges(con, items, ChangeLogEntry.UPDATE))
+				.afterCommit(obj -> obj.setVersion(versionOf(obj) + 1))
+				.execute(list, DB.getBatchSize());
+	}
+
 	@Override
 	public void deleteById(Integer id) {
+		Connection con = null;
 		PreparedStatement st = null;
 		try {
+			con = dataSource.getConnection();
+			con.setAutoCommit(false);
 			st = con.prepareStatement(QUERY_DELETE);
 			
 			st.setInt(1, id);
 			
 			int r = st.executeUpdate();
 			if(r == 0) {
-				System.out.println("No existe seller com este ID!");
+				LOG.fine("No existe seller com este ID! Id = " + id);
 			} else {
-				System.out.println("Deletado com sucesso!");
+				ChangeLogDaoJDBC.record(con, "seller", id, ChangeLogEntry.DELETE, null);
+				con.commit();
+				LOG.fine("Deletado com sucesso! Id = " + id);
 			}
 		} catch(SQLException e) {
-			throw new DBException(e.getMessage());
+			throw new DBException(e.getMessage(), e);
 		} finally {
 			DB.closeStatement(st);
+			DB.closeConnection(con);
 		}
 		
 	}
 
+	@Override
+	public int reassignDepartment(Integer fromDepartmentId, Integer toDepartmentId) {
+		Connection con = null;
+		PreparedStatement st = null;
+		try {
+			con = dataSource.getConnection();
+			con.setAutoCommit(false);
+			
+			st = con.prepareStatement(QUERY_LOG_REASSIGN);
+			st.setString(1, ChangeLogDaoJDBC.getOrigin());
+			st.setTimestamp(2, new Timestamp(System.currentTimeMillis()));
+			st.setInt(3, fromDepartmentId);
+			st.executeUpdate();
+			DB.closeStatement(st);
+			
+			st = con.prepareStatement(QUERY_REASSIGN_DEPARTMENT);
+			st.setInt(1, toDepartmentId);
+			st.setInt(2, fromDepartmentId);
+			int rows = st.executeUpdate();
+			
+			con.commit();
+			return rows;
+			
+		} catch(SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+	
 	@Override
 	public Seller findById(Integer id) {
 		
+		Connection con = null;
 		PreparedStatement st = null;
 		ResultSet rs = null;
 		
 		try {
+			con = dataSource.getConnection();
 			st = con.prepareStatement(QUERY_FIND_BY_ID);
 			
 			st.setInt(1, id);
@@ -154,96 +293,472 @@ public class SellerDaoJDBC implements SellerDao {
 			return null;
 			
 		} catch(SQLException e) {
-			throw new DBException(e.getMessage());
+			throw new DBException(e.getMessage(), e);
 		} finally {
 			DB.closeResultSet(rs);
 			DB.closeStatement(st);
+			DB.closeConnection(con);
 		}
 	}
 
 	@Override
 	public List<Seller> findAll() {
+		Connection con = null;
 		PreparedStatement st = null;
 		ResultSet rs = null;
 		
 		try {
+			con = dataSource.getConnection();
 			st = con.prepareStatement(QUERY_FIND_ALL);
 			
 			rs = st.executeQuery();
 			
-			List<Seller> list = new ArrayList<>();
-			Map<Integer, Department> map = new HashMap<>();
+			return instantiateSellers(rs);
 			
-			while (rs.next()) {
-				
-				Department dep = map.get(rs.getInt("DepartmentId"));
-				if(dep == null) {
-					dep = instantiateDeparment(rs);
-					map.put(rs.getInt("DepartmentId"), dep);
+		} catch(SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeResultSet(rs);
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+	
+	@Override
+	public List<Seller> findByIds(Collection<Integer> ids) {
+		List<Seller> list = new ArrayList<>();
+		if(ids.isEmpty()) {
+			return list;
+		}
+		List<Integer> all = new ArrayList<>(ids);
+		
+		Connection con = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		
+		try {
+			con = dataSource.getConnection();
+			for(int from = 0; from < all.size(); from += MAX_IN_PARAMETERS) {
+				List<Integer> chunk = all.subList(from, Math.min(from + MAX_IN_PARAMETERS, all.size()));
+				st = con.prepareStatement(QUERY_SELECT + "WHERE seller.Id IN (" + String.join(",", Collections.nCopies(chunk.size(), "?")) + ")");
+				for(int i = 0; i < chunk.size(); i++) {
+					st.setInt(i + 1, chunk.get(i));
 				}
-				
-				Seller seller = instantiateSeller(rs, dep);
-				list.add(seller);
+				rs = st.executeQuery();
+				list.addAll(instantiateSellers(rs));
+				DB.closeResultSet(rs);
+				DB.closeStatement(st);
+				rs = null;
+				st = null;
 			}
-			
 			return list;
 			
 		} catch(SQLException e) {
-			throw new DBException(e.getMessage());
+			throw new DBException(e.getMessage(), e);
 		} finally {
 			DB.closeResultSet(rs);
 			DB.closeStatement(st);
+			DB.closeConnection(con);
 		}
 	}
 	
 	@Override
 	public List<Seller> findByDepartment(Department department) {
+		Connection con = null;
 		PreparedStatement st = null;
 		ResultSet rs = null;
 		
 		try {
+			con = dataSource.getConnection();
 			st = con.prepareStatement(QUERY_FIND_BY_DEPARTMENT);
 			
 			st.setInt(1, department.getId());
 			rs = st.executeQuery();
 			
-			List<Seller> list = new ArrayList<>();
-			Map<Integer, Department> map = new HashMap<>();
+			return instantiateSellers(rs);
+			
+		} catch(SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeResultSet(rs);
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+	
+	@Override
+	public List<Seller> findPage(Seller after, int pageSize) {
+		Connection con = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		
+		try {
+			con = dataSource.getConnection();
+			if(after == null) {
+				st = con.prepareStatement(QUERY_FIND_FIRST_PAGE);
+				st.setInt(1, pageSize);
+			} else {
+				st = con.prepareStatement(QUERY_FIND_PAGE_AFTER);
+				st.setString(1, after.getName());
+				st.setString(2, after.getName());
+				st.setInt(3, after.getId());
+				st.setInt(4, pageSize);
+			}
+			
+			rs = st.executeQuery();
+			
+			return instantiateSellers(rs);
+			
+		} catch(SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeResultSet(rs);
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+	
+	@Override
+	public List<Seller> findPageByDepartment(Integer departmentId, Seller after, int pageSize) {
+		Connection con = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		
+		try {
+			con = dataSource.getConnection();
+			if(after == null) {
+				st = con.prepareStatement(QUERY_FIND_DEPARTMENT_FIRST_PAGE);
+				st.setInt(1, departmentId);
+				st.setInt(2, pageSize);
+			} else {
+				st = con.prepareStatement(QUERY_FIND_DEPARTMENT_PAGE_AFTER);
+				st.setInt(1, departmentId);
+				st.setString(2, after.getName());
+				st.setString(3, after.getName());
+				st.setInt(4, after.getId());
+				st.setInt(5, pageSize);
+			}
+			
+			rs = st.executeQuery();
+			
+			return instantiateSellers(rs);
+			
+		} catch(SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeResultSet(rs);
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+	
+	@Override
+	public void forEach(Consumer<Seller> action) {
+		Connection con = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		
+		try {
+			con = dataSource.getConnection();
+			st = con.prepareStatement(QUERY_FIND_ALL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			st.setFetchSize(DB.getFetchSize());
 			
+			rs = st.executeQuery();
+			
+			Map<Integer, Department> map = new HashMap<>();
 			while (rs.next()) {
-				
-				Department dep = map.get(rs.getInt("DepartmentId"));
-				if(dep == null) {
-					dep = instantiateDeparment(rs);
-					map.put(rs.getInt("DepartmentId"), dep);
-				}
-				
-				Seller seller = instantiateSeller(rs, dep);
-				list.add(seller);
+				action.accept(instantiateSeller(rs, department(rs, map)));
 			}
 			
+		} catch(SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeResultSet(rs);
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+	
+	@Override
+	public List<DepartmentSalaryStats> salaryStatsByDepartment() {
+		Connection con = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		
+		try {
+			con = dataSource.getConnection();
+			st = con.prepareStatement(QUERY_SALARY_STATS + "GROUP BY department.Id, department.Name ORDER BY department.Name");
+			rs = st.executeQuery();
+			
+			List<DepartmentSalaryStats> list = new ArrayList<>();
+			while (rs.next()) {
+				list.add(instantiateSalaryStats(rs));
+			}
 			return list;
 			
 		} catch(SQLException e) {
-			throw new DBException(e.getMessage());
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeResultSet(rs);
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+	
+	@Override
+	public DepartmentSalaryStats salaryStatsForDepartment(Integer departmentId) {
+		Connection con = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		
+		try {
+			con = dataSource.getConnection();
+			st = con.prepareStatement(QUERY_SALARY_STATS + "WHERE department.Id = ? GROUP BY department.Id, department.Name");
+			st.setInt(1, departmentId);
+			rs = st.executeQuery();
+			
+			return rs.next() ? instantiateSalaryStats(rs) : null;
+			
+		} catch(SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		} finally {
+			DB.closeResultSet(rs);
+			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+	
+	private static String salaryStatsQuery() {
+		double[] bounds = DepartmentSalaryStats.BUCKET_BOUNDS;
+		StringBuilder sql = new StringBuilder("SELECT department.Id, department.Name, "
+				+ "COUNT(seller.Id) AS SellerCount, COALESCE(SUM(seller.BaseSalary), 0) AS Total, "
+				+ "MIN(seller.BaseSalary) AS MinSalary, MAX(seller.BaseSalary) AS MaxSalary");
+		for(int i = 0; i <= bounds.length; i++) {
+			sql.append(", SUM(CASE WHEN ");
+			if(i > 0) {
+				sql.append("seller.BaseSalary >= ").append(bounds[i - 1]);
+			}
+			if(i > 0 && i < bounds.length) {
+				sql.append(" AND ");
+			}
+			if(i < bounds.length) {
+				sql.append("seller.BaseSalary < ").append(bounds[i]);
+			}
+			sql.append(" THEN 1 ELSE 0 END) AS Bucket").append(i);
+		}
+		sql.append(" FROM department LEFT JOIN seller ON seller.DepartmentId = department.Id ");
+		return sql.toString();
+	}
+	
+	private DepartmentSalaryStats instantiateSalaryStats(ResultSet rs) throws SQLException {
+		long[] buckets = new long[DepartmentSalaryStats.BUCKET_BOUNDS.length + 1];
+		for(int i = 0; i < buckets.length; i++) {
+			buckets[i] = rs.getLong("Bucket" + i);
+		}
+		long count = rs.getLong("SellerCount");
+		return new DepartmentSalaryStats(
+				rs.getInt("Id"), 
+				rs.getString("Name"), 
+				count, 
+				rs.getDouble("Total"), 
+				count > 0 ? rs.getDouble("MinSalary") : null, 
+				count > 0 ? rs.getDouble("MaxSalary") : null, 
+				buckets);
+	}
+	
+	private static void logChanges(Connection con, List<Seller> items, char operation) throws SQLException {
+		List<Integer> ids = new ArrayList<>(items.size());
+		List<Integer> versions = new ArrayList<>(items.size());
+		for(Seller obj : items) {
+			ids.add(obj.getId());
+			versions.add(operation == ChangeLogEntry.INSERT ? 0 : versionOf(obj) + 1);
+		}
+		ChangeLogDaoJDBC.recordAll(con, "seller", operation, ids, versions);
+	}
+	
+	private void setSellerParameters(PreparedStatement st, Seller obj) throws SQLException {
+		st.setString(1, obj.getName());
+		st.setString(2, obj.getEmail());
+		st.setDate(3, new java.sql.Date(obj.getBirthDate().getTime()));
+		st.setDouble(4, obj.getBaseSalary());
+		st.setInt(5, obj.getDepartment().getId());
+	}
+	
+	@Override
+	public List<Seller> find(SellerQuery query) {
+		Connection con = null;
+		PreparedStatement st = null;
+		ResultSet rs = null;
+		
+		try {
+			List<Object> params = new ArrayList<>();
+			String sql = buildQuery(query, params);
+			
+			con = dataSource.getConnection();
+			st = con.prepareStatement(sql);
+			for(int i = 0; i < params.size(); i++) {
+				st.setObject(i + 1, params.get(i));
+			}
+			
+			rs = st.executeQuery();
+			
+			return instantiateSellers(rs);
+			
+		} catch(SQLException e) {
+			throw new DBException(e.getMessage(), e);
 		} finally {
 			DB.closeResultSet(rs);
 			DB.closeStatement(st);
+			DB.closeConnection(con);
+		}
+	}
+	
+	private String buildQuery(SellerQuery query, List<Object> params) {
+		SellerFilter filter = query.getFilter();
+		StringBuilder sql = new StringBuilder(QUERY_SELECT);
+		List<String> where = new ArrayList<>();
+		
+		if(!isBlank(filter.getNamePrefix())) {
+			where.add("seller.Name LIKE ?");
+			params.add(likePrefix(filter.getNamePrefix()));
+		}
+		if(!isBlank(filter.getEmailPrefix())) {
+			where.add("seller.Email LIKE ?");
+			params.add(likePrefix(filter.getEmailPrefix()));
+		}
+		if(filter.getDepartmentId() != null) {
+			where.add("seller.DepartmentId = ?");
+			params.add(filter.getDepartmentId());
+		}
+		if(filter.getMinBaseSalary() != null) {
+			where.add("seller.BaseSalary >= ?");
+			params.add(filter.getMinBaseSalary());
+		}
+		if(filter.getMaxBaseSalary() != null) {
+			where.add("seller.BaseSalary <= ?");
+			params.add(filter.getMaxBaseSalary());
+		}
+		if(filter.getBirthDateFrom() != null) {
+			where.add("seller.BirthDate >= ?");
+			params.add(new java.sql.Timestamp(filter.getBirthDateFrom().getTime()));
+		}
+		if(filter.getBirthDateTo() != null) {
+			where.add("seller.BirthDate <= ?");
+			params.add(new java.sql.Timestamp(filter.getBirthDateTo().getTime()));
+		}
+		
+		List<SellerSort> keys = new ArrayList<>(query.getSorts());
+		if(keys.isEmpty()) {
+			keys.add(new SellerSort(SellerSort.Column.NAME, true));
+		}
+		keys.add(new SellerSort(SellerSort.Column.ID, true));
+		if(query.getAfter() != null) {
+			where.add(afterCondition(keys, query.getAfter(), params));
+		}
+		if(!where.isEmpty()) {
+			sql.append("WHERE ").append(String.join(" AND ", where)).append(" ");
+		}
+		
+		List<String> order = new ArrayList<>();
+		for(SellerSort sort : keys) {
+			order.add(sort.getColumn().getSql() + (sort.isAscending() ? " ASC" : " DESC"));
 		}
+		sql.append("ORDER BY ").append(String.join(", ", order)).append(" ");
+		
+		sql.append("LIMIT ?");
+		params.add(query.getLimit());
+		
+		return sql.toString();
+	}
+	
+	/**
+	 * Linhas depois de {@code after} na ordenacao {@code keys}:
+	 * (k1 > v1) OR (k1 = v1 AND k2 > v2) OR ..., com &lt; nas colunas DESC.
+	 */
+	private static String afterCondition(List<SellerSort> keys, Seller after, List<Object> params) {
+		List<String> branches = new ArrayList<>();
+		for(int i = 0; i < keys.size(); i++) {
+			StringBuilder branch = new StringBuilder("(");
+			for(int j = 0; j < i; j++) {
+				branch.append(keys.get(j).getColumn().getSql()).append(" = ? AND ");
+				params.add(sortValue(keys.get(j).getColumn(), after));
+			}
+			SellerSort sort = keys.get(i);
+			branch.append(sort.getColumn().getSql()).append(sort.isAscending() ? " > ?)" : " < ?)");
+			params.add(sortValue(sort.getColumn(), after));
+			branches.add(branch.toString());
+		}
+		return "(" + String.join(" OR ", branches) + ")";
+	}
+	
+	private static Object sortValue(SellerSort.Column column, Seller seller) {
+		switch(column) {
+		case ID:
+			return seller.getId();
+		case NAME:
+			return seller.getName();
+		case EMAIL:
+			return seller.getEmail();
+		case BIRTH_DATE:
+			return new java.sql.Timestamp(seller.getBirthDate().getTime());
+		case BASE_SALARY:
+			return seller.getBaseSalary();
+		default:
+			String name = seller.getDepartment().getName();
+			return name == null ? "" : name;
+		}
+	}
+	
+	private static boolean isBlank(String str) {
+		return str == null || str.trim().isEmpty();
+	}
+	
+	private static String likePrefix(String prefix) {
+		return prefix.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+	}
+	
+	// acesso de pacote para o MappingBenchmark (projeto bench)
+	List<Seller> instantiateSellers(ResultSet rs) throws SQLException {
+		List<Seller> list = new ArrayList<>();
+		Map<Integer, Department> map = new HashMap<>();
+		
+		while (rs.next()) {
+			list.add(instantiateSeller(rs, department(rs, map)));
+		}
+		
+		return list;
+	}
+	
+	Department department(ResultSet rs, Map<Integer, Department> map) throws SQLException {
+		Department dep = map.get(rs.getInt("DepartmentId"));
+		if(dep == null) {
+			dep = instantiateDeparment(rs);
+			map.put(rs.getInt("DepartmentId"), dep);
+		}
+		return dep;
 	}
 	
 	private Department instantiateDeparment(ResultSet rs) throws SQLException {
-		return new Department(rs.getInt("DepartmentId"), rs.getString("DepName"));
+		return departmentCache.canonicalize(rs.getInt("DepartmentId"), rs.getString("DepName"), rs.getInt("DepVersion"));
 	}
 	
 	private Seller instantiateSeller(ResultSet rs, Department dep) throws SQLException {
-		return new Seller(
+		Seller seller = new Seller(
 				          rs.getInt("Id"), 
 				          rs.getString("Name"), 
 				          rs.getString("Email"), 
 				          new java.util.Date(rs.getTimestamp("BirthDate").getTime()), 
 				          rs.getDouble("BaseSalary"), 
 				          dep);
+		seller.setVersion(rs.getInt("Version"));
+		return seller;
+	}
+	
+	private static int versionOf(Seller obj) {
+		if(obj.getVersion() == null) {
+			throw new DBException("Seller Id=" + obj.getId() + " sem versao: recarregue o registro antes de alterar");
+		}
+		return obj.getVersion();
 	}
 
 }
@@ -0,0 +1,72 @@
+package model.entities;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Registro da tabela change_log: uma escrita feita por algum cliente.
+ */
+public class ChangeLogEntry implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public static final char INSERT = 'I';
+	public static final char UPDATE = 'U';
+	public static final char DELETE = 'D';
+
+	private Long id;
+	private String tableName;
+	private Integer rowId;
+	private char operation;
+	private Integer version;
+	private String origin;
+	private Date changedAt;
+
+	public ChangeLogEntry() {
+	}
+
+	public ChangeLogEntry(Long id, String tableName, Integer rowId, char operation, Integer version, String origin,
+			Date changedAt) {
+		this.id = id;
+		this.tableName = tableName;
+		this.rowId = rowId;
+		this.operation = operation;
+		this.version = version;
+		this.origin = origin;
+		this.changedAt = changedAt;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getTableName() {
+		return tableName;
+	}
+
+	public Integer getRowId() {
+		return rowId;
+	}
+
+	public char getOperation() {
+		return operation;
+	}
+
+	public Integer getVersion() {
+		return version;
+	}
+
+	public String getOrigin() {
+		return origin;
+	}
+
+	public Date getChangedAt() {
+		return changedAt;
+	}
+
+	@Override
+	public String toString() {
+		return "ChangeLogEntry [id=" + id + ", tableName=" + tableName + ", rowId=" + rowId + ", operation="
+				+ operation + ", version=" + version + "]";
+	}
+}
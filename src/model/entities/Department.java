@@ -8,6 +8,7 @@ public class Department implements Serializable {
 	
 	private Integer id;
 	private String name;
+	private Integer version;
 	
 	public Department() {
 	}
@@ -33,6 +34,14 @@ public class Department implements Serializable {
 		this.name = name;
 	}
 
+	public Integer getVersion() {
+		return version;
+	}
+
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -0,0 +1,173 @@
+package model.entities;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Agregados de BaseSalary de um departamento. Os percentis sao estimados a
+ * partir de um histograma com faixas fixas ({@link #BUCKET_BOUNDS}), o que
+ * permite calcula-los no banco com GROUP BY e atualiza-los em memoria.
+ */
+public class DepartmentSalaryStats implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Limites superiores (exclusivos) das faixas de salario; a ultima faixa
+	 * nao tem limite.
+	 */
+	public static final double[] BUCKET_BOUNDS = { 1000, 2000, 3000, 4000, 5000, 7500, 10000, 15000, 20000, 50000 };
+
+	private Integer departmentId;
+	private String departmentName;
+	private long count;
+	private double sum;
+	private Double min;
+	private Double max;
+	private long[] bucketCounts = new long[BUCKET_BOUNDS.length + 1];
+
+	public DepartmentSalaryStats() {
+	}
+
+	public DepartmentSalaryStats(Integer departmentId, String departmentName) {
+		this.departmentId = departmentId;
+		this.departmentName = departmentName;
+	}
+
+	public DepartmentSalaryStats(Integer departmentId, String departmentName, long count, double sum, Double min,
+			Double max, long[] bucketCounts) {
+		this.departmentId = departmentId;
+		this.departmentName = departmentName;
+		this.count = count;
+		this.sum = sum;
+		this.min = min;
+		this.max = max;
+		this.bucketCounts = Arrays.copyOf(bucketCounts, BUCKET_BOUNDS.length + 1);
+	}
+
+	public Integer getDepartmentId() {
+		return departmentId;
+	}
+
+	public String getDepartmentName() {
+		return departmentName;
+	}
+
+	public void setDepartmentName(String departmentName) {
+		this.departmentName = departmentName;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getSum() {
+		return sum;
+	}
+
+	public Double getAverage() {
+		return count > 0 ? sum / count : null;
+	}
+
+	public Double getMin() {
+		return min;
+	}
+
+	public Double getMax() {
+		return max;
+	}
+
+	public long[] getBucketCounts() {
+		return bucketCounts.clone();
+	}
+
+	/**
+	 * Percentil estimado (p entre 0 e 1) por interpolacao linear dentro da
+	 * faixa que contem a posicao, limitada por min e max.
+	 */
+	public Double getPercentile(double p) {
+		if (count == 0) {
+			return null;
+		}
+		double target = Math.max(0, Math.min(1, p)) * count;
+		long cumulative = 0;
+		for (int i = 0; i < bucketCounts.length; i++) {
+			if (bucketCounts[i] == 0) {
+				continue;
+			}
+			if (cumulative + bucketCounts[i] >= target) {
+				double lower = i == 0 ? min : Math.max(min, BUCKET_BOUNDS[i - 1]);
+				double upper = i == BUCKET_BOUNDS.length ? max : Math.min(max, BUCKET_BOUNDS[i]);
+				double fraction = (target - cumulative) / bucketCounts[i];
+				return lower + (upper - lower) * fraction;
+			}
+			cumulative += bucketCounts[i];
+		}
+		return max;
+	}
+
+	public Double getMedian() {
+		return getPercentile(0.5);
+	}
+
+	public Double getPercentile90() {
+		return getPercentile(0.9);
+	}
+
+	public void add(double salary) {
+		count++;
+		sum += salary;
+		min = min == null ? salary : Math.min(min, salary);
+		max = max == null ? salary : Math.max(max, salary);
+		bucketCounts[bucketOf(salary)]++;
+	}
+
+	/**
+	 * Remove um salario dos agregados. Retorna false quando min ou max podem
+	 * ter ficado desatualizados e precisam ser recalculados no banco.
+	 */
+	public boolean remove(double salary) {
+		count--;
+		sum -= salary;
+		bucketCounts[bucketOf(salary)]--;
+		if (count == 0) {
+			sum = 0;
+			min = null;
+			max = null;
+			return true;
+		}
+		return salary != min && salary != max;
+	}
+
+	public void merge(DepartmentSalaryStats other) {
+		if (other.count == 0) {
+			return;
+		}
+		count += other.count;
+		sum += other.sum;
+		min = min == null ? other.min : Math.min(min, other.min);
+		max = max == null ? other.max : Math.max(max, other.max);
+		for (int i = 0; i < bucketCounts.length; i++) {
+			bucketCounts[i] += other.bucketCounts[i];
+		}
+	}
+
+	public DepartmentSalaryStats copy() {
+		return new DepartmentSalaryStats(departmentId, departmentName, count, sum, min, max, bucketCounts);
+	}
+
+	public static int bucketOf(double salary) {
+		for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+			if (salary < BUCKET_BOUNDS[i]) {
+				return i;
+			}
+		}
+		return BUCKET_BOUNDS.length;
+	}
+
+	@Override
+	public String toString() {
+		return "DepartmentSalaryStats [departmentId=" + departmentId + ", departmentName=" + departmentName
+				+ ", count=" + count + ", sum=" + sum + ", min=" + min + ", max=" + max + "]";
+	}
+}
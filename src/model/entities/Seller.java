@@ -15,6 +15,8 @@ public class Seller implements Serializable {
 	private Double baseSalary;
 	
 	private Department department;
+	
+	private Integer version;
 
 	public Seller() {
 	}
@@ -76,6 +78,18 @@ public class Seller implements Serializable {
 		this.department = department;
 	}
 
+	/**
+	 * Versao do registro no banco, usada no controle de concorrencia
+	 * otimista. Null para sellers ainda nao gravados.
+	 */
+	public Integer getVersion() {
+		return version;
+	}
+
+	public void setVersion(Integer version) {
+		this.version = version;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -0,0 +1,468 @@
+package model.entities;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import model.util.IntSort;
+import model.util.IntSort.IntComparator;
+
+/**
+ * Armazenamento colunar de sellers para analise de grandes volumes no
+ * cliente. Cada coluna e um array primitivo; nomes e emails ficam em UTF-8
+ * em um unico byte[] por coluna e cada departamento e guardado uma vez e
+ * referenciado por indice. As linhas sao expostas por {@link Row}, uma view
+ * somente leitura criada sob demanda. Nao e thread-safe: preencha com
+ * {@link #add} e depois apenas leia.
+ */
+public class SellerStore {
+
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final long NULL_DATE = Long.MIN_VALUE;
+
+	public enum Column {
+		ID, NAME, EMAIL, BIRTH_DATE, BASE_SALARY, DEPARTMENT
+	}
+
+	private int size;
+	private int[] ids = new int[INITIAL_CAPACITY];
+	private int[] versions = new int[INITIAL_CAPACITY];
+	private double[] salaries = new double[INITIAL_CAPACITY];
+	private long[] birthDates = new long[INITIAL_CAPACITY];
+	private int[] departmentRefs = new int[INITIAL_CAPACITY];
+	private final StringColumn names = new StringColumn();
+	private final StringColumn emails = new StringColumn();
+
+	private final List<Department> departments = new ArrayList<>();
+	private final Map<Integer, Integer> departmentIndex = new HashMap<>();
+
+	public void add(Seller seller) {
+		if (size == ids.length) {
+			grow(size * 2);
+		}
+		ids[size] = seller.getId() == null ? 0 : seller.getId();
+		versions[size] = seller.getVersion() == null ? 0 : seller.getVersion();
+		salaries[size] = seller.getBaseSalary() == null ? Double.NaN : seller.getBaseSalary();
+		birthDates[size] = seller.getBirthDate() == null ? NULL_DATE : seller.getBirthDate().getTime();
+		departmentRefs[size] = departmentRef(seller.getDepartment());
+		names.add(seller.getName());
+		emails.add(seller.getEmail());
+		size++;
+	}
+
+	private int departmentRef(Department department) {
+		if (department == null || department.getId() == null) {
+			return -1;
+		}
+		Integer ref = departmentIndex.get(department.getId());
+		if (ref == null) {
+			ref = departments.size();
+			departments.add(department);
+			departmentIndex.put(department.getId(), ref);
+		}
+		return ref;
+	}
+
+	private void grow(int capacity) {
+		ids = Arrays.copyOf(ids, capacity);
+		versions = Arrays.copyOf(versions, capacity);
+		salaries = Arrays.copyOf(salaries, capacity);
+		birthDates = Arrays.copyOf(birthDates, capacity);
+		departmentRefs = Arrays.copyOf(departmentRefs, capacity);
+	}
+
+	/**
+	 * Libera a capacidade nao usada das colunas.
+	 */
+	public void trimToSize() {
+		if (ids.length > size) {
+			grow(Math.max(size, 1));
+		}
+		names.trimToSize(size);
+		emails.trimToSize(size);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getId(int row) {
+		return ids[row];
+	}
+
+	public int getVersion(int row) {
+		return versions[row];
+	}
+
+	public String getName(int row) {
+		return names.get(row);
+	}
+
+	public String getEmail(int row) {
+		return emails.get(row);
+	}
+
+	public Date getBirthDate(int row) {
+		long time = birthDates[row];
+		return time == NULL_DATE ? null : new Date(time);
+	}
+
+	/**
+	 * @return o salario, ou NaN se nao informado
+	 */
+	public double getBaseSalary(int row) {
+		return salaries[row];
+	}
+
+	public Department getDepartment(int row) {
+		int ref = departmentRefs[row];
+		return ref < 0 ? null : departments.get(ref);
+	}
+
+	public List<Department> getDepartments() {
+		return new ArrayList<>(departments);
+	}
+
+	public Seller toSeller(int row) {
+		double salary = salaries[row];
+		Seller seller = new Seller(ids[row], getName(row), getEmail(row), getBirthDate(row),
+				Double.isNaN(salary) ? null : salary, getDepartment(row));
+		seller.setVersion(versions[row]);
+		return seller;
+	}
+
+	public Row row(int row) {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("Linha " + row + " de " + size);
+		}
+		return new Row(row);
+	}
+
+	/**
+	 * Lista somente leitura das linhas informadas, na ordem do array. Os
+	 * objetos {@link Row} sao criados a cada get().
+	 */
+	public List<Row> rows(int[] rowIndexes) {
+		return new RowList(rowIndexes);
+	}
+
+	public int[] allRows() {
+		int[] rows = new int[size];
+		for (int i = 0; i < size; i++) {
+			rows[i] = i;
+		}
+		return rows;
+	}
+
+	public int[] rowsOfDepartment(Integer departmentId) {
+		Integer ref = departmentIndex.get(departmentId);
+		if (ref == null) {
+			return new int[0];
+		}
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			if (departmentRefs[i] == ref) {
+				count++;
+			}
+		}
+		int[] rows = new int[count];
+		for (int i = 0, n = 0; i < size; i++) {
+			if (departmentRefs[i] == ref) {
+				rows[n++] = i;
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Ordena (estavel) os indices de linha pela coluna informada; valores
+	 * nulos ficam no inicio em ordem ascendente e o Id desempata.
+	 */
+	public void sort(int[] rowIndexes, Column column, boolean ascending) {
+		IntComparator byColumn = comparator(column);
+		IntComparator byId = (a, b) -> Integer.compare(ids[a], ids[b]);
+		IntComparator full = column == Column.ID ? byId : (a, b) -> {
+			int c = byColumn.compare(a, b);
+			return c != 0 ? c : byId.compare(a, b);
+		};
+		IntSort.sort(rowIndexes, ascending ? full : (a, b) -> full.compare(b, a));
+	}
+
+	private IntComparator comparator(Column column) {
+		switch (column) {
+		case ID:
+			return (a, b) -> Integer.compare(ids[a], ids[b]);
+		case NAME:
+			return names::compare;
+		case EMAIL:
+			return emails::compare;
+		case BIRTH_DATE:
+			return (a, b) -> Long.compare(birthDates[a], birthDates[b]);
+		case BASE_SALARY:
+			// Double.compare poe NaN no fim; aqui nulos vem primeiro
+			return (a, b) -> {
+				boolean nullA = Double.isNaN(salaries[a]);
+				boolean nullB = Double.isNaN(salaries[b]);
+				if (nullA || nullB) {
+					return Boolean.compare(!nullA, !nullB);
+				}
+				return Double.compare(salaries[a], salaries[b]);
+			};
+		case DEPARTMENT:
+			return (a, b) -> compareDepartments(departmentRefs[a], departmentRefs[b]);
+		default:
+			throw new IllegalArgumentException("Coluna desconhecida: " + column);
+		}
+	}
+
+	private int compareDepartments(int refA, int refB) {
+		if (refA == refB) {
+			return 0;
+		}
+		if (refA < 0 || refB < 0) {
+			return Integer.compare(refA, refB);
+		}
+		String nameA = departments.get(refA).getName();
+		String nameB = departments.get(refB).getName();
+		if (nameA == null || nameB == null) {
+			return Boolean.compare(nameA != null, nameB != null);
+		}
+		return nameA.compareTo(nameB);
+	}
+
+	public double sumSalary(int[] rowIndexes) {
+		double sum = 0;
+		for (int row : rowIndexes) {
+			double salary = salaries[row];
+			if (!Double.isNaN(salary)) {
+				sum += salary;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Agregados de salario por departamento calculados em uma unica
+	 * varredura da coluna.
+	 */
+	public List<DepartmentSalaryStats> salaryStatsByDepartment(int[] rowIndexes) {
+		DepartmentSalaryStats[] stats = new DepartmentSalaryStats[departments.size()];
+		for (int i = 0; i < stats.length; i++) {
+			Department dep = departments.get(i);
+			stats[i] = new DepartmentSalaryStats(dep.getId(), dep.getName());
+		}
+		for (int row : rowIndexes) {
+			int ref = departmentRefs[row];
+			double salary = salaries[row];
+			if (ref >= 0 && !Double.isNaN(salary)) {
+				stats[ref].add(salary);
+			}
+		}
+		return Arrays.asList(stats);
+	}
+
+	/**
+	 * Estimativa dos bytes ocupados pelas colunas (sem os departamentos).
+	 */
+	public long estimateBytes() {
+		long capacity = ids.length;
+		return capacity * (4 + 4 + 8 + 8 + 4) + names.estimateBytes() + emails.estimateBytes();
+	}
+
+	@Override
+	public String toString() {
+		return "SellerStore [size=" + size + ", departments=" + departments.size() + ", bytes=" + estimateBytes()
+				+ "]";
+	}
+
+	/**
+	 * View somente leitura de uma linha do store.
+	 */
+	public final class Row {
+
+		private final int index;
+
+		private Row(int index) {
+			this.index = index;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public int getId() {
+			return ids[index];
+		}
+
+		public String getName() {
+			return names.get(index);
+		}
+
+		public String getEmail() {
+			return emails.get(index);
+		}
+
+		public Date getBirthDate() {
+			return SellerStore.this.getBirthDate(index);
+		}
+
+		public Double getBaseSalary() {
+			double salary = salaries[index];
+			return Double.isNaN(salary) ? null : salary;
+		}
+
+		public Department getDepartment() {
+			return SellerStore.this.getDepartment(index);
+		}
+
+		public Seller toSeller() {
+			return SellerStore.this.toSeller(index);
+		}
+
+		@Override
+		public int hashCode() {
+			return index;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Row)) {
+				return false;
+			}
+			Row other = (Row) obj;
+			return index == other.index && store() == other.store();
+		}
+
+		private SellerStore store() {
+			return SellerStore.this;
+		}
+	}
+
+	private class RowList extends AbstractList<Row> implements RandomAccess {
+
+		private final int[] rowIndexes;
+
+		RowList(int[] rowIndexes) {
+			this.rowIndexes = rowIndexes;
+		}
+
+		@Override
+		public Row get(int index) {
+			return new Row(rowIndexes[index]);
+		}
+
+		@Override
+		public int size() {
+			return rowIndexes.length;
+		}
+	}
+
+	/**
+	 * Strings de uma coluna em UTF-8, concatenadas em um unico array; a
+	 * string i ocupa data[offsets[i], offsets[i + 1]). Nulos sao marcados
+	 * com offset negativo no fim.
+	 */
+	private static class StringColumn {
+
+		private byte[] data = new byte[INITIAL_CAPACITY * 16];
+		private int[] offsets = new int[INITIAL_CAPACITY + 1];
+		private int count;
+
+		// primeiros 8 bytes de cada string, calculados na primeira ordenacao
+		private volatile long[] prefixes;
+
+		void add(String value) {
+			if (count + 1 == offsets.length) {
+				offsets = Arrays.copyOf(offsets, offsets.length * 2);
+			}
+			int start = end(count);
+			if (value == null) {
+				offsets[count + 1] = -start - 1;
+			} else {
+				byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+				if (start + bytes.length > data.length) {
+					data = Arrays.copyOf(data, Math.max(data.length * 2, start + bytes.length));
+				}
+				System.arraycopy(bytes, 0, data, start, bytes.length);
+				offsets[count + 1] = start + bytes.length;
+			}
+			count++;
+			prefixes = null;
+		}
+
+		private int end(int i) {
+			int offset = offsets[i];
+			return offset < 0 ? -offset - 1 : offset;
+		}
+
+		private boolean isNull(int i) {
+			return offsets[i + 1] < 0;
+		}
+
+		String get(int i) {
+			if (isNull(i)) {
+				return null;
+			}
+			int start = end(i);
+			return new String(data, start, end(i + 1) - start, StandardCharsets.UTF_8);
+		}
+
+		/*
+		 * Comparacao byte a byte sem sinal, que em UTF-8 equivale a ordem dos
+		 * code points.
+		 */
+		int compare(int a, int b) {
+			boolean nullA = isNull(a);
+			boolean nullB = isNull(b);
+			if (nullA || nullB) {
+				return Boolean.compare(!nullA, !nullB);
+			}
+			long[] keys = prefixes();
+			if (keys[a] != keys[b]) {
+				return Long.compareUnsigned(keys[a], keys[b]);
+			}
+			int p = end(a), pEnd = end(a + 1);
+			int q = end(b), qEnd = end(b + 1);
+			while (p < pEnd && q < qEnd) {
+				int c = (data[p++] & 0xFF) - (data[q++] & 0xFF);
+				if (c != 0) {
+					return c;
+				}
+			}
+			return (pEnd - p) - (qEnd - q);
+		}
+
+		private long[] prefixes() {
+			long[] keys = prefixes;
+			if (keys == null) {
+				keys = new long[count];
+				for (int i = 0; i < count; i++) {
+					int start = end(i);
+					int length = isNull(i) ? 0 : Math.min(8, end(i + 1) - start);
+					long key = 0;
+					for (int k = 0; k < 8; k++) {
+						key = (key << 8) | (k < length ? data[start + k] & 0xFF : 0);
+					}
+					keys[i] = key;
+				}
+				prefixes = keys;
+			}
+			return keys;
+		}
+
+		void trimToSize(int size) {
+			data = Arrays.copyOf(data, end(size));
+			offsets = Arrays.copyOf(offsets, size + 1);
+		}
+
+		long estimateBytes() {
+			return data.length + 4L * offsets.length + (prefixes == null ? 0 : 8L * prefixes.length);
+		}
+	}
+}
@@ -0,0 +1,292 @@
+package model.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import db.DB;
+import db.RoutingDataSource;
+import model.dao.ChangeLogDao;
+import model.dao.DaoFactory;
+import model.dao.DepartmentDao;
+import model.dao.SellerDao;
+import model.entities.ChangeLogEntry;
+import model.entities.Department;
+import model.entities.Seller;
+
+/**
+ * Le periodicamente o change_log a partir do ultimo Id visto (high-water
+ * mark) e entrega aos listeners apenas as linhas que mudaram desde a leitura
+ * anterior, ja carregadas do banco. Configurado pelas chaves do
+ * db.properties:
+ * <ul>
+ * <li>changefeed.pollMs - intervalo entre leituras (padrao 2000)</li>
+ * <li>changefeed.retentionHours - idade maxima das entradas do change_log
+ * (padrao 24)</li>
+ * </ul>
+ * Ids de transacoes ainda nao commitadas aparecem como buracos na sequencia;
+ * eles sao consultados de novo por {@link #GAP_TIMEOUT_MS} antes de serem
+ * dados como rollback.
+ */
+public class ChangeFeedService {
+
+	private static final Logger LOG = Logger.getLogger(ChangeFeedService.class.getName());
+
+	private static final int BATCH_LIMIT = 500;
+	private static final int MAX_BATCHES_PER_POLL = 10;
+	private static final int MAX_TRACKED_GAPS = 1000;
+	private static final long GAP_TIMEOUT_MS = 30000;
+	private static final long PURGE_INTERVAL_MS = TimeUnit.HOURS.toMillis(1);
+
+	public enum Operation {
+		INSERT, UPDATE, DELETE
+	}
+
+	public static class Change {
+
+		private final String table;
+		private final Operation operation;
+		private final Integer id;
+		private final Object entity;
+
+		Change(String table, Operation operation, Integer id, Object entity) {
+			this.table = table;
+			this.operation = operation;
+			this.id = id;
+			this.entity = entity;
+		}
+
+		public String getTable() {
+			return table;
+		}
+
+		public Operation getOperation() {
+			return operation;
+		}
+
+		public Integer getId() {
+			return id;
+		}
+
+		/**
+		 * Estado atual da linha (Seller ou Department), ou null em DELETE.
+		 */
+		public Object getEntity() {
+			return entity;
+		}
+	}
+
+	public interface Listener {
+		void onChanges(List<Change> changes);
+	}
+
+	private final ChangeLogDao changeLogDao;
+	private final SellerDao sellerDao;
+	private final DepartmentDao departmentDao;
+
+	private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+	private final Map<Long, Long> gaps = new HashMap<>();
+	private long highWaterMark = -1;
+	private long lastPurge = System.currentTimeMillis();
+	private ScheduledExecutorService scheduler;
+
+	public ChangeFeedService() {
+		this(DaoFactory.createChangeLogDao(), DaoFactory.createSellerDao(), DaoFactory.createDepartmentDao());
+	}
+
+	/**
+	 * Feed sobre DAOs especificos (ex.: os do banco central, para a
+	 * sincronizacao da replica local).
+	 */
+	public ChangeFeedService(ChangeLogDao changeLogDao, SellerDao sellerDao, DepartmentDao departmentDao) {
+		this.changeLogDao = changeLogDao;
+		this.sellerDao = sellerDao;
+		this.departmentDao = departmentDao;
+	}
+
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	public synchronized void start() {
+		if (scheduler != null) {
+			return;
+		}
+		long period = DB.getIntProperty("changefeed.pollMs", 2000);
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "change-feed");
+			t.setDaemon(true);
+			return t;
+		});
+		scheduler.scheduleWithFixedDelay(this::pollAndNotify, 0, period, TimeUnit.MILLISECONDS);
+	}
+
+	public synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	public synchronized long getHighWaterMark() {
+		return highWaterMark;
+	}
+
+	/**
+	 * Posiciona o feed: o proximo {@link #poll()} le as entradas com Id
+	 * maior que {@code id}.
+	 */
+	public synchronized void setHighWaterMark(long id) {
+		highWaterMark = id;
+		gaps.clear();
+	}
+
+	private void pollAndNotify() {
+		try {
+			List<Change> changes = poll();
+			if (!changes.isEmpty()) {
+				for (Listener listener : listeners) {
+					listener.onChanges(changes);
+				}
+			}
+			purgeIfDue();
+		} catch (RuntimeException e) {
+			// banco indisponivel: tenta de novo no proximo ciclo
+			LOG.log(Level.WARNING, "Falha ao ler o change_log: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Le as alteracoes novas de outros clientes. A primeira chamada apenas
+	 * posiciona o high-water mark no fim do change_log.
+	 */
+	public synchronized List<Change> poll() {
+		if (highWaterMark < 0) {
+			highWaterMark = changeLogDao.findMaxId();
+			return Collections.emptyList();
+		}
+
+		List<ChangeLogEntry> entries = new ArrayList<>(recheckGaps());
+		for (int i = 0; i < MAX_BATCHES_PER_POLL; i++) {
+			List<ChangeLogEntry> batch = changeLogDao.findAfter(highWaterMark, BATCH_LIMIT);
+			for (ChangeLogEntry entry : batch) {
+				trackGaps(entry.getId());
+				highWaterMark = entry.getId();
+			}
+			entries.addAll(batch);
+			if (batch.size() < BATCH_LIMIT) {
+				break;
+			}
+		}
+		return load(collapse(entries));
+	}
+
+	private List<ChangeLogEntry> recheckGaps() {
+		if (gaps.isEmpty()) {
+			return Collections.emptyList();
+		}
+		long now = System.currentTimeMillis();
+		gaps.values().removeIf(firstSeen -> now - firstSeen > GAP_TIMEOUT_MS);
+		List<ChangeLogEntry> found = changeLogDao.findByIds(new ArrayList<>(gaps.keySet()));
+		for (ChangeLogEntry entry : found) {
+			gaps.remove(entry.getId());
+		}
+		return found;
+	}
+
+	private void trackGaps(long id) {
+		long now = System.currentTimeMillis();
+		for (long missing = highWaterMark + 1; missing < id && gaps.size() < MAX_TRACKED_GAPS; missing++) {
+			gaps.put(missing, now);
+		}
+	}
+
+	/**
+	 * Mantem so a ultima alteracao de cada linha e descarta as feitas por
+	 * este processo, que ja foram aplicadas localmente.
+	 */
+	private List<ChangeLogEntry> collapse(List<ChangeLogEntry> entries) {
+		String origin = DaoFactory.getOrigin();
+		Map<String, ChangeLogEntry> last = new LinkedHashMap<>();
+		for (ChangeLogEntry entry : entries) {
+			if (origin.equals(entry.getOrigin())) {
+				continue;
+			}
+			String key = entry.getTableName() + ":" + entry.getRowId();
+			last.remove(key);
+			last.put(key, entry);
+		}
+		return new ArrayList<>(last.values());
+	}
+
+	/*
+	 * As linhas sao lidas no banco principal: uma replica de leitura pode
+	 * ainda nao ter as alteracoes do change_log e elas virariam DELETE.
+	 */
+	private List<Change> load(List<ChangeLogEntry> entries) {
+		RoutingDataSource.enterPrimary();
+		try {
+			return loadRows(entries);
+		} finally {
+			RoutingDataSource.exitPrimary();
+		}
+	}
+
+	private List<Change> loadRows(List<ChangeLogEntry> entries) {
+		List<Integer> sellerIds = new ArrayList<>();
+		for (ChangeLogEntry entry : entries) {
+			if ("seller".equals(entry.getTableName()) && entry.getOperation() != ChangeLogEntry.DELETE) {
+				sellerIds.add(entry.getRowId());
+			}
+		}
+		Map<Integer, Seller> sellers = new HashMap<>();
+		for (Seller seller : sellerDao.findByIds(sellerIds)) {
+			sellers.put(seller.getId(), seller);
+		}
+
+		List<Change> changes = new ArrayList<>(entries.size());
+		for (ChangeLogEntry entry : entries) {
+			Integer id = entry.getRowId();
+			Object entity = null;
+			if ("department".equals(entry.getTableName())) {
+				DaoFactory.getDepartmentCache().invalidate(id);
+				if (entry.getOperation() != ChangeLogEntry.DELETE) {
+					Department dep = departmentDao.findById(id);
+					entity = dep;
+				}
+			} else if ("seller".equals(entry.getTableName())) {
+				entity = sellers.get(id);
+			} else {
+				continue;
+			}
+			Operation operation = entity == null ? Operation.DELETE
+					: entry.getOperation() == ChangeLogEntry.INSERT ? Operation.INSERT : Operation.UPDATE;
+			changes.add(new Change(entry.getTableName(), operation, id, entity));
+		}
+		return changes;
+	}
+
+	void purgeIfDue() {
+		long now = System.currentTimeMillis();
+		if (now - lastPurge < PURGE_INTERVAL_MS) {
+			return;
+		}
+		lastPurge = now;
+		long retention = TimeUnit.HOURS.toMillis(DB.getIntProperty("changefeed.retentionHours", 24));
+		changeLogDao.deleteOlderThan(new Date(now - retention));
+	}
+}
@@ -1,29 +1,92 @@
 package model.service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import model.dao.BatchResult;
 import model.dao.DaoFactory;
 import model.dao.DepartmentDao;
+import model.dao.SellerDao;
 import model.entities.Department;
 
 public class DepartmentService {
 
 	private DepartmentDao dao = DaoFactory.createDepartmentDao();
 	
+	private SellerDao sellerDao = DaoFactory.createSellerDao();
+	
+	private QueryResultCache queryCache = QueryResultCache.getShared();
+	
 	public List<Department> findAll() {
 		return dao.findAll();
 	}
 	
+	public Department findById(Integer id) {
+		return dao.findById(id);
+	}
+	
 	public void saveOrUpdate(Department department) {
 		if(department.getId() == null) {
 			dao.insert(department);
 		} else {
 			dao.update(department);
 		}
+		queryCache.bump("department");
+	}
+	
+	public BatchResult<Department> insertAll(Collection<Department> list) {
+		try {
+			return dao.insertAll(list);
+		} finally {
+			queryCache.bump("department");
+		}
+	}
+	
+	public BatchResult<Department> updateAll(Collection<Department> list) {
+		try {
+			return dao.updateAll(list);
+		} finally {
+			queryCache.bump("department");
+		}
 	}
 	
 	public void remove(Department obj) {
 		dao.deleteById(obj.getId());
+		queryCache.bump("department");
+	}
+	
+	/**
+	 * Move os sellers de {@code obj} para {@code target} e remove o
+	 * departamento, tudo em uma unica transacao.
+	 */
+	public int removeAndReassign(Department obj, Department target) {
+		return UnitOfWork.execute(() -> {
+			int moved = sellerDao.reassignDepartment(obj.getId(), target.getId());
+			dao.deleteById(obj.getId());
+			queryCache.bump("seller", "department");
+			return moved;
+		});
+	}
+	
+	public CompletableFuture<List<Department>> findAllAsync() {
+		return ServiceExecutor.supply(this::findAll);
+	}
+	
+	public CompletableFuture<Department> findByIdAsync(Integer id) {
+		return ServiceExecutor.supply(() -> findById(id));
+	}
+	
+	public CompletableFuture<Void> saveOrUpdateAsync(Department department) {
+		return ServiceExecutor.run(() -> saveOrUpdate(department));
+	}
+	
+	public CompletableFuture<Void> removeAsync(Department obj) {
+		return ServiceExecutor.run(() -> remove(obj));
+	}
+	
+	public CompletableFuture<Integer> removeAndReassignAsync(Department obj, Department target) {
+		return ServiceExecutor.supply(() -> removeAndReassign(obj, target));
 	}
 	
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package model.service;
+
+import java.nio.file.Path;
+
+public class ImportResult {
+
+	private final long read;
+	private final long imported;
+	private final long rejected;
+	private final long elapsedMillis;
+	private final Path rejectedReport;
+
+	public ImportResult(long read, long imported, long rejected, long elapsedMillis, Path rejectedReport) {
+		this.read = read;
+		this.imported = imported;
+		this.rejected = rejected;
+		this.elapsedMillis = elapsedMillis;
+		this.rejectedReport = rejectedReport;
+	}
+
+	public long getRead() {
+		return read;
+	}
+
+	public long getImported() {
+		return imported;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public double getRowsPerSecond() {
+		return elapsedMillis > 0 ? read * 1000.0 / elapsedMillis : 0;
+	}
+
+	/**
+	 * Arquivo com as linhas rejeitadas, ou null se nenhuma linha foi
+	 * rejeitada.
+	 */
+	public Path getRejectedReport() {
+		return rejectedReport;
+	}
+
+	@Override
+	public String toString() {
+		return "ImportResult [read=" + read + ", imported=" + imported + ", rejected=" + rejected
+				+ ", elapsedMillis=" + elapsedMillis + "]";
+	}
+}
@@ -0,0 +1,10 @@
+package model.service;
+
+/**
+ * Progresso de operacoes longas (exportacao, importacao). Chamado fora da FX
+ * Application Thread.
+ */
+public interface ProgressListener {
+
+	void onProgress(long rows, double rowsPerSecond, boolean done);
+}
@@ -0,0 +1,294 @@
+package model.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import db.DB;
+import db.DBException;
+import model.dao.CacheStats;
+import model.dao.ChangeLogDao;
+import model.dao.DaoFactory;
+import model.entities.ChangeLogEntry;
+
+/**
+ * Resultados de consultas de lista (findAll, findByDepartment, ...) ja lidos
+ * do banco, chaveados pela consulta e seus parametros. Cada tabela tem um
+ * numero de versao e cada resultado guarda as versoes das tabelas que leu;
+ * o resultado so e devolvido se nenhuma delas mudou.
+ * <p>
+ * As escritas dos services deste processo incrementam a versao com
+ * {@link #bump(String...)} (dentro de uma unidade de trabalho, so depois do
+ * commit). Escritas de outros clientes aparecem no change_log: no maximo a
+ * cada cache.query.checkMs uma consulta de MAX(Id) verifica se o log andou
+ * e, se andou, as tabelas alteradas sao lidas das novas entradas. Se a
+ * verificacao falha (banco fora do ar) os resultados em cache continuam
+ * valendo ate a proxima.
+ * <p>
+ * A memoria e limitada por cache.query.maxEntries resultados e
+ * cache.query.maxRows linhas no total; os usados ha mais tempo saem primeiro
+ * e resultados maiores que o limite nao sao guardados. As listas devolvidas
+ * nao podem ser alteradas e os objetos sao compartilhados entre chamadas.
+ */
+public class QueryResultCache {
+
+	private static final Logger LOG = Logger.getLogger(QueryResultCache.class.getName());
+
+	private static final int CHECK_LIMIT = 1000;
+
+	private static QueryResultCache shared;
+
+	private final ChangeLogDao changeLogDao;
+	private final int maxEntries;
+	private final int maxRows;
+	private final long checkMillis;
+
+	private final Map<List<Object>, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<String, Long> versions = new HashMap<>();
+	private long versionCounter;
+	private long generation;
+	private int rows;
+
+	private final Object checkLock = new Object();
+	private volatile long lastCheck;
+	private long lastLogId = -1;
+
+	private long hits;
+	private long misses;
+	private long stale;
+	private long evictions;
+
+	public QueryResultCache(ChangeLogDao changeLogDao, int maxEntries, int maxRows, long checkMillis) {
+		this.changeLogDao = changeLogDao;
+		this.maxEntries = maxEntries;
+		this.maxRows = maxRows;
+		this.checkMillis = checkMillis;
+	}
+
+	/**
+	 * Cache compartilhado pelos services, configurado pelas chaves
+	 * cache.query.* do db.properties. Com cache.query.enabled=false nada e
+	 * guardado.
+	 */
+	public static synchronized QueryResultCache getShared() {
+		if (shared == null) {
+			boolean enabled = DB.getBooleanProperty("cache.query.enabled", true);
+			shared = new QueryResultCache(DaoFactory.createChangeLogDao(),
+					enabled ? DB.getIntProperty("cache.query.maxEntries", 500) : 0,
+					DB.getIntProperty("cache.query.maxRows", 200000),
+					DB.getIntProperty("cache.query.checkMs", 1000));
+		}
+		return shared;
+	}
+
+	/**
+	 * Devolve o resultado em cache da consulta ou executa {@code loader} e
+	 * guarda o resultado.
+	 *
+	 * @param tables tabelas lidas pela consulta
+	 * @param query  nome da consulta
+	 * @param params parametros da consulta; precisam implementar equals e
+	 *               hashCode
+	 */
+	public <T> List<T> get(String[] tables, Supplier<List<T>> loader, String query, Object... params) {
+		if (maxEntries <= 0 || UnitOfWork.isActive()) {
+			// dentro de uma transacao a leitura precisa ver as proprias escritas
+			return loader.get();
+		}
+		checkVersions();
+
+		List<Object> key = new ArrayList<>(params.length + 1);
+		key.add(query);
+		key.addAll(Arrays.asList(params));
+
+		long[] stamp;
+		long gen;
+		synchronized (this) {
+			stamp = versionsOf(tables);
+			gen = generation;
+			Entry entry = entries.get(key);
+			if (entry != null && Arrays.equals(entry.versions, stamp)) {
+				hits++;
+				@SuppressWarnings("unchecked")
+				List<T> result = (List<T>) entry.result;
+				return result;
+			}
+			if (entry != null) {
+				remove(key);
+				stale++;
+			}
+			misses++;
+		}
+
+		// o resultado leva as versoes de antes da leitura: se uma escrita
+		// acontecer durante a consulta ele ja nasce desatualizado
+		List<T> result = Collections.unmodifiableList(new ArrayList<>(loader.get()));
+		if (result.size() <= maxRows) {
+			put(key, new Entry(tables, stamp, gen, result));
+		}
+		return result;
+	}
+
+	private synchronized void put(List<Object> key, Entry entry) {
+		if (entry.generation != generation || !Arrays.equals(entry.versions, versionsOf(entry.tables))) {
+			return;
+		}
+		remove(key);
+		entries.put(key, entry);
+		rows += entry.result.size();
+		Iterator<Entry> it = entries.values().iterator();
+		while ((entries.size() > maxEntries || rows > maxRows) && it.hasNext()) {
+			Entry eldest = it.next();
+			if (eldest == entry) {
+				continue;
+			}
+			it.remove();
+			rows -= eldest.result.size();
+			evictions++;
+		}
+	}
+
+	private void remove(List<Object> key) {
+		Entry entry = entries.remove(key);
+		if (entry != null) {
+			rows -= entry.result.size();
+		}
+	}
+
+	private long[] versionsOf(String[] tables) {
+		long[] stamp = new long[tables.length];
+		for (int i = 0; i < tables.length; i++) {
+			Long version = versions.get(tables[i]);
+			stamp[i] = version == null ? 0 : version;
+		}
+		return stamp;
+	}
+
+	/**
+	 * Marca as tabelas como alteradas, invalidando os resultados que as leram.
+	 * Dentro de uma unidade de trabalho a marcacao acontece apos o commit.
+	 */
+	public void bump(String... tables) {
+		if (UnitOfWork.isActive()) {
+			UnitOfWork.afterCommit(() -> bumpNow(tables));
+		} else {
+			bumpNow(tables);
+		}
+	}
+
+	private synchronized void bumpNow(String... tables) {
+		for (String table : tables) {
+			versions.put(table, ++versionCounter);
+		}
+	}
+
+	/**
+	 * Invalida todos os resultados.
+	 */
+	public synchronized void bumpAll() {
+		generation++;
+		entries.clear();
+		rows = 0;
+	}
+
+	/**
+	 * Identifica o estado atual das tabelas: muda sempre que um resultado que
+	 * as leu seria invalidado. Serve como ETag; inclui a origem do processo
+	 * para nao repetir valores depois de reiniciar.
+	 */
+	public String versionTag(String... tables) {
+		checkVersions();
+		StringBuilder sb = new StringBuilder(DaoFactory.getOrigin());
+		synchronized (this) {
+			sb.append('-').append(generation);
+			for (long version : versionsOf(tables)) {
+				sb.append('-').append(version);
+			}
+		}
+		return sb.toString();
+	}
+
+	/*
+	 * Verificacao barata de escritas de outros clientes: MAX(Id) do change_log
+	 * e, so quando ele mudou, as tabelas das novas entradas.
+	 */
+	private void checkVersions() {
+		if (System.currentTimeMillis() - lastCheck < checkMillis) {
+			return;
+		}
+		synchronized (checkLock) {
+			long now = System.currentTimeMillis();
+			if (now - lastCheck < checkMillis) {
+				return;
+			}
+			lastCheck = now;
+			try {
+				long logId = changeLogDao.findMaxId();
+				if (logId == lastLogId) {
+					return;
+				}
+				if (lastLogId < 0 || logId < lastLogId) {
+					bumpAll();
+				} else {
+					List<ChangeLogEntry> changes = changeLogDao.findAfter(lastLogId, CHECK_LIMIT);
+					if (changes.size() >= CHECK_LIMIT) {
+						bumpAll();
+					} else {
+						Set<String> tables = new HashSet<>();
+						for (ChangeLogEntry change : changes) {
+							tables.add(change.getTableName());
+						}
+						bumpNow(tables.toArray(new String[0]));
+					}
+				}
+				lastLogId = logId;
+			} catch (DBException e) {
+				LOG.log(Level.FINE, "Verificacao de versao do cache falhou: " + e.getMessage(), e);
+			}
+		}
+	}
+
+	/**
+	 * @return estatisticas; o tamanho e o numero de linhas em cache
+	 */
+	public synchronized CacheStats getStats() {
+		return new CacheStats(hits, misses, evictions, rows);
+	}
+
+	/**
+	 * @return consultas que encontraram um resultado invalidado por escrita
+	 *         (contadas tambem como misses)
+	 */
+	public synchronized long getStaleCount() {
+		return stale;
+	}
+
+	public synchronized int getEntryCount() {
+		return entries.size();
+	}
+
+	private static class Entry {
+
+		final String[] tables;
+		final long[] versions;
+		final long generation;
+		final List<?> result;
+
+		Entry(String[] tables, long[] versions, long generation, List<?> result) {
+			this.tables = tables;
+			this.versions = versions;
+			this.generation = generation;
+			this.result = result;
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package model.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import model.dao.DaoFactory;
+import model.dao.SellerDao;
+import model.entities.Department;
+import model.entities.DepartmentSalaryStats;
+import model.entities.Seller;
+
+/**
+ * Relatorio de salarios por departamento. {@link #load()} calcula os
+ * agregados no banco; depois disso os metodos apply* mantem o relatorio em
+ * memoria a partir dos eventos de insert/update/delete. Quando uma remocao
+ * atinge o min ou o max de um departamento, ele fica pendente ate
+ * {@link #refreshStale()} recalcula-lo no banco.
+ */
+public class SalaryReportService {
+
+	private static final Comparator<DepartmentSalaryStats> BY_NAME = Comparator.comparing(
+			DepartmentSalaryStats::getDepartmentName, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+
+	private SellerDao dao = DaoFactory.createSellerDao();
+
+	private final Map<Integer, DepartmentSalaryStats> stats = new HashMap<>();
+	private final Set<Integer> stale = new HashSet<>();
+
+	public synchronized List<DepartmentSalaryStats> load() {
+		List<DepartmentSalaryStats> list = dao.salaryStatsByDepartment();
+		stats.clear();
+		stale.clear();
+		for (DepartmentSalaryStats obj : list) {
+			stats.put(obj.getDepartmentId(), obj);
+		}
+		return getReport();
+	}
+
+	public CompletableFuture<List<DepartmentSalaryStats>> loadAsync() {
+		return ServiceExecutor.supply(this::load);
+	}
+
+	/**
+	 * Copia do relatorio em memoria, ordenada pelo nome do departamento.
+	 */
+	public synchronized List<DepartmentSalaryStats> getReport() {
+		List<DepartmentSalaryStats> list = new ArrayList<>(stats.size());
+		for (DepartmentSalaryStats obj : stats.values()) {
+			list.add(obj.copy());
+		}
+		list.sort(BY_NAME);
+		return list;
+	}
+
+	public synchronized DepartmentSalaryStats getTotal() {
+		DepartmentSalaryStats total = new DepartmentSalaryStats(null, "Total");
+		for (DepartmentSalaryStats obj : stats.values()) {
+			total.merge(obj);
+		}
+		return total;
+	}
+
+	public synchronized void applyInsert(Seller seller) {
+		add(seller);
+	}
+
+	public synchronized void applyUpdate(Seller previous, Seller current) {
+		if (previous == null) {
+			// sem o valor anterior nao da para descontar: recalcula o departamento
+			add(current);
+			markStale(current.getDepartment());
+			return;
+		}
+		remove(previous);
+		add(current);
+	}
+
+	public synchronized void applyDelete(Seller seller) {
+		remove(seller);
+	}
+
+	public synchronized boolean hasStale() {
+		return !stale.isEmpty();
+	}
+
+	/**
+	 * Recalcula no banco apenas os departamentos marcados como pendentes.
+	 */
+	public List<DepartmentSalaryStats> refreshStale() {
+		Set<Integer> ids;
+		synchronized (this) {
+			ids = new HashSet<>(stale);
+			stale.clear();
+		}
+		for (Integer id : ids) {
+			DepartmentSalaryStats fresh = dao.salaryStatsForDepartment(id);
+			synchronized (this) {
+				if (fresh == null) {
+					stats.remove(id);
+				} else {
+					stats.put(id, fresh);
+				}
+			}
+		}
+		return getReport();
+	}
+
+	public CompletableFuture<List<DepartmentSalaryStats>> refreshStaleAsync() {
+		return ServiceExecutor.supply(this::refreshStale);
+	}
+
+	private void add(Seller seller) {
+		Department dep = seller.getDepartment();
+		if (dep == null || seller.getBaseSalary() == null) {
+			return;
+		}
+		DepartmentSalaryStats obj = stats.get(dep.getId());
+		if (obj == null) {
+			obj = new DepartmentSalaryStats(dep.getId(), dep.getName());
+			stats.put(dep.getId(), obj);
+		}
+		obj.add(seller.getBaseSalary());
+	}
+
+	private void remove(Seller seller) {
+		Department dep = seller.getDepartment();
+		if (dep == null || seller.getBaseSalary() == null) {
+			return;
+		}
+		DepartmentSalaryStats obj = stats.get(dep.getId());
+		if (obj == null || obj.getCount() == 0) {
+			markStale(dep);
+			return;
+		}
+		if (!obj.remove(seller.getBaseSalary())) {
+			markStale(dep);
+		}
+	}
+
+	private void markStale(Department dep) {
+		if (dep != null) {
+			stale.add(dep.getId());
+		}
+	}
+}
@@ -0,0 +1,122 @@
+package model.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.concurrent.CompletableFuture;
+
+import model.dao.DaoFactory;
+import model.dao.SellerDao;
+import model.entities.Department;
+import model.entities.Seller;
+import model.util.Csv;
+import model.util.EntityJson;
+
+/**
+ * Exporta todos os sellers em CSV ou JSON lendo o banco por cursor
+ * ({@link SellerDao#forEach}) e escrevendo direto no arquivo, sem montar a
+ * lista em memoria.
+ */
+public class SellerExportService {
+
+	public enum Format {
+		CSV, JSON;
+
+		public static Format forFile(Path file) {
+			return file.getFileName().toString().toLowerCase().endsWith(".json") ? JSON : CSV;
+		}
+	}
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final long PROGRESS_INTERVAL = 10000;
+
+	private SellerDao dao = DaoFactory.createSellerDao();
+
+	public long export(Path file, Format format, ProgressListener listener) throws IOException {
+		long start = System.nanoTime();
+		long[] rows = new long[1];
+		SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+				Writer out = new BufferedWriter(
+						Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE)) {
+			if (format == Format.CSV) {
+				out.write("Id,Name,Email,BirthDate,BaseSalary,DepartmentId,DepartmentName\n");
+			} else {
+				out.write("[");
+			}
+			try {
+				dao.forEach(obj -> {
+					try {
+						if (format == Format.CSV) {
+							writeCsv(out, obj, sdf);
+						} else {
+							writeJson(out, obj, rows[0] == 0);
+						}
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+					rows[0]++;
+					if (listener != null && rows[0] % PROGRESS_INTERVAL == 0) {
+						listener.onProgress(rows[0], rate(rows[0], start), false);
+					}
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			if (format == Format.JSON) {
+				out.write(rows[0] == 0 ? "]\n" : "\n]\n");
+			}
+		}
+		if (listener != null) {
+			listener.onProgress(rows[0], rate(rows[0], start), true);
+		}
+		return rows[0];
+	}
+
+	public CompletableFuture<Long> exportAsync(Path file, Format format, ProgressListener listener) {
+		return ServiceExecutor.supply(() -> {
+			try {
+				return export(file, format, listener);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	private static void writeCsv(Writer out, Seller obj, SimpleDateFormat sdf) throws IOException {
+		Department dep = obj.getDepartment();
+		out.write(String.valueOf(obj.getId()));
+		out.write(Csv.SEPARATOR);
+		out.write(Csv.escape(obj.getName()));
+		out.write(Csv.SEPARATOR);
+		out.write(Csv.escape(obj.getEmail()));
+		out.write(Csv.SEPARATOR);
+		out.write(obj.getBirthDate() == null ? "" : sdf.format(obj.getBirthDate()));
+		out.write(Csv.SEPARATOR);
+		out.write(obj.getBaseSalary() == null ? "" : obj.getBaseSalary().toString());
+		out.write(Csv.SEPARATOR);
+		out.write(dep == null ? "" : String.valueOf(dep.getId()));
+		out.write(Csv.SEPARATOR);
+		out.write(dep == null ? "" : Csv.escape(dep.getName()));
+		out.write('\n');
+	}
+
+	private static void writeJson(Writer out, Seller obj, boolean first) throws IOException {
+		out.write(first ? "\n" : ",\n");
+		EntityJson.writeSeller(out, obj);
+	}
+
+	private static double rate(long rows, long start) {
+		double seconds = (System.nanoTime() - start) / 1e9;
+		return seconds > 0 ? rows / seconds : 0;
+	}
+}
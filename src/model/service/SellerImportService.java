@@ -0,0 +1,438 @@
+package model.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import db.DB;
+import db.DBException;
+import model.dao.BatchResult;
+import model.dao.DaoFactory;
+import model.dao.DepartmentDao;
+import model.dao.SellerDao;
+import model.entities.Department;
+import model.entities.Seller;
+import model.exception.ValidationException;
+import model.util.Csv;
+
+/**
+ * Importa sellers de um arquivo CSV no formato gerado pelo
+ * {@link SellerExportService} (cabecalho obrigatorio; colunas Name, Email,
+ * BirthDate, BaseSalary e DepartmentName ou DepartmentId).
+ * <p>
+ * O pipeline tem tres estagios ligados por filas limitadas: leitura do
+ * arquivo em blocos de linhas, parse/validacao em paralelo e gravacao em
+ * batches JDBC na thread chamadora. Linhas invalidas ou recusadas pelo banco
+ * vao para um relatorio CSV ao lado do arquivo importado.
+ */
+public class SellerImportService {
+
+	private static final int CHUNK_SIZE = 1000;
+	private static final long PROGRESS_INTERVAL = 10000;
+
+	private static final DateTimeFormatter[] DATE_FORMATS = { DateTimeFormatter.ISO_LOCAL_DATE,
+			DateTimeFormatter.ofPattern("dd/MM/yyyy") };
+
+	private SellerDao sellerDao = DaoFactory.createSellerDao();
+	private DepartmentDao departmentDao = DaoFactory.createDepartmentDao();
+	private QueryResultCache queryCache = QueryResultCache.getShared();
+
+	public ImportResult importFile(Path file, ProgressListener listener) throws IOException {
+		return importFile(file, Paths.get(file.toString() + ".rejected.csv"), listener);
+	}
+
+	public ImportResult importFile(Path file, Path rejectedReport, ProgressListener listener) throws IOException {
+		long start = System.nanoTime();
+		int workers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String header = reader.readLine();
+			if (header == null) {
+				throw new IOException("Arquivo vazio: " + file);
+			}
+			Columns columns = new Columns(Csv.parseLine(stripBom(header)));
+			Departments departments = new Departments(departmentDao.findAll());
+
+			BlockingQueue<Chunk> parseQueue = new ArrayBlockingQueue<>(workers * 2);
+			BlockingQueue<Chunk> writeQueue = new ArrayBlockingQueue<>(workers * 2);
+			AtomicInteger threadCount = new AtomicInteger();
+			ExecutorService pool = Executors.newFixedThreadPool(workers + 1, r -> {
+				Thread t = new Thread(r, "seller-import-" + threadCount.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+			CompletableFuture<Void> readTask = CompletableFuture.runAsync(() -> read(reader, parseQueue, workers),
+					pool);
+			for (int i = 0; i < workers; i++) {
+				pool.execute(() -> parse(parseQueue, writeQueue, columns, departments));
+			}
+
+			Writer writer = new Writer(rejectedReport, listener, start);
+			try {
+				int finished = 0;
+				while (finished < workers) {
+					Chunk chunk = writeQueue.take();
+					if (chunk == Chunk.END) {
+						finished++;
+					} else {
+						writer.accept(chunk);
+					}
+				}
+				writer.flush();
+				readTask.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DBException("Importacao interrompida");
+			} catch (RuntimeException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof UncheckedIOException) {
+					throw ((UncheckedIOException) cause).getCause();
+				}
+				throw e;
+			} finally {
+				pool.shutdownNow();
+				writer.close();
+			}
+
+			long elapsed = (System.nanoTime() - start) / 1000000;
+			if (listener != null) {
+				listener.onProgress(writer.read, writer.read * 1000.0 / Math.max(1, elapsed), true);
+			}
+			return new ImportResult(writer.read, writer.imported, writer.rejected, elapsed,
+					writer.rejected > 0 ? rejectedReport : null);
+		}
+	}
+
+	public CompletableFuture<ImportResult> importFileAsync(Path file, ProgressListener listener) {
+		return ServiceExecutor.supply(() -> {
+			try {
+				return importFile(file, listener);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	private static void read(BufferedReader reader, BlockingQueue<Chunk> parseQueue, int workers) {
+		try {
+			long lineNumber = 1;
+			Chunk chunk = new Chunk();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				chunk.lines.add(line);
+				chunk.lineNumbers.add(lineNumber);
+				if (chunk.lines.size() == CHUNK_SIZE) {
+					parseQueue.put(chunk);
+					chunk = new Chunk();
+				}
+			}
+			if (!chunk.lines.isEmpty()) {
+				parseQueue.put(chunk);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			// libera os workers mesmo em caso de erro de leitura; put espera
+			// a fila esvaziar (offer descartaria o fim com a fila cheia)
+			try {
+				for (int i = 0; i < workers; i++) {
+					parseQueue.put(Chunk.END);
+				}
+			} catch (InterruptedException e) {
+				// importacao cancelada: o pool e encerrado com shutdownNow
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static void parse(BlockingQueue<Chunk> parseQueue, BlockingQueue<Chunk> writeQueue, Columns columns,
+			Departments departments) {
+		try {
+			while (true) {
+				Chunk chunk = parseQueue.take();
+				if (chunk == Chunk.END) {
+					writeQueue.put(Chunk.END);
+					return;
+				}
+				for (int i = 0; i < chunk.lines.size(); i++) {
+					try {
+						chunk.sellers.add(toSeller(Csv.parseLine(chunk.lines.get(i)), columns, departments));
+					} catch (ValidationException e) {
+						chunk.reject(i, errorsToString(e.getErrors()));
+					} catch (RuntimeException e) {
+						chunk.reject(i, e.getMessage());
+					}
+				}
+				writeQueue.put(chunk);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static Seller toSeller(List<String> fields, Columns columns, Departments departments) {
+		Seller seller = new Seller();
+		ValidationException exception = new ValidationException("Validation error!");
+
+		String name = columns.get(fields, columns.name);
+		if (name.isEmpty()) {
+			exception.addError("name", "Field can't be empty");
+		}
+		seller.setName(name);
+
+		String email = columns.get(fields, columns.email);
+		if (email.isEmpty()) {
+			exception.addError("email", "Field can't be empty");
+		}
+		seller.setEmail(email);
+
+		String birthDate = columns.get(fields, columns.birthDate);
+		if (birthDate.isEmpty()) {
+			exception.addError("birthDate", "Field can't be empty");
+		} else {
+			LocalDate date = parseDate(birthDate);
+			if (date == null) {
+				exception.addError("birthDate", "Invalid date");
+			} else {
+				seller.setBirthDate(Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+			}
+		}
+
+		String baseSalary = columns.get(fields, columns.baseSalary);
+		if (baseSalary.isEmpty()) {
+			exception.addError("baseSalary", "Field can't be empty");
+		} else {
+			try {
+				seller.setBaseSalary(Double.parseDouble(baseSalary));
+			} catch (NumberFormatException e) {
+				exception.addError("baseSalary", "Invalid number");
+			}
+		}
+
+		Department department = departments.resolve(columns.get(fields, columns.departmentName),
+				columns.get(fields, columns.departmentId));
+		if (department == null) {
+			exception.addError("department", "Unknown department");
+		}
+		seller.setDepartment(department);
+
+		if (exception.getErrors().size() > 0) {
+			throw exception;
+		}
+		return seller;
+	}
+
+	private static LocalDate parseDate(String text) {
+		for (DateTimeFormatter format : DATE_FORMATS) {
+			try {
+				return LocalDate.parse(text, format);
+			} catch (DateTimeParseException e) {
+				// tenta o proximo formato
+			}
+		}
+		return null;
+	}
+
+	private static String errorsToString(Map<String, String> errors) {
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, String> error : errors.entrySet()) {
+			if (sb.length() > 0) {
+				sb.append("; ");
+			}
+			sb.append(error.getKey()).append(": ").append(error.getValue());
+		}
+		return sb.toString();
+	}
+
+	private static String stripBom(String header) {
+		return header.startsWith("\uFEFF") ? header.substring(1) : header;
+	}
+
+	/**
+	 * Estagio de gravacao: acumula sellers validos ate batch.size e registra
+	 * as rejeicoes no relatorio.
+	 */
+	private class Writer {
+
+		private final Path reportFile;
+		private final ProgressListener listener;
+		private final long start;
+		private final int batchSize = DB.getBatchSize();
+		private final List<Seller> pending = new ArrayList<>();
+		private final List<String> pendingLines = new ArrayList<>();
+		private final List<Long> pendingLineNumbers = new ArrayList<>();
+		private BufferedWriter report;
+		private long read;
+		private long imported;
+		private long rejected;
+		private long lastProgress;
+
+		Writer(Path reportFile, ProgressListener listener, long start) {
+			this.reportFile = reportFile;
+			this.listener = listener;
+			this.start = start;
+		}
+
+		void accept(Chunk chunk) throws IOException {
+			int next = 0;
+			for (int i = 0; i < chunk.lines.size(); i++) {
+				String error = chunk.errors.get(i);
+				if (error != null) {
+					reject(chunk.lineNumbers.get(i), error, chunk.lines.get(i));
+				} else {
+					pending.add(chunk.sellers.get(next++));
+					pendingLines.add(chunk.lines.get(i));
+					pendingLineNumbers.add(chunk.lineNumbers.get(i));
+				}
+			}
+			read += chunk.lines.size();
+			if (pending.size() >= batchSize) {
+				flush();
+			}
+			if (listener != null && read - lastProgress >= PROGRESS_INTERVAL) {
+				lastProgress = read;
+				listener.onProgress(read, read / Math.max(1e-9, (System.nanoTime() - start) / 1e9), false);
+			}
+		}
+
+		void flush() throws IOException {
+			if (pending.isEmpty()) {
+				return;
+			}
+			BatchResult<Seller> result = sellerDao.insertAll(pending);
+			queryCache.bump("seller");
+			imported += result.getSucceeded();
+			for (BatchResult.Failure<Seller> failure : result.getFailures()) {
+				reject(pendingLineNumbers.get(failure.getIndex()), failure.getMessage(),
+						pendingLines.get(failure.getIndex()));
+			}
+			pending.clear();
+			pendingLines.clear();
+			pendingLineNumbers.clear();
+		}
+
+		private void reject(long lineNumber, String error, String line) throws IOException {
+			if (report == null) {
+				report = Files.newBufferedWriter(reportFile, StandardCharsets.UTF_8);
+				report.write("Line,Error,Row\n");
+			}
+			report.write(lineNumber + "," + Csv.escape(error) + "," + Csv.escape(line) + "\n");
+			rejected++;
+		}
+
+		void close() throws IOException {
+			if (report != null) {
+				report.close();
+			}
+		}
+	}
+
+	private static class Chunk {
+
+		static final Chunk END = new Chunk();
+
+		final List<String> lines = new ArrayList<>(CHUNK_SIZE);
+		final List<Long> lineNumbers = new ArrayList<>(CHUNK_SIZE);
+		final List<Seller> sellers = new ArrayList<>(CHUNK_SIZE);
+		List<String> errors = Collections.emptyList();
+
+		void reject(int index, String error) {
+			if (errors.isEmpty()) {
+				errors = new ArrayList<>(Collections.nCopies(lines.size(), (String) null));
+			}
+			errors.set(index, error);
+		}
+	}
+
+	private static class Columns {
+
+		final int name;
+		final int email;
+		final int birthDate;
+		final int baseSalary;
+		final int departmentName;
+		final int departmentId;
+
+		Columns(List<String> header) {
+			Map<String, Integer> index = new HashMap<>();
+			for (int i = 0; i < header.size(); i++) {
+				index.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+			}
+			name = required(index, "name");
+			email = required(index, "email");
+			birthDate = required(index, "birthdate");
+			baseSalary = required(index, "basesalary");
+			departmentName = index.getOrDefault("departmentname", -1);
+			departmentId = index.getOrDefault("departmentid", -1);
+			if (departmentName < 0 && departmentId < 0) {
+				throw new DBException("Cabecalho sem coluna DepartmentName ou DepartmentId");
+			}
+		}
+
+		private static int required(Map<String, Integer> index, String column) {
+			Integer i = index.get(column);
+			if (i == null) {
+				throw new DBException("Coluna obrigatoria ausente no cabecalho: " + column);
+			}
+			return i;
+		}
+
+		String get(List<String> fields, int column) {
+			return column >= 0 && column < fields.size() ? fields.get(column).trim() : "";
+		}
+	}
+
+	/**
+	 * Departamentos carregados uma unica vez, consultados por nome (sem
+	 * diferenciar maiusculas) ou por id.
+	 */
+	private static class Departments {
+
+		private final Map<String, Department> byName = new HashMap<>();
+		private final Map<String, Department> byId = new HashMap<>();
+
+		Departments(List<Department> list) {
+			for (Department dep : list) {
+				if (dep.getName() != null) {
+					byName.put(dep.getName().trim().toLowerCase(Locale.ROOT), dep);
+				}
+				byId.put(String.valueOf(dep.getId()), dep);
+			}
+		}
+
+		Department resolve(String name, String id) {
+			if (!name.isEmpty()) {
+				return byName.get(name.toLowerCase(Locale.ROOT));
+			}
+			return id.isEmpty() ? null : byId.get(id);
+		}
+	}
+}
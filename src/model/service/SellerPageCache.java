@@ -0,0 +1,177 @@
+package model.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import model.dao.CacheStats;
+import model.dao.SellerDao;
+import model.entities.Seller;
+
+/**
+ * Paginas de sellers por departamento ja lidas do banco, para a tela
+ * master-detail. As paginas sao lidas em sequencia por keyset (Name, Id),
+ * entao a pagina n so e lida depois da n-1. Quando o total de linhas passa
+ * de maxRows os departamentos usados ha mais tempo sao descartados (LRU);
+ * entradas tambem expiram pelo TTL, para refletir alteracoes que nao
+ * passaram pelos metodos de invalidacao.
+ */
+public class SellerPageCache {
+
+	private final SellerDao dao;
+	private final int pageSize;
+	private final int maxRows;
+	private final long ttlMillis;
+
+	private final Map<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private int rows;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	public SellerPageCache(SellerDao dao, int pageSize, int maxRows, long ttlMillis) {
+		this.dao = dao;
+		this.pageSize = Math.max(1, pageSize);
+		this.maxRows = maxRows;
+		this.ttlMillis = ttlMillis;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * Pagina {@code index} (a partir de 0) dos sellers do departamento,
+	 * ordenada por nome. Uma pagina menor que {@link #getPageSize()} e a
+	 * ultima; depois dela a lista e vazia.
+	 */
+	public List<Seller> getPage(Integer departmentId, int index) {
+		return load(departmentId, index, true);
+	}
+
+	/**
+	 * Le a pagina em segundo plano, se ainda nao esta no cache.
+	 */
+	public void prefetch(Integer departmentId, int index) {
+		ServiceExecutor.run(() -> load(departmentId, index, false));
+	}
+
+	private List<Seller> load(Integer departmentId, int index, boolean counted) {
+		Entry entry = entryFor(departmentId);
+		synchronized (entry) {
+			if (counted) {
+				recordLookup(index < entry.pages.size() || entry.complete);
+			}
+			while (entry.pages.size() <= index && !entry.complete) {
+				Seller after = null;
+				if (!entry.pages.isEmpty()) {
+					List<Seller> last = entry.pages.get(entry.pages.size() - 1);
+					after = last.get(last.size() - 1);
+				}
+				List<Seller> page = dao.findPageByDepartment(departmentId, after, pageSize);
+				entry.complete = page.size() < pageSize;
+				if (!page.isEmpty()) {
+					entry.pages.add(Collections.unmodifiableList(page));
+				}
+				added(entry, page);
+			}
+			return index < entry.pages.size() ? entry.pages.get(index) : Collections.<Seller>emptyList();
+		}
+	}
+
+	private synchronized Entry entryFor(Integer departmentId) {
+		Entry entry = entries.get(departmentId);
+		if (entry == null || System.currentTimeMillis() - entry.createdAt > ttlMillis) {
+			if (entry != null) {
+				remove(departmentId);
+			}
+			entry = new Entry(departmentId);
+			entries.put(departmentId, entry);
+		}
+		return entry;
+	}
+
+	private synchronized void recordLookup(boolean hit) {
+		if (hit) {
+			hits++;
+		} else {
+			misses++;
+		}
+	}
+
+	private synchronized void added(Entry entry, List<Seller> page) {
+		if (entries.get(entry.departmentId) != entry) {
+			// invalidada durante a leitura
+			return;
+		}
+		entry.rows += page.size();
+		rows += page.size();
+		for (Seller seller : page) {
+			entry.ids.add(seller.getId());
+		}
+		Iterator<Entry> it = entries.values().iterator();
+		while (rows > maxRows && it.hasNext()) {
+			Entry eldest = it.next();
+			if (eldest == entry) {
+				continue;
+			}
+			it.remove();
+			rows -= eldest.rows;
+			evictions++;
+		}
+	}
+
+	public synchronized void invalidateDepartment(Integer departmentId) {
+		remove(departmentId);
+	}
+
+	/**
+	 * Descarta os departamentos cujas paginas carregadas contem o seller.
+	 */
+	public synchronized void invalidateSeller(Integer sellerId) {
+		for (Entry entry : new ArrayList<>(entries.values())) {
+			if (entry.ids.contains(sellerId)) {
+				remove(entry.departmentId);
+			}
+		}
+	}
+
+	public synchronized void invalidateAll() {
+		entries.clear();
+		rows = 0;
+	}
+
+	private void remove(Integer departmentId) {
+		Entry entry = entries.remove(departmentId);
+		if (entry != null) {
+			rows -= entry.rows;
+		}
+	}
+
+	/**
+	 * @return estatisticas; o tamanho e o numero de sellers em cache
+	 */
+	public synchronized CacheStats getStats() {
+		return new CacheStats(hits, misses, evictions, rows);
+	}
+
+	private static class Entry {
+
+		final Integer departmentId;
+		final long createdAt = System.currentTimeMillis();
+		final List<List<Seller>> pages = new ArrayList<>();
+		final Set<Integer> ids = new HashSet<>();
+		boolean complete;
+		int rows;
+
+		Entry(Integer departmentId) {
+			this.departmentId = departmentId;
+		}
+	}
+}
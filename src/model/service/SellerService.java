@@ -1,17 +1,86 @@
 package model.service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
+import db.DB;
+import model.dao.BatchResult;
 import model.dao.DaoFactory;
 import model.dao.SellerDao;
+import model.dao.SellerQuery;
+import model.entities.Department;
 import model.entities.Seller;
+import model.entities.SellerStore;
 
 public class SellerService {
 
+	/** Tabelas lidas pelas consultas de sellers (o nome do departamento vem junto). */
+	private static final String[] TABLES = { "seller", "department" };
+
+	private static SellerPageCache departmentPages;
+	
 	private SellerDao dao = DaoFactory.createSellerDao();
 	
+	private QueryResultCache queryCache = QueryResultCache.getShared();
+	
+	/**
+	 * Cache de paginas por departamento compartilhado pelas telas, configurado
+	 * pelas chaves cache.sellerPages.* do db.properties.
+	 */
+	public static synchronized SellerPageCache getDepartmentPages() {
+		if (departmentPages == null) {
+			departmentPages = new SellerPageCache(DaoFactory.createSellerDao(),
+					DB.getIntProperty("cache.sellerPages.pageSize", 200),
+					DB.getIntProperty("cache.sellerPages.maxRows", 100000),
+					DB.getIntProperty("cache.sellerPages.ttlMs", 120000));
+		}
+		return departmentPages;
+	}
+	
 	public List<Seller> findAll() {
-		return dao.findAll();
+		return queryCache.get(TABLES, dao::findAll, "Seller.findAll");
+	}
+	
+	public List<Seller> findByDepartment(Department department) {
+		return queryCache.get(TABLES, () -> dao.findByDepartment(department), "Seller.findByDepartment",
+				department.getId());
+	}
+	
+	public Seller findById(Integer id) {
+		return dao.findById(id);
+	}
+	
+	public List<Seller> findPage(Seller after, int pageSize) {
+		if (after == null) {
+			return queryCache.get(TABLES, () -> dao.findPage(null, pageSize), "Seller.findPage", pageSize);
+		}
+		return queryCache.get(TABLES, () -> dao.findPage(after, pageSize), "Seller.findPage", pageSize,
+				after.getName(), after.getId());
+	}
+	
+	public List<Seller> findDepartmentPage(Department department, int index) {
+		return getDepartmentPages().getPage(department.getId(), index);
+	}
+	
+	public List<Seller> find(SellerQuery query) {
+		return dao.find(query);
+	}
+	
+	public void forEach(Consumer<Seller> action) {
+		dao.forEach(action);
+	}
+	
+	/**
+	 * Carrega todos os sellers em um {@link SellerStore} colunar, lendo a
+	 * tabela com cursor sem manter os objetos Seller.
+	 */
+	public SellerStore loadStore() {
+		SellerStore store = new SellerStore();
+		dao.forEach(store::add);
+		store.trimToSize();
+		return store;
 	}
 	
 	public void saveOrUpdate(Seller seller) {
@@ -20,10 +89,68 @@ public class SellerService {
 		} else {
 			dao.update(seller);
 		}
+		queryCache.bump("seller");
+	}
+	
+	public BatchResult<Seller> insertAll(Collection<Seller> list) {
+		try {
+			return dao.insertAll(list);
+		} finally {
+			queryCache.bump("seller");
+		}
+	}
+	
+	public BatchResult<Seller> updateAll(Collection<Seller> list) {
+		try {
+			return dao.updateAll(list);
+		} finally {
+			queryCache.bump("seller");
+		}
 	}
 	
 	public void remove(Seller obj) {
 		dao.deleteById(obj.getId());
+		queryCache.bump("seller");
+	}
+	
+	public CompletableFuture<List<Seller>> findAllAsync() {
+		return ServiceExecutor.supply(this::findAll);
+	}
+	
+	public CompletableFuture<List<Seller>> findByDepartmentAsync(Department department) {
+		return ServiceExecutor.supply(() -> findByDepartment(department));
+	}
+	
+	public CompletableFuture<SellerStore> loadStoreAsync() {
+		return ServiceExecutor.supply(this::loadStore);
+	}
+	
+	public CompletableFuture<Seller> findByIdAsync(Integer id) {
+		return ServiceExecutor.supply(() -> findById(id));
+	}
+	
+	public CompletableFuture<List<Seller>> findPageAsync(Seller after, int pageSize) {
+		return ServiceExecutor.supply(() -> findPage(after, pageSize));
+	}
+	
+	public CompletableFuture<List<Seller>> findDepartmentPageAsync(Department department, int index) {
+		return ServiceExecutor.supply(() -> findDepartmentPage(department, index));
+	}
+	
+	public void prefetchDepartmentPage(Department department, int index) {
+		getDepartmentPages().prefetch(department.getId(), index);
+	}
+	
+	public CompletableFuture<List<Seller>> findAsync(SellerQuery query) {
+		return ServiceExecutor.supply(() -> find(query));
+	}
+	
+	public CompletableFuture<Void> saveOrUpdateAsync(Seller seller) {
+		return ServiceExecutor.run(() -> saveOrUpdate(seller));
+	}
+	
+	public CompletableFuture<Void> removeAsync(Seller obj) {
+		return ServiceExecutor.run(() -> remove(obj));
 	}
 	
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+package model.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import db.QueryCancellation;
+
+/**
+ * Executor dedicado as chamadas de banco feitas pelos services. Usa virtual
+ * threads quando a JVM oferece (Java 21+); caso contrario um pool fixo de
+ * threads daemon.
+ * <p>
+ * Cancelar o future devolvido ({@code cancel}) interrompe a consulta em
+ * andamento com Statement.cancel() (veja {@link QueryCancellation}) e
+ * libera a conexao; uma tarefa cancelada antes de comecar nao executa.
+ */
+public class ServiceExecutor {
+
+	private static final int PLATFORM_THREADS = 8;
+
+	private static final ExecutorService executor = newExecutor("service-worker", PLATFORM_THREADS);
+
+	public static ExecutorService get() {
+		return executor;
+	}
+
+	public static <T> CompletableFuture<T> supply(Supplier<T> supplier) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		QueryCancellation cancellation = new QueryCancellation();
+		executor.execute(() -> {
+			if (future.isDone()) {
+				return;
+			}
+			cancellation.bind();
+			try {
+				future.complete(supplier.get());
+			} catch (Throwable e) {
+				future.completeExceptionally(e instanceof CompletionException ? e : new CompletionException(e));
+			} finally {
+				cancellation.end();
+			}
+		});
+		future.whenComplete((result, error) -> {
+			if (future.isCancelled()) {
+				cancellation.cancel();
+			}
+		});
+		return future;
+	}
+
+	public static CompletableFuture<Void> run(Runnable runnable) {
+		return supply(() -> {
+			runnable.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Uma virtual thread por tarefa quando a JVM oferece; senao um pool fixo
+	 * de {@code platformThreads} threads daemon chamadas name-N.
+	 */
+	public static ExecutorService newExecutor(String name, int platformThreads) {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			AtomicInteger count = new AtomicInteger();
+			return Executors.newFixedThreadPool(platformThreads, r -> {
+				Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			});
+		}
+	}
+}
@@ -0,0 +1,414 @@
+package model.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import db.DB;
+import db.DBException;
+import db.DbConflictException;
+import db.SchemaMigrator;
+import model.dao.ChangeLogDao;
+import model.dao.DaoFactory;
+import model.dao.DepartmentDao;
+import model.dao.ReplicaDao;
+import model.dao.SellerDao;
+import model.entities.ChangeLogEntry;
+import model.entities.Department;
+import model.entities.Seller;
+import model.service.ChangeFeedService.Change;
+import model.service.ChangeFeedService.Operation;
+
+/**
+ * Sincroniza a replica local (modo offline) com o banco central. Cada ciclo
+ * envia as alteracoes locais pendentes e depois aplica as alteracoes do
+ * banco central desde o ultimo ciclo:
+ * <ul>
+ * <li>push: o change_log da replica e a fila de saida. Cada linha alterada
+ * e enviada com o estado atual e a versao em que a edicao comecou; se o
+ * banco central ja tem outra versao ({@link DbConflictException}) vale a
+ * versao do servidor e os listeners de conflito sao avisados. Ids gerados
+ * localmente sao trocados pelos do servidor apos o INSERT. DELETEs nao
+ * verificam versao.</li>
+ * <li>pull: le o change_log do banco central pelo
+ * {@link ChangeFeedService} e grava na replica apenas linhas com versao
+ * maior, sem passar pelo change_log local. Linhas com envio pendente sao
+ * puladas. Se a replica ficou parada mais que changefeed.retentionHours,
+ * as tabelas sao copiadas por inteiro.</li>
+ * </ul>
+ * Se o banco central esta fora do ar o ciclo termina e os DAOs continuam
+ * usando a replica.
+ */
+public class SyncService {
+
+	private static final Logger LOG = Logger.getLogger(SyncService.class.getName());
+
+	private static final int PUSH_BATCH = 500;
+	private static final long REPLAY_MARGIN = 1000;
+	private static final String STATE_PULL_POSITION = "pull.position";
+	private static final String STATE_PULL_TIME = "pull.time";
+
+	public interface ConflictListener {
+		void onConflict(String table, Integer id, String message);
+	}
+
+	private final ReplicaDao replica = DaoFactory.createReplicaDao();
+	private final SellerDao localSellerDao = DaoFactory.createSellerDao();
+	private final DepartmentDao localDepartmentDao = DaoFactory.createDepartmentDao();
+	private final SellerDao serverSellerDao = DaoFactory.createServerSellerDao();
+	private final DepartmentDao serverDepartmentDao = DaoFactory.createServerDepartmentDao();
+	private final ChangeLogDao serverChangeLogDao = DaoFactory.createServerChangeLogDao();
+	private final ChangeFeedService feed = new ChangeFeedService(serverChangeLogDao, serverSellerDao,
+			serverDepartmentDao);
+
+	private final List<ChangeFeedService.Listener> listeners = new CopyOnWriteArrayList<>();
+	private final List<ConflictListener> conflictListeners = new CopyOnWriteArrayList<>();
+
+	private boolean serverReady;
+	private boolean positioned;
+	private volatile boolean online;
+	private volatile long lastSync;
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * Migra a replica e reserva os ids locais. Deve rodar antes de qualquer
+	 * escrita dos DAOs na replica.
+	 */
+	public static void openReplica() {
+		SchemaMigrator.migrate(DB.getLocalDataSource());
+		DaoFactory.createReplicaDao().initialize();
+	}
+
+	public void addListener(ChangeFeedService.Listener listener) {
+		listeners.add(listener);
+	}
+
+	public void addConflictListener(ConflictListener listener) {
+		conflictListeners.add(listener);
+	}
+
+	public synchronized void start() {
+		if (scheduler != null) {
+			return;
+		}
+		long period = DB.getIntProperty("offline.syncMs", 5000);
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "offline-sync");
+			t.setDaemon(true);
+			return t;
+		});
+		scheduler.scheduleWithFixedDelay(this::syncQuietly, 0, period, TimeUnit.MILLISECONDS);
+	}
+
+	public synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	public boolean isOnline() {
+		return online;
+	}
+
+	/**
+	 * @return horario (ms) do ultimo ciclo completo, ou 0
+	 */
+	public long getLastSync() {
+		return lastSync;
+	}
+
+	public int getPendingCount() {
+		return replica.countPending();
+	}
+
+	private void syncQuietly() {
+		try {
+			sync();
+		} catch (RuntimeException e) {
+			if (online) {
+				LOG.log(Level.WARNING, "Banco central indisponivel, usando apenas a replica local: " + e.getMessage());
+			}
+			online = false;
+		}
+	}
+
+	/**
+	 * Executa um ciclo completo (push e pull).
+	 */
+	public synchronized void sync() {
+		List<Change> changes = new ArrayList<>();
+		try {
+			if (!serverReady) {
+				SchemaMigrator.migrate(DB.getDataSource());
+				serverReady = true;
+			}
+			push(changes);
+			pull(changes);
+			if (!online) {
+				LOG.info("Sincronizacao com o banco central restabelecida");
+			}
+			online = true;
+			lastSync = System.currentTimeMillis();
+		} finally {
+			if (!changes.isEmpty()) {
+				// gravacoes na replica nao passam pelo change_log local
+				Set<String> tables = new HashSet<>();
+				for (Change change : changes) {
+					tables.add(change.getTable());
+				}
+				QueryResultCache.getShared().bump(tables.toArray(new String[0]));
+				for (ChangeFeedService.Listener listener : listeners) {
+					listener.onChanges(changes);
+				}
+			}
+		}
+	}
+
+	private void push(List<Change> changes) {
+		while (true) {
+			List<ChangeLogEntry> entries = replica.findPending(PUSH_BATCH);
+			Map<String, List<ChangeLogEntry>> rows = new LinkedHashMap<>();
+			for (ChangeLogEntry entry : entries) {
+				rows.computeIfAbsent(entry.getTableName() + ":" + entry.getRowId(), k -> new ArrayList<>())
+						.add(entry);
+			}
+			for (List<ChangeLogEntry> rowEntries : rows.values()) {
+				ChangeLogEntry first = rowEntries.get(0);
+				ChangeLogEntry last = rowEntries.get(rowEntries.size() - 1);
+				try {
+					pushRow(first, last, changes);
+				} catch (DbConflictException e) {
+					resolveConflict(first.getTableName(), first.getRowId(), e.getMessage(), changes);
+				} catch (DBException e) {
+					if (!isServerReachable()) {
+						throw e;
+					}
+					// erro da propria linha (ex.: email duplicado): nao pode travar a fila
+					resolveConflict(first.getTableName(), first.getRowId(), e.getMessage(), changes);
+				}
+				replica.markPushed(first.getTableName(), first.getRowId(), last.getId());
+			}
+			if (entries.size() < PUSH_BATCH) {
+				return;
+			}
+		}
+	}
+
+	private void pushRow(ChangeLogEntry first, ChangeLogEntry last, List<Change> changes) {
+		String table = first.getTableName();
+		int id = first.getRowId();
+		boolean created = first.getOperation() == ChangeLogEntry.INSERT || id >= ReplicaDao.LOCAL_ID_BASE;
+
+		if (last.getOperation() == ChangeLogEntry.DELETE) {
+			if (created) {
+				// criada e removida antes de chegar ao servidor
+				return;
+			}
+			if ("seller".equals(table)) {
+				serverSellerDao.deleteById(id);
+			} else {
+				serverDepartmentDao.deleteById(id);
+			}
+			return;
+		}
+
+		if ("seller".equals(table)) {
+			Seller local = localSellerDao.findById(id);
+			if (local == null) {
+				return;
+			}
+			Seller copy = new Seller(created ? null : id, local.getName(), local.getEmail(), local.getBirthDate(),
+					local.getBaseSalary(), local.getDepartment());
+			if (created) {
+				serverSellerDao.insert(copy);
+				rekey(table, id, copy, copy.getId(), changes);
+			} else {
+				copy.setVersion(first.getVersion() - 1);
+				serverSellerDao.update(copy);
+				replica.setVersion(table, id, copy.getVersion());
+			}
+		} else {
+			Department local = localDepartmentDao.findById(id);
+			if (local == null) {
+				return;
+			}
+			Department copy = new Department(created ? null : id, local.getName());
+			if (created) {
+				serverDepartmentDao.insert(copy);
+				rekey(table, id, copy, copy.getId(), changes);
+			} else {
+				copy.setVersion(first.getVersion() - 1);
+				serverDepartmentDao.update(copy);
+				replica.setVersion(table, id, copy.getVersion());
+			}
+		}
+	}
+
+	private void rekey(String table, int localId, Object entity, int serverId, List<Change> changes) {
+		replica.rekey(table, localId, serverId, 0);
+		DaoFactory.getDepartmentCache().invalidate(localId);
+		changes.add(new Change(table, Operation.DELETE, localId, null));
+		changes.add(new Change(table, Operation.INSERT, serverId, entity));
+	}
+
+	/*
+	 * O servidor vence: a linha local volta ao estado do banco central (ou e
+	 * removida) e a edicao local e descartada.
+	 */
+	private void resolveConflict(String table, int id, String message, List<Change> changes) {
+		Object server = null;
+		if (id < ReplicaDao.LOCAL_ID_BASE) {
+			server = "seller".equals(table) ? serverSellerDao.findById(id) : serverDepartmentDao.findById(id);
+		}
+		if (server == null) {
+			replica.deleteRow(table, id);
+			changes.add(new Change(table, Operation.DELETE, id, null));
+		} else {
+			if (server instanceof Seller) {
+				replica.upsertSeller((Seller) server, true);
+			} else {
+				replica.upsertDepartment((Department) server, true);
+				DaoFactory.getDepartmentCache().invalidate(id);
+			}
+			changes.add(new Change(table, Operation.UPDATE, id, server));
+		}
+		LOG.warning("Conflito ao enviar " + table + " " + id + ": " + message);
+		for (ConflictListener listener : conflictListeners) {
+			listener.onConflict(table, id, message);
+		}
+	}
+
+	private void pull(List<Change> changes) {
+		if (!positioned) {
+			position();
+			positioned = true;
+		}
+		List<Change> pulled = feed.poll();
+		Set<String> pending = pulled.isEmpty() ? new HashSet<>() : replica.findPendingRows();
+
+		List<Change> sellerDeletes = new ArrayList<>();
+		List<Change> departmentDeletes = new ArrayList<>();
+		for (Change change : pulled) {
+			if (pending.contains(change.getTable() + ":" + change.getId())) {
+				continue;
+			}
+			if (change.getOperation() == Operation.DELETE) {
+				("seller".equals(change.getTable()) ? sellerDeletes : departmentDeletes).add(change);
+			} else if (change.getEntity() instanceof Department
+					&& replica.upsertDepartment((Department) change.getEntity(), false)) {
+				changes.add(change);
+			}
+		}
+		for (Change change : pulled) {
+			if (change.getEntity() instanceof Seller && !pending.contains("seller:" + change.getId())
+					&& applySeller((Seller) change.getEntity())) {
+				changes.add(change);
+			}
+		}
+		for (Change change : sellerDeletes) {
+			replica.deleteRow("seller", change.getId());
+			changes.add(change);
+		}
+		for (Change change : departmentDeletes) {
+			try {
+				replica.deleteRow("department", change.getId());
+				changes.add(change);
+			} catch (DBException e) {
+				// ainda referenciado por sellers locais pendentes
+				LOG.warning("Departamento " + change.getId() + " nao removido da replica: " + e.getMessage());
+			}
+		}
+
+		replica.setState(STATE_PULL_POSITION, feed.getHighWaterMark());
+		replica.setState(STATE_PULL_TIME, System.currentTimeMillis());
+		feed.purgeIfDue();
+	}
+
+	private boolean applySeller(Seller seller) {
+		try {
+			return replica.upsertSeller(seller, false);
+		} catch (DBException e) {
+			// departamento ainda nao replicado
+			Department dep = serverDepartmentDao.findById(seller.getDepartment().getId());
+			if (dep == null) {
+				throw e;
+			}
+			replica.upsertDepartment(dep, false);
+			return replica.upsertSeller(seller, false);
+		}
+	}
+
+	private void position() {
+		Long position = replica.getState(STATE_PULL_POSITION);
+		Long time = replica.getState(STATE_PULL_TIME);
+		long retention = TimeUnit.HOURS.toMillis(DB.getIntProperty("changefeed.retentionHours", 24));
+		if (position == null || time == null || System.currentTimeMillis() - time > retention) {
+			copyAll();
+		} else {
+			// reaplica o fim do log: entradas de transacoes que ainda nao tinham
+			// commit no ultimo ciclo (aplicar de novo nao tem efeito)
+			feed.setHighWaterMark(Math.max(0, position - REPLAY_MARGIN));
+		}
+	}
+
+	/*
+	 * Copia completa das duas tabelas, usada na primeira sincronizacao ou
+	 * quando o change_log do servidor ja nao cobre o periodo parado.
+	 */
+	private void copyAll() {
+		long start = System.nanoTime();
+		long position = serverChangeLogDao.findMaxId();
+		Set<String> pending = replica.findPendingRows();
+
+		Set<Integer> departmentIds = new HashSet<>();
+		for (Department dep : serverDepartmentDao.findAll()) {
+			departmentIds.add(dep.getId());
+			if (!pending.contains("department:" + dep.getId())) {
+				replica.upsertDepartment(dep, false);
+			}
+		}
+		Set<Integer> sellerIds = new HashSet<>();
+		serverSellerDao.forEach(seller -> {
+			sellerIds.add(seller.getId());
+			if (!pending.contains("seller:" + seller.getId())) {
+				replica.upsertSeller(seller, false);
+			}
+		});
+
+		for (Integer id : replica.findServerIds("seller")) {
+			if (!sellerIds.contains(id) && !pending.contains("seller:" + id)) {
+				replica.deleteRow("seller", id);
+			}
+		}
+		for (Integer id : replica.findServerIds("department")) {
+			if (!departmentIds.contains(id) && !pending.contains("department:" + id)) {
+				replica.deleteRow("department", id);
+			}
+		}
+		DaoFactory.getDepartmentCache().invalidateAll();
+		QueryResultCache.getShared().bumpAll();
+		feed.setHighWaterMark(position);
+		LOG.info(String.format("Replica local copiada: %d departamentos, %d sellers em %.0f ms", departmentIds.size(),
+				sellerIds.size(), (System.nanoTime() - start) / 1e6));
+	}
+
+	private boolean isServerReachable() {
+		try (Connection con = DB.getDataSource().getConnection()) {
+			return con.isValid(2);
+		} catch (SQLException | RuntimeException e) {
+			return false;
+		}
+	}
+}
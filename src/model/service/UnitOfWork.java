@@ -0,0 +1,245 @@
+package model.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import db.DB;
+import db.DBException;
+import db.TransactionalDataSource;
+
+/**
+ * Transacao que abrange varias chamadas de DAO na thread atual. Enquanto a
+ * unidade estiver aberta os DAOs usam a mesma conexao, sem commit por
+ * comando; o commit acontece uma unica vez em {@link #commit()}. Fechar sem
+ * commit desfaz tudo.
+ *
+ * <pre>
+ * try (UnitOfWork uow = UnitOfWork.begin()) {
+ * 	sellerDao.updateAll(list);
+ * 	departmentDao.deleteById(id);
+ * 	uow.commit();
+ * }
+ * </pre>
+ *
+ * Uma unidade aberta dentro de outra participa da transacao externa: o
+ * commit interno nao tem efeito e o rollback interno marca a transacao
+ * inteira para rollback. Entidades alteradas dentro de uma unidade desfeita
+ * (ids, versoes) devem ser recarregadas.
+ */
+public class UnitOfWork implements AutoCloseable {
+
+	/** Mantem o nivel de isolamento padrao da conexao. */
+	public static final int DEFAULT_ISOLATION = -1;
+
+	private static final ThreadLocal<UnitOfWork> current = new ThreadLocal<>();
+
+	private final UnitOfWork outer;
+	private final TransactionalDataSource dataSource;
+	private final Connection con;
+	private final int previousIsolation;
+	private boolean rollbackOnly;
+	private boolean completed;
+	private List<Runnable> afterCommit;
+
+	private UnitOfWork(UnitOfWork outer, TransactionalDataSource dataSource, Connection con,
+			int previousIsolation) {
+		this.outer = outer;
+		this.dataSource = dataSource;
+		this.con = con;
+		this.previousIsolation = previousIsolation;
+	}
+
+	public static UnitOfWork begin() {
+		return begin(DEFAULT_ISOLATION);
+	}
+
+	/**
+	 * @param isolation um dos Connection.TRANSACTION_*, ou
+	 *                  {@link #DEFAULT_ISOLATION}. Ignorado em unidades
+	 *                  aninhadas.
+	 */
+	public static UnitOfWork begin(int isolation) {
+		UnitOfWork outer = current.get();
+		if (outer != null) {
+			return new UnitOfWork(outer, null, outer.con, DEFAULT_ISOLATION);
+		}
+
+		TransactionalDataSource dataSource = DB.getWorkingDataSource();
+		Connection con = null;
+		try {
+			con = dataSource.getTargetConnection();
+			int previousIsolation = DEFAULT_ISOLATION;
+			if (isolation != DEFAULT_ISOLATION) {
+				previousIsolation = con.getTransactionIsolation();
+				con.setTransactionIsolation(isolation);
+			}
+			con.setAutoCommit(false);
+			UnitOfWork uow = new UnitOfWork(null, dataSource, con, previousIsolation);
+			dataSource.bind(con);
+			current.set(uow);
+			return uow;
+		} catch (SQLException | RuntimeException e) {
+			DB.closeConnection(con);
+			throw e instanceof SQLException ? new DBException(e.getMessage(), e) : (RuntimeException) e;
+		}
+	}
+
+	public static <T> T execute(Supplier<T> work) {
+		return execute(DEFAULT_ISOLATION, work);
+	}
+
+	/**
+	 * Executa {@code work} em uma unidade de trabalho, com commit se terminar
+	 * normalmente e rollback se lancar excecao.
+	 */
+	public static <T> T execute(int isolation, Supplier<T> work) {
+		try (UnitOfWork uow = begin(isolation)) {
+			T result = work.get();
+			uow.commit();
+			return result;
+		}
+	}
+
+	public static void run(Runnable work) {
+		execute(DEFAULT_ISOLATION, () -> {
+			work.run();
+			return null;
+		});
+	}
+
+	public static boolean isActive() {
+		return current.get() != null;
+	}
+
+	/**
+	 * Executa {@code action} depois do commit da unidade de trabalho externa
+	 * da thread, ou na hora se nao ha unidade aberta. Nada e executado se a
+	 * transacao for desfeita.
+	 */
+	static void afterCommit(Runnable action) {
+		UnitOfWork uow = current.get();
+		if (uow == null) {
+			action.run();
+			return;
+		}
+		if (uow.afterCommit == null) {
+			uow.afterCommit = new ArrayList<>();
+		}
+		uow.afterCommit.add(action);
+	}
+
+	public void commit() {
+		checkOpen();
+		completed = true;
+		if (outer != null) {
+			return;
+		}
+		if (rollbackOnly) {
+			rollbackQuietly();
+			throw new DBException("Transacao desfeita: uma unidade de trabalho interna pediu rollback");
+		}
+		try {
+			con.commit();
+		} catch (SQLException e) {
+			rollbackQuietly();
+			throw new DBException(e.getMessage(), e);
+		}
+		DB.writeCommitted();
+		if (afterCommit != null) {
+			for (Runnable action : afterCommit) {
+				action.run();
+			}
+		}
+	}
+
+	public void rollback() {
+		checkOpen();
+		completed = true;
+		if (outer != null) {
+			outer.rollbackOnly = true;
+			return;
+		}
+		try {
+			con.rollback();
+		} catch (SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		}
+	}
+
+	public Savepoint setSavepoint(String name) {
+		checkOpen();
+		try {
+			return name == null ? con.setSavepoint() : con.setSavepoint(name);
+		} catch (SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		}
+	}
+
+	public void rollbackTo(Savepoint savepoint) {
+		checkOpen();
+		try {
+			con.rollback(savepoint);
+		} catch (SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		}
+	}
+
+	public void releaseSavepoint(Savepoint savepoint) {
+		checkOpen();
+		try {
+			con.releaseSavepoint(savepoint);
+		} catch (SQLException e) {
+			throw new DBException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Encerra a unidade. Se nao houve commit, desfaz a transacao (ou marca a
+	 * externa para rollback). A conexao e sempre liberada: uma falha no
+	 * rollback (conexao caida) nao esconde a excecao do trabalho.
+	 */
+	@Override
+	public void close() {
+		if (!completed) {
+			completed = true;
+			if (outer != null) {
+				outer.rollbackOnly = true;
+			} else {
+				rollbackQuietly();
+			}
+		}
+		if (outer != null) {
+			return;
+		}
+		current.remove();
+		dataSource.unbind();
+		try {
+			con.setAutoCommit(true);
+			if (previousIsolation != DEFAULT_ISOLATION) {
+				con.setTransactionIsolation(previousIsolation);
+			}
+		} catch (SQLException e) {
+			// a conexao volta ao pool, que descarta conexoes com problema
+		} finally {
+			DB.closeConnection(con);
+		}
+	}
+
+	private void checkOpen() {
+		if (completed) {
+			throw new IllegalStateException("Unidade de trabalho ja finalizada");
+		}
+	}
+
+	private void rollbackQuietly() {
+		try {
+			con.rollback();
+		} catch (SQLException e) {
+			// a falha original e mais relevante
+		}
+	}
+}
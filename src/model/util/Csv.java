@@ -0,0 +1,64 @@
+package model.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class Csv {
+
+	public static final char SEPARATOR = ',';
+
+	public static String escape(String value) {
+		if (value == null) {
+			return "";
+		}
+		boolean quote = false;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == SEPARATOR || c == '"' || c == '\n' || c == '\r') {
+				quote = true;
+				break;
+			}
+		}
+		if (!quote) {
+			return value;
+		}
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}
+
+	/**
+	 * Separa uma linha CSV em campos (RFC 4180, sem quebras de linha dentro
+	 * de campos entre aspas).
+	 */
+	public static List<String> parseLine(String line) {
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"') {
+					if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+						field.append('"');
+						i++;
+					} else {
+						quoted = false;
+					}
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == SEPARATOR) {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		if (quoted) {
+			throw new IllegalArgumentException("Aspas nao fechadas");
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+}
@@ -0,0 +1,163 @@
+package model.util;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Map;
+
+import model.entities.Department;
+import model.entities.DepartmentSalaryStats;
+import model.entities.Seller;
+
+/**
+ * Conversao das entidades para JSON e de volta. Datas usam o formato
+ * yyyy-MM-dd.
+ */
+public class EntityJson {
+
+	private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = ThreadLocal.withInitial(() -> {
+		SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
+		sdf.setLenient(false);
+		return sdf;
+	});
+
+	public static void writeSeller(Appendable out, Seller obj) throws IOException {
+		Department dep = obj.getDepartment();
+		out.append("{\"id\":");
+		out.append(String.valueOf(obj.getId()));
+		out.append(",\"name\":");
+		out.append(Json.quote(obj.getName()));
+		out.append(",\"email\":");
+		out.append(Json.quote(obj.getEmail()));
+		out.append(",\"birthDate\":");
+		out.append(obj.getBirthDate() == null ? "null" : Json.quote(DATE_FORMAT.get().format(obj.getBirthDate())));
+		out.append(",\"baseSalary\":");
+		out.append(String.valueOf(obj.getBaseSalary()));
+		out.append(",\"department\":");
+		if (dep == null) {
+			out.append("null");
+		} else {
+			out.append("{\"id\":");
+			out.append(String.valueOf(dep.getId()));
+			out.append(",\"name\":");
+			out.append(Json.quote(dep.getName()));
+			out.append('}');
+		}
+		out.append(",\"version\":");
+		out.append(String.valueOf(obj.getVersion()));
+		out.append('}');
+	}
+
+	public static void writeDepartment(Appendable out, Department obj) throws IOException {
+		out.append("{\"id\":");
+		out.append(String.valueOf(obj.getId()));
+		out.append(",\"name\":");
+		out.append(Json.quote(obj.getName()));
+		out.append(",\"version\":");
+		out.append(String.valueOf(obj.getVersion()));
+		out.append('}');
+	}
+
+	public static void writeSalaryStats(Appendable out, DepartmentSalaryStats obj) throws IOException {
+		out.append("{\"departmentId\":");
+		out.append(String.valueOf(obj.getDepartmentId()));
+		out.append(",\"departmentName\":");
+		out.append(Json.quote(obj.getDepartmentName()));
+		out.append(",\"count\":");
+		out.append(String.valueOf(obj.getCount()));
+		out.append(",\"sum\":");
+		out.append(String.valueOf(obj.getSum()));
+		out.append(",\"average\":");
+		out.append(String.valueOf(obj.getAverage()));
+		out.append(",\"min\":");
+		out.append(String.valueOf(obj.getMin()));
+		out.append(",\"max\":");
+		out.append(String.valueOf(obj.getMax()));
+		out.append(",\"median\":");
+		out.append(String.valueOf(obj.getMedian()));
+		out.append(",\"percentile90\":");
+		out.append(String.valueOf(obj.getPercentile90()));
+		out.append('}');
+	}
+
+	/**
+	 * Monta um seller a partir de um objeto JSON. O departamento pode vir
+	 * como "departmentId" ou "department": {"id": ...}.
+	 *
+	 * @throws IllegalArgumentException se falta campo obrigatorio ou algum
+	 *                                  valor e invalido
+	 */
+	public static Seller toSeller(Object json) {
+		Map<?, ?> map = asObject(json);
+		Seller obj = new Seller();
+		obj.setId(integer(map, "id", false));
+		obj.setName(text(map, "name"));
+		obj.setEmail(text(map, "email"));
+		obj.setBirthDate(date(map, "birthDate"));
+		obj.setBaseSalary(decimal(map, "baseSalary"));
+		Integer departmentId = integer(map, "departmentId", false);
+		if (departmentId == null && map.get("department") != null) {
+			departmentId = integer(asObject(map.get("department")), "id", true);
+		}
+		if (departmentId == null) {
+			throw new IllegalArgumentException("Campo obrigatorio: departmentId");
+		}
+		obj.setDepartment(new Department(departmentId, null));
+		obj.setVersion(integer(map, "version", false));
+		return obj;
+	}
+
+	public static Department toDepartment(Object json) {
+		Map<?, ?> map = asObject(json);
+		Department obj = new Department(integer(map, "id", false), text(map, "name"));
+		obj.setVersion(integer(map, "version", false));
+		return obj;
+	}
+
+	private static Map<?, ?> asObject(Object json) {
+		if (!(json instanceof Map)) {
+			throw new IllegalArgumentException("Objeto JSON esperado");
+		}
+		return (Map<?, ?>) json;
+	}
+
+	private static String text(Map<?, ?> map, String field) {
+		Object value = map.get(field);
+		if (!(value instanceof String) || ((String) value).trim().isEmpty()) {
+			throw new IllegalArgumentException("Campo obrigatorio: " + field);
+		}
+		return ((String) value).trim();
+	}
+
+	private static Integer integer(Map<?, ?> map, String field, boolean required) {
+		Object value = map.get(field);
+		if (value == null) {
+			if (required) {
+				throw new IllegalArgumentException("Campo obrigatorio: " + field);
+			}
+			return null;
+		}
+		if (!(value instanceof Long) || (Long) value != ((Long) value).intValue()) {
+			throw new IllegalArgumentException("Valor invalido para " + field + ": " + value);
+		}
+		return ((Long) value).intValue();
+	}
+
+	private static Double decimal(Map<?, ?> map, String field) {
+		Object value = map.get(field);
+		if (!(value instanceof Number)) {
+			throw new IllegalArgumentException("Campo obrigatorio: " + field);
+		}
+		return ((Number) value).doubleValue();
+	}
+
+	private static Date date(Map<?, ?> map, String field) {
+		String value = text(map, field);
+		try {
+			return DATE_FORMAT.get().parse(value);
+		} catch (ParseException e) {
+			throw new IllegalArgumentException("Data invalida para " + field + " (use yyyy-MM-dd): " + value);
+		}
+	}
+}
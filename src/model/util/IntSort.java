@@ -0,0 +1,58 @@
+package model.util;
+
+/**
+ * Ordenacao estavel (merge sort) de arrays de int com comparador primitivo,
+ * usada para ordenar indices de linhas sem boxing.
+ */
+public class IntSort {
+
+	private static final int INSERTION_THRESHOLD = 16;
+
+	@FunctionalInterface
+	public interface IntComparator {
+		int compare(int a, int b);
+	}
+
+	public static void sort(int[] a, IntComparator comparator) {
+		if (a.length < 2) {
+			return;
+		}
+		int[] buffer = a.clone();
+		mergeSort(buffer, a, 0, a.length, comparator);
+	}
+
+	/*
+	 * Ordena src[from, to) gravando o resultado em dest[from, to); os dois
+	 * arrays comecam com o mesmo conteudo e trocam de papel a cada nivel.
+	 */
+	private static void mergeSort(int[] src, int[] dest, int from, int to, IntComparator c) {
+		int length = to - from;
+		if (length < INSERTION_THRESHOLD) {
+			for (int i = from + 1; i < to; i++) {
+				int value = dest[i];
+				int j = i - 1;
+				while (j >= from && c.compare(dest[j], value) > 0) {
+					dest[j + 1] = dest[j];
+					j--;
+				}
+				dest[j + 1] = value;
+			}
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		mergeSort(dest, src, from, mid, c);
+		mergeSort(dest, src, mid, to, c);
+
+		if (c.compare(src[mid - 1], src[mid]) <= 0) {
+			System.arraycopy(src, from, dest, from, length);
+			return;
+		}
+		for (int i = from, p = from, q = mid; i < to; i++) {
+			if (q >= to || (p < mid && c.compare(src[p], src[q]) <= 0)) {
+				dest[i] = src[p++];
+			} else {
+				dest[i] = src[q++];
+			}
+		}
+	}
+}
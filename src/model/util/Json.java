@@ -0,0 +1,245 @@
+package model.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class Json {
+
+	/**
+	 * Le um documento JSON. Objetos viram {@code Map<String, Object>} (na
+	 * ordem do documento), arrays {@code List<Object>}, numeros
+	 * {@link Long} ou {@link Double}, e {@code null} vira null.
+	 *
+	 * @throws IllegalArgumentException se o texto nao e JSON valido
+	 */
+	public static Object parse(String text) {
+		Parser parser = new Parser(text);
+		Object value = parser.value();
+		parser.skipSpaces();
+		if (parser.pos < text.length()) {
+			throw parser.error("conteudo apos o fim do documento");
+		}
+		return value;
+	}
+
+	public static String quote(String value) {
+		if (value == null) {
+			return "null";
+		}
+		StringBuilder sb = new StringBuilder(value.length() + 2);
+		sb.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				sb.append("\\\"");
+				break;
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					sb.append(String.format("\\u%04x", (int) c));
+				} else {
+					sb.append(c);
+				}
+			}
+		}
+		sb.append('"');
+		return sb.toString();
+	}
+
+	private static class Parser {
+
+		final String text;
+		int pos;
+
+		Parser(String text) {
+			this.text = text;
+		}
+
+		Object value() {
+			skipSpaces();
+			if (pos >= text.length()) {
+				throw error("fim inesperado");
+			}
+			char c = text.charAt(pos);
+			switch (c) {
+			case '{':
+				return object();
+			case '[':
+				return array();
+			case '"':
+				return string();
+			case 't':
+				return literal("true", Boolean.TRUE);
+			case 'f':
+				return literal("false", Boolean.FALSE);
+			case 'n':
+				return literal("null", null);
+			default:
+				if (c == '-' || (c >= '0' && c <= '9')) {
+					return number();
+				}
+				throw error("caractere inesperado '" + c + "'");
+			}
+		}
+
+		Map<String, Object> object() {
+			Map<String, Object> map = new LinkedHashMap<>();
+			pos++;
+			skipSpaces();
+			if (peek() == '}') {
+				pos++;
+				return map;
+			}
+			while (true) {
+				skipSpaces();
+				if (peek() != '"') {
+					throw error("nome de campo esperado");
+				}
+				String name = string();
+				skipSpaces();
+				expect(':');
+				map.put(name, value());
+				skipSpaces();
+				if (peek() == ',') {
+					pos++;
+				} else {
+					expect('}');
+					return map;
+				}
+			}
+		}
+
+		List<Object> array() {
+			List<Object> list = new ArrayList<>();
+			pos++;
+			skipSpaces();
+			if (peek() == ']') {
+				pos++;
+				return list;
+			}
+			while (true) {
+				list.add(value());
+				skipSpaces();
+				if (peek() == ',') {
+					pos++;
+				} else {
+					expect(']');
+					return list;
+				}
+			}
+		}
+
+		String string() {
+			pos++;
+			StringBuilder sb = new StringBuilder();
+			while (pos < text.length()) {
+				char c = text.charAt(pos++);
+				if (c == '"') {
+					return sb.toString();
+				}
+				if (c != '\\') {
+					sb.append(c);
+					continue;
+				}
+				if (pos >= text.length()) {
+					break;
+				}
+				char e = text.charAt(pos++);
+				switch (e) {
+				case 'b':
+					sb.append('\b');
+					break;
+				case 'f':
+					sb.append('\f');
+					break;
+				case 'n':
+					sb.append('\n');
+					break;
+				case 'r':
+					sb.append('\r');
+					break;
+				case 't':
+					sb.append('\t');
+					break;
+				case 'u':
+					if (pos + 4 > text.length()) {
+						throw error("escape \\u incompleto");
+					}
+					try {
+						sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+					} catch (NumberFormatException ex) {
+						throw error("escape \\u invalido");
+					}
+					pos += 4;
+					break;
+				default:
+					sb.append(e);
+				}
+			}
+			throw error("texto sem aspas de fechamento");
+		}
+
+		Object number() {
+			int start = pos;
+			boolean decimal = false;
+			while (pos < text.length()) {
+				char c = text.charAt(pos);
+				if (c == '.' || c == 'e' || c == 'E') {
+					decimal = true;
+				} else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) {
+					break;
+				}
+				pos++;
+			}
+			String number = text.substring(start, pos);
+			try {
+				return decimal ? (Object) Double.valueOf(number) : (Object) Long.valueOf(number);
+			} catch (NumberFormatException e) {
+				throw error("numero invalido " + number);
+			}
+		}
+
+		Object literal(String word, Object value) {
+			if (!text.startsWith(word, pos)) {
+				throw error("valor invalido");
+			}
+			pos += word.length();
+			return value;
+		}
+
+		void expect(char c) {
+			if (peek() != c) {
+				throw error("'" + c + "' esperado");
+			}
+			pos++;
+		}
+
+		char peek() {
+			return pos < text.length() ? text.charAt(pos) : 0;
+		}
+
+		void skipSpaces() {
+			while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+				pos++;
+			}
+		}
+
+		IllegalArgumentException error(String message) {
+			return new IllegalArgumentException("JSON invalido na posicao " + pos + ": " + message);
+		}
+	}
+}